@@ -0,0 +1,90 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A listener which counts service start and stop events down to a latch set up before each benchmark operation.
+ */
+final class CountingListener extends AbstractServiceListener<Object> {
+    private volatile CountDownLatch started = new CountDownLatch(0);
+    private volatile CountDownLatch stopped = new CountDownLatch(0);
+    private volatile StartException failure;
+
+    void expectStarts(final int count) {
+        started = new CountDownLatch(count);
+    }
+
+    void expectStops(final int count) {
+        stopped = new CountDownLatch(count);
+    }
+
+    void awaitStarts() throws InterruptedException {
+        await(started, "start");
+        final StartException failure = this.failure;
+        if (failure != null) {
+            throw new IllegalStateException("Service failed to start", failure);
+        }
+    }
+
+    void awaitStops() throws InterruptedException {
+        await(stopped, "stop");
+    }
+
+    private static void await(final CountDownLatch latch, final String what) throws InterruptedException {
+        if (! latch.await(60L, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Timed out waiting for " + latch.getCount() + " services to " + what);
+        }
+    }
+
+    public void serviceStarted(final ServiceController<? extends Object> controller) {
+        started.countDown();
+    }
+
+    public void serviceFailed(final ServiceController<? extends Object> controller, final StartException reason) {
+        failure = reason;
+        final CountDownLatch started = this.started;
+        while (started.getCount() > 0) {
+            started.countDown();
+        }
+    }
+
+    public void serviceStopped(final ServiceController<? extends Object> controller) {
+        stopped.countDown();
+    }
+
+    static void shutdown(final ServiceContainer container) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        container.addTerminateListener(new ServiceContainer.TerminateListener() {
+            public void handleTermination(final Info info) {
+                latch.countDown();
+            }
+        });
+        container.shutdown();
+        if (! latch.await(60L, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Timed out waiting for container shutdown");
+        }
+    }
+}
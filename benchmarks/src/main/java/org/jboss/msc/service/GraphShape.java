@@ -0,0 +1,167 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+/**
+ * The dependency graph shapes exercised by the lifecycle benchmarks.  Service {@code i} of a graph of {@code size}
+ * services is named by {@link #nameOf(int)}.
+ */
+public enum GraphShape {
+
+    /**
+     * Each service depends on its predecessor.
+     */
+    CHAIN {
+        int[] dependencies(final int i, final int size) {
+            return i == 0 ? NONE : new int[] { i - 1 };
+        }
+
+        int[] tops(final int size) {
+            return new int[] { size - 1 };
+        }
+    },
+    /**
+     * Service {@code 0} depends on every other service.
+     */
+    FAN_IN {
+        int[] dependencies(final int i, final int size) {
+            if (i != 0) {
+                return NONE;
+            }
+            final int[] deps = new int[size - 1];
+            for (int j = 0; j < deps.length; j ++) {
+                deps[j] = j + 1;
+            }
+            return deps;
+        }
+
+        int[] tops(final int size) {
+            return new int[] { 0 };
+        }
+    },
+    /**
+     * Every service depends on service {@code 0}.
+     */
+    FAN_OUT {
+        int[] dependencies(final int i, final int size) {
+            return i == 0 ? NONE : new int[] { 0 };
+        }
+
+        int[] tops(final int size) {
+            if (size == 1) {
+                return new int[] { 0 };
+            }
+            final int[] tops = new int[size - 1];
+            for (int j = 0; j < tops.length; j ++) {
+                tops[j] = j + 1;
+            }
+            return tops;
+        }
+    },
+    /**
+     * Each service depends on the (up to) ten services that follow it, as in the original {@code TenForwardBench}.
+     */
+    TEN_FORWARD {
+        int[] dependencies(final int i, final int size) {
+            final int cnt = Math.min(10, size - i - 1);
+            final int[] deps = new int[cnt];
+            for (int j = 0; j < cnt; j ++) {
+                deps[j] = i + j + 1;
+            }
+            return deps;
+        }
+
+        int[] tops(final int size) {
+            return new int[] { 0 };
+        }
+    },
+    ;
+
+    private static final int[] NONE = new int[0];
+
+    /**
+     * Get the indices of the services that service {@code i} depends on.
+     *
+     * @param i the service index
+     * @param size the graph size
+     * @return the dependency indices
+     */
+    abstract int[] dependencies(int i, int size);
+
+    /**
+     * Get the indices of the services which no other service depends on.  Depending on all of these services
+     * demands the whole graph.
+     *
+     * @param size the graph size
+     * @return the top service indices
+     */
+    abstract int[] tops(int size);
+
+    /**
+     * Get the name of a service in the graph.
+     *
+     * @param i the service index
+     * @return the service name
+     */
+    public static ServiceName nameOf(final int i) {
+        return ServiceName.of("bench", Integer.toString(i));
+    }
+
+    /**
+     * Add the services of a graph of this shape to a batch.  Every service additionally depends on the given
+     * extra dependency, if any.
+     *
+     * @param batch the batch to add to
+     * @param size the graph size
+     * @param mode the initial mode of every service
+     * @param extraDependency an additional dependency for every service, or {@code null} for none
+     */
+    public void addTo(final BatchBuilder batch, final int size, final ServiceController.Mode mode, final ServiceName extraDependency) {
+        for (int i = 0; i < size; i ++) {
+            final ServiceBuilder<Void> builder = batch.addService(nameOf(i), Service.NULL);
+            builder.setInitialMode(mode);
+            for (int dep : dependencies(i, size)) {
+                builder.addDependency(nameOf(dep));
+            }
+            if (extraDependency != null) {
+                builder.addDependency(extraDependency);
+            }
+            builder.install();
+        }
+    }
+
+    /**
+     * Get the names of the services which no other service depends on.
+     *
+     * @param size the graph size
+     * @return the top service names
+     */
+    public ServiceName[] topNames(final int size) {
+        final int[] tops = tops(size);
+        final ServiceName[] names = new ServiceName[tops.length];
+        for (int i = 0; i < tops.length; i ++) {
+            names[i] = nameOf(tops[i]);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link IdentityHashSet} operations used for dependent and listener sets, at the small sizes those
+ * sets usually have.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class IdentityHashSetBenchmark {
+
+    @Param({ "1", "4", "16", "256" })
+    public int size;
+
+    private Object[] elements;
+    private Object absent;
+    private IdentityHashSet<Object> set;
+    private int next;
+
+    @Setup
+    public void setup() {
+        elements = new Object[size];
+        set = new IdentityHashSet<Object>(0);
+        for (int i = 0; i < size; i ++) {
+            elements[i] = new Object();
+            set.add(elements[i]);
+        }
+        absent = new Object();
+    }
+
+    @Benchmark
+    public boolean containsPresent() {
+        final int i = next;
+        next = i + 1 == size ? 0 : i + 1;
+        return set.contains(elements[i]);
+    }
+
+    @Benchmark
+    public boolean containsAbsent() {
+        return set.contains(absent);
+    }
+
+    @Benchmark
+    public boolean addRemove() {
+        set.add(absent);
+        return set.remove(absent);
+    }
+
+    @Benchmark
+    public int iterate() {
+        int cnt = 0;
+        for (Object ignored : set) {
+            cnt ++;
+        }
+        return cnt;
+    }
+
+    @Benchmark
+    public Object[] toArray() {
+        return set.toArray(new Object[size], 0, size);
+    }
+
+    @Benchmark
+    public IdentityHashSet<Object> build() {
+        final IdentityHashSet<Object> set = new IdentityHashSet<Object>(0);
+        for (Object element : elements) {
+            set.add(element);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time taken to install a whole graph into a fresh container and wait for every service to come up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class InstallBenchmark {
+
+    @Param({ "CHAIN", "FAN_IN", "FAN_OUT", "TEN_FORWARD" })
+    public GraphShape shape;
+
+    @Param({ "100", "1000", "10000" })
+    public int size;
+
+    private ServiceContainer container;
+    private CountingListener listener;
+
+    @Setup(Level.Invocation)
+    public void createContainer() {
+        container = ServiceContainer.Factory.create();
+        listener = new CountingListener();
+    }
+
+    @TearDown(Level.Invocation)
+    public void shutdownContainer() throws InterruptedException {
+        CountingListener.shutdown(container);
+    }
+
+    @Benchmark
+    public void install() throws InterruptedException {
+        final BatchBuilder batch = container.batchBuilder();
+        batch.addListener(listener);
+        listener.expectStarts(size);
+        shape.addTo(batch, size, ServiceController.Mode.ACTIVE, null);
+        batch.install();
+        listener.awaitStarts();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures start and stop latency of an installed graph.  With {@code mode=ACTIVE} every service depends on a
+ * "gate" service whose mode is flipped; with {@code mode=ON_DEMAND} the graph is only demanded by a single
+ * "demander" service on top of it, so the benchmark also covers demand propagation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class LifecycleBenchmark {
+
+    private static final ServiceName SWITCH = ServiceName.of("bench", "switch");
+
+    public abstract static class Graph {
+
+        @Param({ "CHAIN", "FAN_IN", "FAN_OUT", "TEN_FORWARD" })
+        public GraphShape shape;
+
+        @Param({ "100", "1000", "10000" })
+        public int size;
+
+        @Param({ "ACTIVE", "ON_DEMAND" })
+        public ServiceController.Mode mode;
+
+        private ServiceContainer container;
+        private CountingListener listener;
+        ServiceController<?> switchController;
+
+        @Setup(Level.Trial)
+        public void install() throws InterruptedException {
+            container = ServiceContainer.Factory.create();
+            listener = new CountingListener();
+            final BatchBuilder batch = container.batchBuilder();
+            batch.addListener(listener);
+            final ServiceBuilder<Void> builder = batch.addService(SWITCH, Service.NULL);
+            builder.setInitialMode(ServiceController.Mode.NEVER);
+            if (mode == ServiceController.Mode.ON_DEMAND) {
+                builder.addDependencies(shape.topNames(size));
+                builder.install();
+                shape.addTo(batch, size, ServiceController.Mode.ON_DEMAND, null);
+            } else {
+                builder.install();
+                shape.addTo(batch, size, ServiceController.Mode.ACTIVE, SWITCH);
+            }
+            batch.install();
+            switchController = container.getRequiredService(SWITCH);
+        }
+
+        @TearDown(Level.Trial)
+        public void shutdown() throws InterruptedException {
+            CountingListener.shutdown(container);
+        }
+
+        void start() throws InterruptedException {
+            listener.expectStarts(size + 1);
+            switchController.setMode(ServiceController.Mode.ACTIVE);
+            listener.awaitStarts();
+        }
+
+        void stop() throws InterruptedException {
+            listener.expectStops(size + 1);
+            switchController.setMode(ServiceController.Mode.NEVER);
+            listener.awaitStops();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class StoppedGraph extends Graph {
+
+        @Setup(Level.Invocation)
+        public void ensureStopped() throws InterruptedException {
+            if (switchController.getMode() != ServiceController.Mode.NEVER) {
+                stop();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class StartedGraph extends Graph {
+
+        @Setup(Level.Invocation)
+        public void ensureStarted() throws InterruptedException {
+            if (switchController.getMode() != ServiceController.Mode.ACTIVE) {
+                start();
+            }
+        }
+    }
+
+    @Benchmark
+    public void start(final StoppedGraph graph) throws InterruptedException {
+        graph.start();
+    }
+
+    @Benchmark
+    public void stop(final StartedGraph graph) throws InterruptedException {
+        graph.stop();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link ServiceName} parsing, construction, hashing and comparison.  {@code parse} hits the parse cache
+ * and {@code canonicalName} the cached string; the {@code parseUncached} and {@code canonicalNameOfNew} variants
+ * measure the work behind them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ServiceNameBenchmark {
+
+    @Param({ "jboss.deployment.unit.\"app.war\".component.Foo.START", "jboss.naming.context.java.comp" })
+    public String canonicalName;
+
+    private String[] segments;
+    private ServiceName name;
+    private ServiceName equalName;
+    private ServiceName siblingName;
+
+    @Setup
+    public void setup() {
+        name = ServiceName.parse(canonicalName);
+        equalName = ServiceName.parse(canonicalName);
+        siblingName = name.getParent().append("zzz");
+        segments = new String[name.length()];
+        ServiceName current = name;
+        for (int i = segments.length - 1; i >= 0; i --) {
+            segments[i] = current.getSimpleName();
+            current = current.getParent();
+        }
+    }
+
+    @Benchmark
+    public ServiceName parse() {
+        return ServiceName.parse(canonicalName);
+    }
+
+    @Benchmark
+    public ServiceName parseUncached() {
+        return ServiceName.parseUncached(canonicalName);
+    }
+
+    @Benchmark
+    public ServiceName of() {
+        return ServiceName.of(segments);
+    }
+
+    @Benchmark
+    public String canonicalName() {
+        return name.getCanonicalName();
+    }
+
+    @Benchmark
+    public String canonicalNameOfNew() {
+        return ServiceName.of(segments).getCanonicalName();
+    }
+
+    @Benchmark
+    public int hashCodeOfNew() {
+        return ServiceName.of(segments).hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsEqual() {
+        return name.equals(equalName);
+    }
+
+    @Benchmark
+    public int compareToEqual() {
+        return name.compareTo(equalName);
+    }
+
+    @Benchmark
+    public int compareToSibling() {
+        return name.compareTo(siblingName);
+    }
+}
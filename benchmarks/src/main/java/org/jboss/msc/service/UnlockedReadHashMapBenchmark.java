@@ -0,0 +1,128 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link UnlockedReadHashMap} operations used by the service registry, keyed by service name.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class UnlockedReadHashMapBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Filled {
+
+        @Param({ "1000", "100000" })
+        public int size;
+
+        ServiceName[] names;
+        UnlockedReadHashMap<ServiceName, Object> map;
+
+        @Setup(Level.Trial)
+        public void fill() {
+            names = new ServiceName[size];
+            map = new UnlockedReadHashMap<ServiceName, Object>();
+            for (int i = 0; i < size; i ++) {
+                names[i] = GraphShape.nameOf(i);
+                map.put(names[i], names[i]);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next(final int size) {
+            final int i = next;
+            next = i + 1 == size ? 0 : i + 1;
+            return i;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Empty {
+
+        @Param({ "1000", "100000" })
+        public int size;
+
+        ServiceName[] names;
+        UnlockedReadHashMap<ServiceName, Object> map;
+
+        @Setup(Level.Trial)
+        public void names() {
+            names = new ServiceName[size];
+            for (int i = 0; i < size; i ++) {
+                names[i] = GraphShape.nameOf(i);
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            map = new UnlockedReadHashMap<ServiceName, Object>();
+        }
+    }
+
+    @Benchmark
+    public Object get(final Filled filled, final Cursor cursor) {
+        return filled.map.get(filled.names[cursor.next(filled.size)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object getContended(final Filled filled, final Cursor cursor) {
+        return filled.map.get(filled.names[cursor.next(filled.size)]);
+    }
+
+    @Benchmark
+    public Object putIfAbsent(final Empty empty, final Cursor cursor) {
+        final ServiceName name = empty.names[cursor.next(empty.size)];
+        return empty.map.putIfAbsent(name, name);
+    }
+
+    @Benchmark
+    public Object putRemove(final Empty empty, final Cursor cursor) {
+        final ServiceName name = empty.names[cursor.next(empty.size)];
+        empty.map.put(name, name);
+        return empty.map.remove(name);
+    }
+}
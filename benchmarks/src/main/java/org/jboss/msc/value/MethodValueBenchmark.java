@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.value;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a chain of four {@link MethodValue}s whose methods are looked up by a {@link LookupMethodValue}, as built
+ * from a service descriptor.  The {@code inContext} variant evaluates the chain in an explicit
+ * {@link EvaluationContext}, which does not touch the {@code this} thread-local.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MethodValueBenchmark {
+
+    private MethodValue<String> nestedMethodValue;
+
+    @Setup
+    public void setup() {
+        final Value<Class<?>> targetClass = new ImmediateValue<Class<?>>(Object.class);
+        final List<Value<?>> noParameters = Collections.emptyList();
+        Value<String> value = new ImmediateValue<String>("value");
+        for (int i = 0; i < 4; i ++) {
+            value = new MethodValue<String>(new LookupMethodValue(targetClass, "toString", 0), value, noParameters);
+        }
+        nestedMethodValue = (MethodValue<String>) value;
+    }
+
+    @Benchmark
+    public String nestedMethodValue() {
+        return nestedMethodValue.getValue();
+    }
+
+    @Benchmark
+    public String nestedMethodValueInContext() {
+        return nestedMethodValue.getValue(EvaluationContext.EMPTY);
+    }
+}
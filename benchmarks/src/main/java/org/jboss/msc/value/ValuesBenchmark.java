@@ -0,0 +1,88 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.value;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building parameter arrays with {@link Values#getValues}, as done on each {@link MethodValue} and
+ * {@link ConstructedValue} evaluation.  The {@code linked} variants take the path for lists without random access.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ValuesBenchmark {
+
+    @Param({ "0", "1", "2", "8" })
+    public int count;
+
+    private List<Value<String>> parameters;
+    private List<Value<String>> linkedParameters;
+
+    @Setup
+    public void setup() {
+        parameters = new ArrayList<Value<String>>(count);
+        for (int i = 0; i < count; i ++) {
+            parameters.add(new ImmediateValue<String>("param" + i));
+        }
+        linkedParameters = new LinkedList<Value<String>>(parameters);
+    }
+
+    @Benchmark
+    public Object[] getValues() {
+        return Values.getValues(parameters);
+    }
+
+    @Benchmark
+    public String[] getTypedValues() {
+        return Values.getValues(parameters, String.class);
+    }
+
+    @Benchmark
+    public Object[] linkedGetValues() {
+        return Values.getValues(linkedParameters);
+    }
+
+    @Benchmark
+    public String[] linkedGetTypedValues() {
+        return Values.getValues(linkedParameters, String.class);
+    }
+}
@@ -24,6 +24,7 @@ package org.jboss.msc.inject;
 
 import java.lang.reflect.Field;
 import org.jboss.msc.value.Value;
+import org.jboss.msc.value.Values;
 
 /**
  * An injector which updates the value of a field.
@@ -36,22 +37,58 @@ public final class FieldInjector<T> implements Injector<T> {
 
     private final Value<?> target;
     private final Value<Field> fieldValue;
+    private final boolean bound;
+    /**
+     * The field last read from the field value, with the value which uninjection stores in it.
+     */
+    private volatile ResolvedField resolved;
 
     /**
-     * Construct a new instance.
+     * Construct a new instance.  If the field value always yields the same field, as immediate values and the
+     * {@code Lookup*FieldValue} classes do, the field is only read from it once.
      *
      * @param target the object whose field is to be updated
      * @param fieldValue the field to update
      */
     public FieldInjector(final Value<?> target, final Value<Field> fieldValue) {
+        this(target, fieldValue, Values.isBindable(fieldValue));
+    }
+
+    private FieldInjector(final Value<?> target, final Value<Field> fieldValue, final boolean bound) {
         this.target = target;
         this.fieldValue = fieldValue;
+        this.bound = bound;
+    }
+
+    /**
+     * Construct a new instance which gets the field from the given value once, on first use, and updates that same
+     * field from then on, whatever kind of value it is.
+     *
+     * @param target the object whose field is to be updated
+     * @param fieldValue the field to update
+     * @param <T> the value type
+     * @return the injector
+     */
+    public static <T> FieldInjector<T> createBound(final Value<?> target, final Value<Field> fieldValue) {
+        return new FieldInjector<T>(target, fieldValue, true);
+    }
+
+    private ResolvedField getField() {
+        final ResolvedField resolved = this.resolved;
+        if (bound && resolved != null) {
+            return resolved;
+        }
+        final Field field = fieldValue.getValue();
+        if (resolved != null && resolved.field == field) {
+            return resolved;
+        }
+        return this.resolved = new ResolvedField(field);
     }
 
     /** {@inheritDoc} */
     public void inject(final T value) {
         try {
-            fieldValue.getValue().set(target.getValue(), value);
+            getField().field.set(target.getValue(), value);
         } catch (Exception e) {
             throw new InjectionException("Failed to inject value into field", e);
         }
@@ -59,52 +96,51 @@ public final class FieldInjector<T> implements Injector<T> {
 
     /** {@inheritDoc} */
     public void uninject() {
-         
         try {
-            Field field = fieldValue.getValue();
-            Class<?> fieldType = field.getType();
-            Object targetValue = target.getValue();
-            if (fieldType.isPrimitive()) {
-                uninjectPrimitive(field, fieldType, targetValue);
-            } else {
-                fieldValue.getValue().set(targetValue, null);
-            }
+            final ResolvedField resolved = getField();
+            resolved.field.set(target.getValue(), resolved.zero);
         } catch (Throwable throwable) {
             InjectorLogger.INSTANCE.uninjectFailed(throwable, fieldValue);
         }
     }
 
-    private final void uninjectPrimitive(Field field, Class<?> fieldType, Object targetValue)
-        throws IllegalArgumentException, IllegalAccessException {
-        
-        switch(fieldType.getName().toString().charAt(0)) {
-            case 'b':
-                if (fieldType == byte.class) {
-                    field.setByte(targetValue, (byte) 0);
-                } else { // fieldType is boolean.class
-                    field.setBoolean(targetValue, false);
-                }
-                break;
-            case 'c': // char
-                field.setChar(targetValue, '\u0000');
-                break;
-            case 'd':// double
-                field.setDouble(targetValue, 0.0);
-                break;
-            case 'f':// float
-                field.setFloat(targetValue, 0.0f);
-                break;
-            case 'i':// int
-                field.setInt(targetValue, 0);
-                break;
-            case 'l':// long
-                field.setLong(targetValue, 0l);
-                break;
-            case 's':// short
-                field.setShort(targetValue, (short) 0);
-                break;
-            default:
-                throw new IllegalStateException("Unexpected field primitive type " + fieldType.getName());
+    private static final class ResolvedField {
+        private final Field field;
+        private final Object zero;
+
+        ResolvedField(final Field field) {
+            this.field = field;
+            zero = zeroOf(field.getType());
+        }
+    }
+
+    /**
+     * Get the default value of a field type, boxed for primitive types.
+     *
+     * @param fieldType the field type
+     * @return the default value
+     */
+    private static Object zeroOf(final Class<?> fieldType) {
+        if (! fieldType.isPrimitive()) {
+            return null;
+        } else if (fieldType == boolean.class) {
+            return Boolean.FALSE;
+        } else if (fieldType == byte.class) {
+            return Byte.valueOf((byte) 0);
+        } else if (fieldType == char.class) {
+            return Character.valueOf('\u0000');
+        } else if (fieldType == double.class) {
+            return Double.valueOf(0.0);
+        } else if (fieldType == float.class) {
+            return Float.valueOf(0.0f);
+        } else if (fieldType == int.class) {
+            return Integer.valueOf(0);
+        } else if (fieldType == long.class) {
+            return Long.valueOf(0L);
+        } else if (fieldType == short.class) {
+            return Short.valueOf((short) 0);
+        } else {
+            throw new IllegalStateException("Unexpected field primitive type " + fieldType.getName());
         }
     }
-}
\ No newline at end of file
+}
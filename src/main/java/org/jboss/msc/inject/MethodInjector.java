@@ -44,9 +44,15 @@ public final class MethodInjector<T> implements Injector<T> {
     private final Value<?> injectedValue;
     private final Value<?> targetValue;
     private final List<? extends Value<?>> parameterList;
+    private final boolean bound;
+    /**
+     * The resolved method, once a bound injector first needs it.
+     */
+    private volatile Method method;
 
     /**
-     * Construct a new instance.
+     * Construct a new instance.  If the method value always yields the same method, as immediate values and the
+     * {@code Lookup*MethodValue} classes do, the method is only read from it once.
      *
      * @param methodValue the value of the method to invoke
      * @param targetValue the value of the invocation target (the object being called upon) - use {@link Values#nullValue()} for static methods
@@ -54,6 +60,10 @@ public final class MethodInjector<T> implements Injector<T> {
      * @param parameterList the list of parameter values (any {@code null} parameters should use {@link Values#nullValue()})
      */
     public MethodInjector(final Value<Method> methodValue, final Value<?> targetValue, final Value<?> injectedValue, final List<? extends Value<?>> parameterList) {
+        this(methodValue, targetValue, injectedValue, parameterList, Values.isBindable(methodValue));
+    }
+
+    private MethodInjector(final Value<Method> methodValue, final Value<?> targetValue, final Value<?> injectedValue, final List<? extends Value<?>> parameterList, final boolean bound) {
         if (methodValue == null) {
             throw new IllegalArgumentException("methodValue is null");
         }
@@ -78,6 +88,34 @@ public final class MethodInjector<T> implements Injector<T> {
         this.targetValue = targetValue;
         this.injectedValue = injectedValue;
         this.parameterList = list;
+        this.bound = bound;
+    }
+
+    /**
+     * Construct a new instance which gets the method from the given value once, on first use, and invokes that same
+     * method from then on, whatever kind of value it is.  The target and parameter values are still evaluated on
+     * every call.
+     *
+     * @param methodValue the value of the method to invoke
+     * @param targetValue the value of the invocation target (the object being called upon) - use {@link Values#nullValue()} for static methods
+     * @param injectedValue the value to use for {@link Values#injectedValue()} on uninjection (usually {@link Values#nullValue()})
+     * @param parameterList the list of parameter values (any {@code null} parameters should use {@link Values#nullValue()})
+     * @param <T> the value type
+     * @return the injector
+     */
+    public static <T> MethodInjector<T> createBound(final Value<Method> methodValue, final Value<?> targetValue, final Value<?> injectedValue, final List<? extends Value<?>> parameterList) {
+        return new MethodInjector<T>(methodValue, targetValue, injectedValue, parameterList, true);
+    }
+
+    private Method getMethod() {
+        Method method = this.method;
+        if (method == null) {
+            method = methodValue.getValue();
+            if (bound) {
+                this.method = method;
+            }
+        }
+        return method;
     }
 
     /** {@inheritDoc} */
@@ -89,7 +127,7 @@ public final class MethodInjector<T> implements Injector<T> {
         try {
             final Value<?> oldThis = tlsThisValue.getAndSetValue(thisValue);
             try {
-                methodValue.getValue().invoke(thisValue.getValue(), Values.getValues(parameterList));
+                getMethod().invoke(thisValue.getValue(), Values.getValues(parameterList));
             } catch (InvocationTargetException e) {
                 try {
                     throw e.getCause();
@@ -116,7 +154,7 @@ public final class MethodInjector<T> implements Injector<T> {
         try {
             final Value<?> oldThis = thisValue.getAndSetValue(targetValue);
             try {
-                methodValue.getValue().invoke(targetValue.getValue(), Values.getValues(parameterList));
+                getMethod().invoke(targetValue.getValue(), Values.getValues(parameterList));
             } catch (Throwable t) {
                 InjectorLogger.INSTANCE.uninjectFailed(t, methodValue);
             } finally {
@@ -25,6 +25,7 @@ package org.jboss.msc.inject;
 import java.lang.reflect.Method;
 import org.jboss.msc.value.ImmediateValue;
 import org.jboss.msc.value.Value;
+import org.jboss.msc.value.Values;
 
 /**
  * An injector which calls a setter method.
@@ -39,16 +40,21 @@ public final class SetMethodInjector<T> implements Injector<T> {
 
     private final Value<?> target;
     private final Value<Method> methodValue;
+    private final boolean bound;
+    /**
+     * The resolved method, once a bound injector first needs it.
+     */
+    private volatile Method method;
 
     /**
-     * Construct a new instance.
+     * Construct a new instance.  If the method value always yields the same method, as immediate values and the
+     * {@code Lookup*MethodValue} classes do, the method is only read from it once.
      *
      * @param target the object upon which the method is to be called
      * @param methodValue the method to invoke
      */
     public SetMethodInjector(final Value<?> target, final Value<Method> methodValue) {
-        this.target = target;
-        this.methodValue = methodValue;
+        this(target, methodValue, Values.isBindable(methodValue));
     }
 
     /**
@@ -58,7 +64,13 @@ public final class SetMethodInjector<T> implements Injector<T> {
      * @param method the method to invoke
      */
     public SetMethodInjector(final Value<?> target, final Method method) {
-        this(target, new ImmediateValue<Method>(method));
+        this(target, new ImmediateValue<Method>(method), true);
+    }
+
+    private SetMethodInjector(final Value<?> target, final Value<Method> methodValue, final boolean bound) {
+        this.target = target;
+        this.methodValue = methodValue;
+        this.bound = bound;
     }
 
     /**
@@ -81,6 +93,19 @@ public final class SetMethodInjector<T> implements Injector<T> {
         return new SetMethodInjector<T>(target, method);
     }
 
+    /**
+     * Construct a new instance which gets the method from the given value once, on first use, and invokes that same
+     * method from then on, whatever kind of value it is.
+     *
+     * @param target the object upon which the method is to be called
+     * @param methodValue the method to invoke
+     * @param <T> the value type
+     * @return the injector
+     */
+    public static <T> Injector<T> createBound(final Value<?> target, final Value<Method> methodValue) {
+        return new SetMethodInjector<T>(target, methodValue, true);
+    }
+
     /**
      * Construct a new instance.
      *
@@ -118,10 +143,21 @@ public final class SetMethodInjector<T> implements Injector<T> {
         return method;
     }
 
+    private Method getMethod() {
+        Method method = this.method;
+        if (method == null) {
+            method = methodValue.getValue();
+            if (bound) {
+                this.method = method;
+            }
+        }
+        return method;
+    }
+
     /** {@inheritDoc} */
     public void inject(final T value) {
         try {
-            methodValue.getValue().invoke(target.getValue(), value);
+            getMethod().invoke(target.getValue(), value);
         } catch (Exception e) {
             throw new InjectionException("Failed to inject value into method", e);
         }
@@ -130,7 +166,7 @@ public final class SetMethodInjector<T> implements Injector<T> {
     /** {@inheritDoc} */
     public void uninject() {
         try {
-            methodValue.getValue().invoke(target.getValue(), NULL_PARAM);
+            getMethod().invoke(target.getValue(), NULL_PARAM);
         } catch (Exception e) {
             InjectorLogger.INSTANCE.uninjectFailed(e, methodValue);
         }
@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * The progress of one bulk removal of services.  Controllers of this package which take part in it run the completion
+ * task once they are all removed, without the per-service listener tasks of a {@link MultipleRemoveListener}.  Other
+ * controllers are tracked with a listener.
+ */
+final class BulkRemoval {
+    @SuppressWarnings({ "UnusedDeclaration" })
+    private volatile int count = 1;
+    @SuppressWarnings({ "UnusedDeclaration" })
+    private volatile int done;
+
+    private final Runnable completeTask;
+
+    private static final AtomicIntegerFieldUpdater<BulkRemoval> countUpdater = AtomicIntegerFieldUpdater.newUpdater(BulkRemoval.class, "count");
+    private static final AtomicIntegerFieldUpdater<BulkRemoval> doneUpdater = AtomicIntegerFieldUpdater.newUpdater(BulkRemoval.class, "done");
+
+    private BulkRemoval(final Runnable completeTask) {
+        this.completeTask = completeTask;
+    }
+
+    /**
+     * Remove the given controllers and run the task once they are all removed.
+     *
+     * @param completeTask the task to run when done, or {@code null} for none
+     * @param controllers the controllers to remove; {@code null} elements are ignored
+     * @return the number of controllers marked for removal by this call
+     */
+    static int removeAll(final Runnable completeTask, final Iterable<? extends ServiceController<?>> controllers) {
+        final BulkRemoval removal = new BulkRemoval(completeTask);
+        int marked = 0;
+        try {
+            for (ServiceController<?> controller : controllers) {
+                if (controller != null) {
+                    marked++;
+                    if (! (controller instanceof ServiceInstanceImpl) || ! ((ServiceInstanceImpl<?>) controller).bulkRemove(removal)) {
+                        controller.setMode(ServiceController.Mode.REMOVE);
+                        removal.add();
+                        controller.addListener(removal.new Listener());
+                    }
+                }
+            }
+        } finally {
+            removal.done();
+        }
+        return marked;
+    }
+
+    /**
+     * Count one more controller to wait for.
+     */
+    void add() {
+        countUpdater.getAndIncrement(this);
+    }
+
+    /**
+     * Count one controller as removed.
+     *
+     * @return {@code true} if that was the last one, in which case the caller must call {@link #complete()}
+     */
+    boolean removed() {
+        return countUpdater.decrementAndGet(this) == 0;
+    }
+
+    /**
+     * Run the completion task.
+     */
+    void complete() {
+        final Runnable completeTask = this.completeTask;
+        if (completeTask != null) try {
+            completeTask.run();
+        } catch (Throwable t) {
+            ServiceLogger.INSTANCE.removalCompleteTaskFailed(t, completeTask);
+        }
+    }
+
+    private void done() {
+        if (doneUpdater.getAndSet(this, 1) == 0 && removed()) {
+            complete();
+        }
+    }
+
+    private final class Listener extends AbstractServiceListener<Object> {
+
+        public void serviceRemoved(final ServiceController<?> controller) {
+            if (removed()) {
+                complete();
+            }
+        }
+    }
+}
@@ -137,6 +137,21 @@ public class DelegatingServiceContainer implements ServiceContainer {
         return delegateRegistry.getServiceNames();
     }
 
+    /** {@inheritDoc} */
+    public List<ServiceName> getServiceNames(final ServiceName name) {
+        return delegateRegistry.getServiceNames(name);
+    }
+
+    /** {@inheritDoc} */
+    public int getServiceCount(final ServiceName name) {
+        return delegateRegistry.getServiceCount(name);
+    }
+
+    /** {@inheritDoc} */
+    public int removeServices(final ServiceName name) {
+        return delegateRegistry.removeServices(name);
+    }
+
     /** {@inheritDoc} */
     public String getName() {
         throw new UnsupportedOperationException();
@@ -147,11 +162,31 @@ public class DelegatingServiceContainer implements ServiceContainer {
         throw new UnsupportedOperationException();
     }
 
+    /** {@inheritDoc} */
+    public int removeServices(final ServiceName name, final Runnable completeTask) {
+        throw new UnsupportedOperationException();
+    }
+
+    /** {@inheritDoc} */
+    public void removeServices(final Collection<? extends ServiceController<?>> controllers, final Runnable completeTask) {
+        throw new UnsupportedOperationException();
+    }
+
+    /** {@inheritDoc} */
+    public void setLifecycleExecutor(final Executor executor) {
+        throw new UnsupportedOperationException();
+    }
+
     /** {@inheritDoc} */
     public void shutdown() {
         throw new UnsupportedOperationException();
     }
 
+    /** {@inheritDoc} */
+    public void shutdown(final long timeout, final TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
     /** {@inheritDoc} */
     public boolean isShutdownComplete() {
         throw new UnsupportedOperationException();
@@ -55,4 +55,19 @@ public class DelegatingServiceRegistry implements ServiceRegistry {
     public List<ServiceName> getServiceNames() {
         return delegate.getServiceNames();
     }
+
+    /** {@inheritDoc} */
+    public List<ServiceName> getServiceNames(final ServiceName name) {
+        return delegate.getServiceNames(name);
+    }
+
+    /** {@inheritDoc} */
+    public int getServiceCount(final ServiceName name) {
+        return delegate.getServiceCount(name);
+    }
+
+    /** {@inheritDoc} */
+    public int removeServices(final ServiceName name) {
+        return delegate.removeServices(name);
+    }
 }
@@ -111,6 +111,15 @@ class OptionalDependency implements Dependency, Dependent {
         optionalDependency.addDependent(this);
     }
 
+    /**
+     * Get the real dependency.
+     *
+     * @return the real dependency
+     */
+    Dependency getOptionalDependency() {
+        return optionalDependency;
+    }
+
     @Override
     public void addDependent(Dependent dependent) {
         assert !lockHeld();
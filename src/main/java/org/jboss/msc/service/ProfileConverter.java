@@ -0,0 +1,230 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts a binary {@code jboss.msc.profile.output} file into tab-separated text (service name, event kind, start
+ * offset and duration in nanoseconds, one event per line) or into a Chrome trace-event JSON file which can be loaded
+ * into {@code chrome://tracing} or Perfetto.
+ * <p>
+ * Usage: {@code java org.jboss.msc.service.ProfileConverter [-chrome] <profile-file> [<output-file>]}
+ */
+public final class ProfileConverter {
+
+    private ProfileConverter() {
+    }
+
+    /**
+     * Run the converter.
+     *
+     * @param args the command-line arguments
+     * @throws IOException if reading or writing fails
+     */
+    public static void main(final String[] args) throws IOException {
+        int i = 0;
+        boolean chrome = false;
+        if (i < args.length && args[i].equals("-chrome")) {
+            chrome = true;
+            i++;
+        }
+        if (i == args.length || args.length - i > 2) {
+            System.err.println("Usage: java " + ProfileConverter.class.getName() + " [-chrome] <profile-file> [<output-file>]");
+            System.exit(1);
+            return;
+        }
+        final InputStream input = new FileInputStream(args[i]);
+        try {
+            final OutputStream output = i + 1 < args.length ? new FileOutputStream(args[i + 1]) : System.out;
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(output, "UTF-8"));
+            try {
+                convert(input, writer, chrome);
+            } finally {
+                if (output == System.out) writer.flush(); else writer.close();
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Convert a profile.
+     *
+     * @param input the binary profile
+     * @param writer the destination
+     * @param chrome {@code true} to write Chrome trace-event JSON, {@code false} to write tab-separated text
+     * @throws IOException if the profile is malformed or reading or writing fails
+     */
+    static void convert(final InputStream input, final Writer writer, final boolean chrome) throws IOException {
+        final DataInputStream data = new DataInputStream(new BufferedInputStream(input));
+        if (data.readInt() != ProfileWriter.MAGIC) {
+            throw new IOException("Not a profile file");
+        }
+        final int version = data.readUnsignedByte();
+        if (version != ProfileWriter.VERSION) {
+            throw new IOException("Unsupported profile version " + version);
+        }
+        final Map<Integer, String> names = new HashMap<Integer, String>();
+        boolean first = true;
+        if (chrome) {
+            writer.write("{\"traceEvents\":[");
+        }
+        for (;;) {
+            final int kind = data.read();
+            if (kind <= 0) {
+                // end of file, or the unwritten tail of a memory-mapped file
+                break;
+            }
+            try {
+                switch (kind) {
+                    case ProfileWriter.NAME: {
+                        final int id = data.readInt();
+                        names.put(Integer.valueOf(id), data.readUTF());
+                        break;
+                    }
+                    case ProfileWriter.THREAD: {
+                        final int id = data.readInt();
+                        final String threadName = data.readUTF();
+                        if (chrome) {
+                            writer.write(first ? "\n" : ",\n");
+                            first = false;
+                            writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":");
+                            writer.write(Integer.toString(id));
+                            writer.write(",\"args\":{\"name\":");
+                            writeJsonString(writer, threadName);
+                            writer.write("}}");
+                        }
+                        break;
+                    }
+                    case ProfileWriter.DROPPED: {
+                        final long count = data.readLong();
+                        if (! chrome) {
+                            writer.write("# " + count + " events dropped\n");
+                        }
+                        break;
+                    }
+                    case 'S':
+                    case 'F':
+                    case 'X':
+                    case 'L': {
+                        final int thread = data.readInt();
+                        final String name = names.get(Integer.valueOf(data.readInt()));
+                        if (name == null) {
+                            throw new IOException("Undefined service name in profile");
+                        }
+                        final long startOffset = data.readLong();
+                        final long duration = data.readLong();
+                        if (chrome) {
+                            writer.write(first ? "\n" : ",\n");
+                            first = false;
+                            writer.write("{\"name\":");
+                            writeJsonString(writer, name);
+                            writer.write(",\"cat\":\"");
+                            writer.write(category(kind));
+                            writer.write("\",\"ph\":\"X\",\"pid\":1,\"tid\":");
+                            writer.write(Integer.toString(thread));
+                            writer.write(",\"ts\":");
+                            writeMicros(writer, startOffset);
+                            writer.write(",\"dur\":");
+                            writeMicros(writer, duration);
+                            writer.write('}');
+                        } else {
+                            writer.write(name);
+                            writer.write('\t');
+                            writer.write((char) kind);
+                            writer.write('\t');
+                            writer.write(Long.toString(startOffset));
+                            writer.write('\t');
+                            writer.write(Long.toString(duration));
+                            writer.write('\n');
+                        }
+                        break;
+                    }
+                    default: {
+                        throw new IOException("Unknown profile record type " + kind);
+                    }
+                }
+            } catch (EOFException e) {
+                // the writer was cut off mid-record; keep what we have
+                break;
+            }
+        }
+        if (chrome) {
+            writer.write("\n]}\n");
+        }
+    }
+
+    private static String category(final int kind) {
+        switch (kind) {
+            case 'S': return "start";
+            case 'F': return "start-failed";
+            case 'X': return "stop";
+            default: return "listener";
+        }
+    }
+
+    private static void writeMicros(final Writer writer, long nanos) throws IOException {
+        if (nanos < 0L) {
+            writer.write('-');
+            nanos = -nanos;
+        }
+        writer.write(Long.toString(nanos / 1000L));
+        final long frac = nanos % 1000L;
+        if (frac != 0L) {
+            writer.write('.');
+            writer.write(Character.forDigit((int) (frac / 100L), 10));
+            writer.write(Character.forDigit((int) (frac / 10L % 10L), 10));
+            writer.write(Character.forDigit((int) (frac % 10L), 10));
+        }
+    }
+
+    private static void writeJsonString(final Writer writer, final String string) throws IOException {
+        writer.write('"');
+        final int length = string.length();
+        for (int i = 0; i < length; i++) {
+            final char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", Integer.valueOf(c)));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+}
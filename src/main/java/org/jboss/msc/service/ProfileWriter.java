@@ -0,0 +1,353 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The writer of the {@code jboss.msc.profile.output} file, shared by all containers.  A recording thread borrows a
+ * ring buffer from a pool for the duration of one record, and appends the fixed-size record to it without locking or
+ * formatting; a background thread drains all the buffers and encodes them into a compact binary file.  The number of
+ * buffers therefore follows the number of threads recording at the same moment rather than the number of threads
+ * which ever recorded, which matters when each start runs on a thread of its own.  If no buffer is free or a buffer is
+ * full, the record is dropped and counted rather than stalling the service thread.  Records are not necessarily
+ * written in the order they were made, even for one thread.  A memory-mapped file is padded with zero bytes until it is {@link #close() closed}; readers
+ * treat a zero record type as the end of the data.  Use {@link ProfileConverter} to turn the file into text or into a Chrome trace.
+ * <p>
+ * The file starts with the {@link #MAGIC} number and the {@link #VERSION} byte, followed by records of these forms:
+ * <ul>
+ * <li>{@code 'N'}, name id (int), service name (modified UTF-8) - defines a service name</li>
+ * <li>{@code 'T'}, thread id (int), thread name (modified UTF-8) - defines a thread</li>
+ * <li>{@code 'S'}, {@code 'F'}, {@code 'X'} or {@code 'L'}, thread id (int), name id (int), start offset from the
+ * profile start (long nanoseconds), duration (long nanoseconds) - a successful start, a failed start, a stop, or a
+ * listener call</li>
+ * <li>{@code 'D'}, count (long) - the number of records dropped because a buffer was full</li>
+ * </ul>
+ */
+final class ProfileWriter implements Runnable {
+
+    static final int MAGIC = 0x4D534350;
+    static final int VERSION = 1;
+
+    static final byte NAME = 'N';
+    static final byte THREAD = 'T';
+    static final byte DROPPED = 'D';
+
+    private static final int CAPACITY = 1 << 12;
+    private static final int MASK = CAPACITY - 1;
+    private static final int MAX_BUFFERS = 64;
+    private static final long DRAIN_INTERVAL = 10000000L;
+
+    private final DataOutputStream output;
+    private final long start;
+    private final Thread thread;
+    private final CopyOnWriteArrayList<Buffer> buffers = new CopyOnWriteArrayList<Buffer>();
+    private final ConcurrentLinkedQueue<Buffer> freeBuffers = new ConcurrentLinkedQueue<Buffer>();
+    private final AtomicInteger bufferCount = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    // guarded by this
+    private final Map<ServiceName, Integer> nameIds = new HashMap<ServiceName, Integer>();
+    // guarded by this; weak, since a thread may record once and end
+    private final Map<Thread, Integer> threadIds = new WeakHashMap<Thread, Integer>();
+    // guarded by this
+    private int threadSerial;
+    // guarded by this
+    private IOException failure;
+    private boolean shutDown;
+
+    private volatile boolean closed;
+
+    ProfileWriter(final OutputStream output, final long start) throws IOException {
+        this.output = new DataOutputStream(output);
+        this.start = start;
+        this.output.writeInt(MAGIC);
+        this.output.writeByte(VERSION);
+        thread = new Thread(this, "MSC profile writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Open a profile writer on a file.
+     *
+     * @param fileName the file name
+     * @param mapped {@code true} to write through a memory-mapped file, {@code false} for plain buffered output
+     * @param start the profile start time, in nanoseconds
+     * @return the writer
+     * @throws IOException if the file cannot be opened
+     */
+    static ProfileWriter open(final String fileName, final boolean mapped, final long start) throws IOException {
+        return new ProfileWriter(mapped ? new MappedOutputStream(fileName) : new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16), start);
+    }
+
+    /**
+     * Record one event.  Never blocks.
+     *
+     * @param kind the event kind ({@code 'S'}, {@code 'F'}, {@code 'X'} or {@code 'L'})
+     * @param name the service name
+     * @param startNanos the event start time
+     * @param endNanos the event end time
+     */
+    void record(final char kind, final ServiceName name, final long startNanos, final long endNanos) {
+        if (closed) {
+            return;
+        }
+        Buffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            if (bufferCount.getAndIncrement() >= MAX_BUFFERS) {
+                bufferCount.decrementAndGet();
+                dropped.incrementAndGet();
+                return;
+            }
+            buffer = new Buffer();
+            buffers.add(buffer);
+        }
+        try {
+            final long tail = buffer.tail;
+            final long size = tail - buffer.head;
+            if (size >= CAPACITY) {
+                dropped.incrementAndGet();
+                LockSupport.unpark(thread);
+                return;
+            }
+            final int idx = (int) tail & MASK;
+            buffer.kinds[idx] = (byte) kind;
+            buffer.threads[idx] = Thread.currentThread();
+            buffer.names[idx] = name;
+            buffer.starts[idx] = startNanos;
+            buffer.ends[idx] = endNanos;
+            tailUpdater.lazySet(buffer, tail + 1);
+            if (size == CAPACITY >> 1) {
+                LockSupport.unpark(thread);
+            }
+        } finally {
+            freeBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * Write out everything recorded so far and close the file.  Later records are discarded.
+     *
+     * @throws IOException if writing or closing the file failed
+     */
+    void close() throws IOException {
+        try {
+            synchronized (this) {
+                if (shutDown) {
+                    return;
+                }
+                shutDown = true;
+                closed = true;
+                try {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    drain();
+                    final long dropped = this.dropped.get();
+                    if (dropped > 0L) {
+                        output.writeByte(DROPPED);
+                        output.writeLong(dropped);
+                    }
+                } finally {
+                    output.close();
+                }
+            }
+        } finally {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Write out everything recorded so far.
+     *
+     * @throws IOException if writing the file failed
+     */
+    void flush() throws IOException {
+        synchronized (this) {
+            if (failure != null) {
+                throw failure;
+            }
+            if (shutDown) {
+                return;
+            }
+            try {
+                drain();
+                output.flush();
+            } catch (IOException e) {
+                failure = e;
+                closed = true;
+                throw e;
+            }
+        }
+    }
+
+    public void run() {
+        while (! closed) {
+            try {
+                flush();
+            } catch (IOException e) {
+                return;
+            }
+            LockSupport.parkNanos(this, DRAIN_INTERVAL);
+        }
+    }
+
+    private void drain() throws IOException {
+        assert Thread.holdsLock(this);
+        final DataOutputStream output = this.output;
+        for (Buffer buffer : buffers) {
+            long head = buffer.head;
+            final long tail = buffer.tail;
+            while (head < tail) {
+                final int idx = (int) head & MASK;
+                final Thread thread = buffer.threads[idx];
+                buffer.threads[idx] = null;
+                Integer threadId = threadIds.get(thread);
+                if (threadId == null) {
+                    threadId = Integer.valueOf(threadSerial++);
+                    threadIds.put(thread, threadId);
+                    output.writeByte(THREAD);
+                    output.writeInt(threadId.intValue());
+                    output.writeUTF(thread.getName());
+                }
+                final ServiceName name = buffer.names[idx];
+                buffer.names[idx] = null;
+                Integer nameId = nameIds.get(name);
+                if (nameId == null) {
+                    nameId = Integer.valueOf(nameIds.size());
+                    nameIds.put(name, nameId);
+                    output.writeByte(NAME);
+                    output.writeInt(nameId.intValue());
+                    output.writeUTF(name.getCanonicalName());
+                }
+                final long startNanos = buffer.starts[idx];
+                output.writeByte(buffer.kinds[idx]);
+                output.writeInt(threadId.intValue());
+                output.writeInt(nameId.intValue());
+                output.writeLong(startNanos - start);
+                output.writeLong(buffer.ends[idx] - startNanos);
+                head++;
+            }
+            headUpdater.lazySet(buffer, head);
+        }
+    }
+
+    private static final AtomicLongFieldUpdater<Buffer> headUpdater = AtomicLongFieldUpdater.newUpdater(Buffer.class, "head");
+    private static final AtomicLongFieldUpdater<Buffer> tailUpdater = AtomicLongFieldUpdater.newUpdater(Buffer.class, "tail");
+
+    /**
+     * A single-producer, single-consumer ring of records.  Only the thread which borrowed it from the pool moves the
+     * tail and only a thread holding the writer's lock moves the head.
+     */
+    private static final class Buffer {
+        final byte[] kinds = new byte[CAPACITY];
+        final Thread[] threads = new Thread[CAPACITY];
+        final ServiceName[] names = new ServiceName[CAPACITY];
+        final long[] starts = new long[CAPACITY];
+        final long[] ends = new long[CAPACITY];
+        volatile long head;
+        volatile long tail;
+    }
+
+    /**
+     * An output stream which writes through successive memory-mapped regions of a file, and trims the file to the
+     * written length on close.
+     */
+    static final class MappedOutputStream extends OutputStream {
+        private static final int REGION_SIZE = 1 << 22;
+
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private MappedByteBuffer region;
+        private long regionStart;
+
+        MappedOutputStream(final String fileName) throws IOException {
+            file = new RandomAccessFile(fileName, "rw");
+            boolean ok = false;
+            try {
+                file.setLength(0L);
+                channel = file.getChannel();
+                region = channel.map(FileChannel.MapMode.READ_WRITE, 0L, REGION_SIZE);
+                ok = true;
+            } finally {
+                if (! ok) file.close();
+            }
+        }
+
+        private MappedByteBuffer region() throws IOException {
+            final MappedByteBuffer region = this.region;
+            if (region == null) {
+                throw new IOException("Stream closed");
+            }
+            if (region.hasRemaining()) {
+                return region;
+            }
+            regionStart += REGION_SIZE;
+            return this.region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+        }
+
+        public void write(final int b) throws IOException {
+            region().put((byte) b);
+        }
+
+        public void write(final byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                final MappedByteBuffer region = region();
+                final int cnt = Math.min(len, region.remaining());
+                region.put(b, off, cnt);
+                off += cnt;
+                len -= cnt;
+            }
+        }
+
+        public void close() throws IOException {
+            final MappedByteBuffer region = this.region;
+            if (region == null) {
+                return;
+            }
+            this.region = null;
+            try {
+                region.force();
+                channel.truncate(regionStart + region.position());
+            } finally {
+                file.close();
+            }
+        }
+    }
+}
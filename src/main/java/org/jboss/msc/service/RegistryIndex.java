@@ -0,0 +1,114 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A prefix index over the registrations of a container.  There is one node for every registered name and every
+ * ancestor of one, and each node knows its children, so the registrations under a given name can be found in time
+ * proportional to the size of that subtree rather than of the whole registry.  Like the registry itself, the index
+ * only ever grows.
+ */
+final class RegistryIndex {
+
+    private final UnlockedReadHashMap<ServiceName, Node> nodes = new UnlockedReadHashMap<ServiceName, Node>(512);
+
+    /**
+     * Add a registration to the index.  This may be called while holding a registry lock, but takes no registry
+     * locks itself.
+     *
+     * @param registration the registration
+     */
+    void add(final ServiceRegistrationImpl registration) {
+        nodeFor(registration.getName()).registration = registration;
+    }
+
+    private Node nodeFor(final ServiceName name) {
+        final Node node = nodes.get(name);
+        if (node != null) {
+            return node;
+        }
+        final ServiceName parentName = name.getParent();
+        // resolve the parent before taking the segment lock for this name, so locks are only ever held one at a time
+        final Node parent = parentName == null ? null : nodeFor(parentName);
+        return nodes.getOrCreate(name, new UnlockedReadHashMap.Factory<ServiceName, Node>() {
+            public Node create(final ServiceName key) {
+                final Node node = new Node();
+                if (parent != null) {
+                    parent.addChild(node);
+                }
+                return node;
+            }
+        });
+    }
+
+    /**
+     * Add every registration whose name is equal to or a child of the given name to the target collection.
+     *
+     * @param name the subtree root name
+     * @param target the target collection
+     */
+    void collect(final ServiceName name, final Collection<? super ServiceRegistrationImpl> target) {
+        final Node root = nodes.get(name);
+        if (root == null) {
+            return;
+        }
+        final ArrayDeque<Node> pending = new ArrayDeque<Node>();
+        Node node = root;
+        do {
+            final ServiceRegistrationImpl registration = node.registration;
+            if (registration != null) {
+                target.add(registration);
+            }
+            final int count = node.childCount;
+            final Node[] children = node.children;
+            for (int i = 0; i < count; i++) {
+                pending.add(children[i]);
+            }
+        } while ((node = pending.poll()) != null);
+    }
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        volatile ServiceRegistrationImpl registration;
+
+        // Volatile fields (writes protected by this); the array is published before the count which covers it
+        private volatile Node[] children = NO_CHILDREN;
+        private volatile int childCount;
+
+        synchronized void addChild(final Node child) {
+            final int count = childCount;
+            Node[] children = this.children;
+            if (count == children.length) {
+                children = Arrays.copyOf(children, count == 0 ? 4 : count << 1);
+            }
+            children[count] = child;
+            this.children = children;
+            childCount = count + 1;
+        }
+    }
+}
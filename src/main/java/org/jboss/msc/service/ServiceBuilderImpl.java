@@ -23,11 +23,11 @@
 package org.jboss.msc.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.jboss.msc.inject.Injector;
@@ -49,37 +49,39 @@ class ServiceBuilderImpl<T> implements ServiceBuilder<T> {
     private Location location;
     private ServiceController.Mode initialMode;
     private final Set<ServiceName> aliases = new HashSet<ServiceName>(0);
-    private final Map<ServiceName, Dependency> dependencies = new HashMap<ServiceName, Dependency>(0);
     private final Set<ServiceListener<? super T>> listeners = new IdentityHashSet<ServiceListener<? super T>>(0);
     private final List<ValueInjection<?>> valueInjections = new ArrayList<ValueInjection<?>>(0);
     private boolean installed = false;
 
-    static final class Dependency {
-        private final ServiceName name;
-        private DependencyType dependencyType;
-        private List<Injector<Object>> injectorList = new ArrayList<Injector<Object>>(0);
-
-        Dependency(final ServiceName name, final DependencyType dependencyType) {
-            this.name = name;
-            this.dependencyType = dependencyType;
-        }
-
-        ServiceName getName() {
-            return name;
-        }
-
-        List<Injector<Object>> getInjectorList() {
-            return injectorList;
-        }
-
-        DependencyType getDependencyType() {
-            return dependencyType;
-        }
-
-        void setDependencyType(final DependencyType dependencyType) {
-            this.dependencyType = dependencyType;
-        }
-    }
+    // Dependencies are numbered in the order they are first added, and stored by number in primitive-friendly
+    // form, so a plain dependency costs a single array slot rather than a map entry and a holder object.
+
+    /**
+     * The dependency names, by dependency number.
+     */
+    private ServiceName[] dependencyNames = NO_NAMES;
+    /**
+     * The number of dependencies.
+     */
+    private int dependencyCount;
+    /**
+     * The numbers of the optional dependencies, or {@code null} if there are none.
+     */
+    private BitSet optionalDependencies;
+    /**
+     * Open-addressed hash index from dependency name to dependency number plus one, or {@code null} while there are
+     * few enough dependencies to search linearly.
+     */
+    private int[] dependencyIndex;
+    /**
+     * The dependency injectors, each paired with the dependency number at the same position of
+     * {@link #injectorDependencies}.
+     */
+    private List<Injector<Object>> dependencyInjectors;
+    private int[] injectorDependencies;
+
+    private static final ServiceName[] NO_NAMES = new ServiceName[0];
+    private static final int LINEAR_SEARCH_MAX = 8;
 
     ServiceBuilderImpl(AbstractServiceTarget serviceTarget, final Value<? extends Service<T>> serviceValue, final ServiceName serviceName) {
         if(serviceTarget == null) throw new IllegalArgumentException("ServiceTarget can not be null");
@@ -209,7 +211,7 @@ class ServiceBuilderImpl<T> implements ServiceBuilder<T> {
     @Override
     public ServiceBuilder<T> addDependency(DependencyType dependencyType, final ServiceName dependency, final Injector<Object> target) {
         checkAlreadyInstalled();
-        doAddDependency(dependency, dependencyType).getInjectorList().add(target);
+        addDependencyInjector(doAddDependency(dependency, dependencyType), target);
         return this;
     }
 
@@ -227,19 +229,93 @@ class ServiceBuilderImpl<T> implements ServiceBuilder<T> {
     @Override
     public <I> ServiceBuilder<T> addDependency(final DependencyType dependencyType, final ServiceName dependency, final Class<I> type, final Injector<I> target) {
         checkAlreadyInstalled();
-        doAddDependency(dependency, dependencyType).getInjectorList().add(Injectors.cast(target, type));
+        addDependencyInjector(doAddDependency(dependency, dependencyType), Injectors.cast(target, type));
         return this;
     }
 
-    private Dependency doAddDependency(final ServiceName name, final DependencyType type) {
-        final Dependency existing = dependencies.get(name);
-        if (existing != null) {
-            if (type == DependencyType.REQUIRED) existing.setDependencyType(DependencyType.REQUIRED);
+    private int doAddDependency(final ServiceName name, final DependencyType type) {
+        final BitSet optionalDependencies = this.optionalDependencies;
+        final int existing = findDependency(name);
+        if (existing != -1) {
+            if (type == DependencyType.REQUIRED && optionalDependencies != null) optionalDependencies.clear(existing);
             return existing;
         }
-        final Dependency newDep = new Dependency(name, type);
-        dependencies.put(name, newDep);
-        return newDep;
+        final int id = dependencyCount;
+        ServiceName[] dependencyNames = this.dependencyNames;
+        if (id == dependencyNames.length) {
+            this.dependencyNames = dependencyNames = Arrays.copyOf(dependencyNames, id == 0 ? 4 : id << 1);
+        }
+        dependencyNames[id] = name;
+        dependencyCount = id + 1;
+        if (type == DependencyType.OPTIONAL) {
+            if (optionalDependencies == null) {
+                this.optionalDependencies = new BitSet();
+            }
+            this.optionalDependencies.set(id);
+        }
+        if (dependencyIndex != null) {
+            if (dependencyCount << 1 > dependencyIndex.length) {
+                buildDependencyIndex();
+            } else {
+                indexDependency(dependencyIndex, id);
+            }
+        } else if (dependencyCount > LINEAR_SEARCH_MAX) {
+            buildDependencyIndex();
+        }
+        return id;
+    }
+
+    private int findDependency(final ServiceName name) {
+        final ServiceName[] dependencyNames = this.dependencyNames;
+        final int[] dependencyIndex = this.dependencyIndex;
+        if (dependencyIndex == null) {
+            for (int i = 0; i < dependencyCount; i++) {
+                if (dependencyNames[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        final int mask = dependencyIndex.length - 1;
+        for (int slot = name.hashCode() & mask;; slot = (slot + 1) & mask) {
+            final int entry = dependencyIndex[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (dependencyNames[entry - 1].equals(name)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private void buildDependencyIndex() {
+        final int[] dependencyIndex = new int[Integer.highestOneBit(dependencyCount) << 2];
+        for (int i = 0; i < dependencyCount; i++) {
+            indexDependency(dependencyIndex, i);
+        }
+        this.dependencyIndex = dependencyIndex;
+    }
+
+    private void indexDependency(final int[] dependencyIndex, final int id) {
+        final int mask = dependencyIndex.length - 1;
+        int slot = dependencyNames[id].hashCode() & mask;
+        while (dependencyIndex[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        dependencyIndex[slot] = id + 1;
+    }
+
+    private void addDependencyInjector(final int id, final Injector<Object> injector) {
+        if (dependencyInjectors == null) {
+            dependencyInjectors = new ArrayList<Injector<Object>>(1);
+            injectorDependencies = new int[1];
+        }
+        final int idx = dependencyInjectors.size();
+        if (idx == injectorDependencies.length) {
+            injectorDependencies = Arrays.copyOf(injectorDependencies, idx << 1);
+        }
+        injectorDependencies[idx] = id;
+        dependencyInjectors.add(injector);
     }
 
     @Override
@@ -310,8 +386,28 @@ class ServiceBuilderImpl<T> implements ServiceBuilder<T> {
         return aliases.toArray(new ServiceName[aliases.size()]);
     }
 
-    Map<ServiceName, Dependency> getDependencies() {
-        return dependencies;
+    int getDependencyCount() {
+        return dependencyCount;
+    }
+
+    ServiceName getDependencyName(final int id) {
+        return dependencyNames[id];
+    }
+
+    boolean isOptionalDependency(final int id) {
+        return optionalDependencies != null && optionalDependencies.get(id);
+    }
+
+    int getDependencyInjectorCount() {
+        return dependencyInjectors == null ? 0 : dependencyInjectors.size();
+    }
+
+    Injector<Object> getDependencyInjector(final int idx) {
+        return dependencyInjectors.get(idx);
+    }
+
+    int getInjectedDependency(final int idx) {
+        return injectorDependencies[idx];
     }
 
     Set<? extends ServiceListener<? super T>> getListeners() {
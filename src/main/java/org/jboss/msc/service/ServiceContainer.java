@@ -23,6 +23,7 @@
 package org.jboss.msc.service;
 
 import java.io.PrintStream;
+import java.util.Collection;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
@@ -37,7 +38,8 @@ import org.jboss.msc.inject.Injector;
 public interface ServiceContainer extends ServiceTarget, ServiceRegistry {
 
     /**
-     * Set the container executor.  If {@code null} is specified, a default single-thread executor is used.
+     * Set the container executor.  If {@code null} is specified, the container's built-in executor is used; it runs
+     * as many lifecycle tasks in parallel as its configured number of threads (see {@link Factory}).
      * <p>
      * You <b>must</b> adhere to the following rules when setting an executor:
      * <ul>
@@ -50,11 +52,62 @@ public interface ServiceContainer extends ServiceTarget, ServiceRegistry {
      */
     void setExecutor(Executor executor);
 
+    /**
+     * Set the executor which runs the {@link Service#start(StartContext) start} and {@link Service#stop(StopContext) stop}
+     * methods of services.  If {@code null} is specified, they run on the container executor along with all other
+     * lifecycle tasks.  A separate executor keeps services which block in these methods, for instance on I/O, from
+     * holding up the rest of the container; {@link ServiceUtils#virtualThreadExecutor()} runs each of them on a
+     * virtual thread, where the JVM supports those.  The rules for {@link #setExecutor(Executor)} apply to this
+     * executor as well.
+     * <p>
+     * If the {@code jboss.msc.lifecycle.virtual.threads} system property is {@code true}, containers start out with
+     * the virtual thread executor, where it is available.
+     *
+     * @param executor the executor to use
+     */
+    void setLifecycleExecutor(Executor executor);
+
+    /**
+     * Remove every service whose name is equal to or a child of the given name, and run a task once they are all
+     * removed.  As with {@link #removeServices(ServiceName)}, services which only have an alias under the given name
+     * are not affected.  See {@link #removeServices(Collection, Runnable)}.
+     *
+     * @param name the parent service name
+     * @param completeTask the task to run once all the services are removed, or {@code null} for none
+     * @return the number of services marked for removal
+     */
+    int removeServices(ServiceName name, Runnable completeTask);
+
+    /**
+     * Remove the given services, and run a task once they are all removed.  Every service is marked for removal
+     * before this method returns; as with {@link ServiceController.Mode#REMOVE REMOVE}, a service is only stopped
+     * once its dependents are, so the services are torn down dependents first, as far in parallel as the executor
+     * allows.  Unlike a {@link MultipleRemoveListener}, this adds no listener to the services of this container, so
+     * there are no listener tasks to run.  The task is run by the thread which completes the removal, which may be the
+     * caller if the services were already removed.
+     *
+     * @param controllers the controllers of the services to remove; {@code null} elements are ignored
+     * @param completeTask the task to run once all the services are removed, or {@code null} for none
+     */
+    void removeServices(Collection<? extends ServiceController<?>> controllers, Runnable completeTask);
+
     /**
      * Stop all services within this container.
      */
     void shutdown();
 
+    /**
+     * Stop all services within this container, giving up on those which are not removed within the given time.
+     * Services are removed as by {@link #shutdown()}, dependents first and as far in parallel as the executor allows.
+     * Once the time is up, asynchronous stops still in progress are completed on behalf of their services, and the
+     * shutdown completes without waiting for the remaining services; see {@link TerminateListener.Info}.  If the
+     * container is already shutting down, this method does nothing.
+     *
+     * @param timeout the maximum time to wait for services to be removed, or {@code 0} to wait as long as needed
+     * @param unit the time unit of the {@code timeout} argument
+     */
+    void shutdown(long timeout, TimeUnit unit);
+
     /**
      * Determine whether the container is completely shut down.
      *
@@ -108,10 +161,14 @@ public interface ServiceContainer extends ServiceTarget, ServiceRegistry {
     String getName();
 
     /**
-     * The factory class for service containers.
+     * The factory class for service containers.  Unless otherwise specified, the built-in executor of a container has
+     * one thread per available processor; this default can be changed with the {@code jboss.msc.container.threads}
+     * system property.
      */
     class Factory {
 
+        private static final long DEFAULT_KEEP_ALIVE = 30L;
+
         private Factory() {
         }
 
@@ -121,7 +178,7 @@ public interface ServiceContainer extends ServiceTarget, ServiceRegistry {
          * @return a new service container instance
          */
         public static ServiceContainer create() {
-            return new ServiceContainerImpl(null);
+            return new ServiceContainerImpl(null, ServiceContainerImpl.DEFAULT_CORE_SIZE, DEFAULT_KEEP_ALIVE, TimeUnit.SECONDS);
         }
 
         /**
@@ -131,7 +188,32 @@ public interface ServiceContainer extends ServiceTarget, ServiceRegistry {
          * @return a new service container instance
          */
         public static ServiceContainer create(String name) {
-            return new ServiceContainerImpl(name);
+            return new ServiceContainerImpl(name, ServiceContainerImpl.DEFAULT_CORE_SIZE, DEFAULT_KEEP_ALIVE, TimeUnit.SECONDS);
+        }
+
+        /**
+         * Create a new instance with a generated name and the given built-in executor configuration.
+         *
+         * @param coreSize the number of threads of the built-in executor
+         * @param keepAliveTime the time an idle thread is kept alive
+         * @param keepAliveTimeUnit the unit of {@code keepAliveTime}
+         * @return a new service container instance
+         */
+        public static ServiceContainer create(int coreSize, long keepAliveTime, TimeUnit keepAliveTimeUnit) {
+            return new ServiceContainerImpl(null, coreSize, keepAliveTime, keepAliveTimeUnit);
+        }
+
+        /**
+         * Create a new instance with a given name and the given built-in executor configuration.
+         *
+         * @param name the name of the new container
+         * @param coreSize the number of threads of the built-in executor
+         * @param keepAliveTime the time an idle thread is kept alive
+         * @param keepAliveTimeUnit the unit of {@code keepAliveTime}
+         * @return a new service container instance
+         */
+        public static ServiceContainer create(String name, int coreSize, long keepAliveTime, TimeUnit keepAliveTimeUnit) {
+            return new ServiceContainerImpl(name, coreSize, keepAliveTime, keepAliveTimeUnit);
         }
     }
 
@@ -176,15 +258,23 @@ public interface ServiceContainer extends ServiceTarget, ServiceRegistry {
         void handleTermination(Info info);
 
         /**
-         * Container shutdown information.
+         * Container shutdown information.  Shutdown removes services in waves: wave {@code 0} holds the services
+         * which no other service depends on, and each further wave the services whose dependents are all in earlier
+         * waves.  A service is removed as soon as its own dependents are, so waves may overlap.
          */
         final class Info {
             private final long shutdownInitiated;
             private final long shutdownCompleted;
+            private final int[] waveSizes;
+            private final long[] waveCompletions;
+            private final int abandonedServices;
 
-            Info(final long shutdownInitiated, final long shutdownCompleted) {
+            Info(final long shutdownInitiated, final long shutdownCompleted, final int[] waveSizes, final long[] waveCompletions, final int abandonedServices) {
                 this.shutdownInitiated = shutdownInitiated;
                 this.shutdownCompleted = shutdownCompleted;
+                this.waveSizes = waveSizes;
+                this.waveCompletions = waveCompletions;
+                this.abandonedServices = abandonedServices;
             }
 
             /**
@@ -204,6 +294,46 @@ public interface ServiceContainer extends ServiceTarget, ServiceRegistry {
             public long getShutdownCompleted() {
                 return shutdownCompleted;
             }
+
+            /**
+             * Returns the number of waves in which services were removed.
+             *
+             * @return the number of waves
+             */
+            public int getWaveCount() {
+                return waveSizes.length;
+            }
+
+            /**
+             * Returns the number of services in a wave.
+             *
+             * @param wave the wave index
+             * @return the number of services
+             */
+            public int getWaveSize(int wave) {
+                return waveSizes[wave];
+            }
+
+            /**
+             * Returns the time the last service of a wave was removed, in nanoseconds, or {@code -1} if the shutdown
+             * gave up before that.
+             *
+             * @param wave the wave index
+             * @return the wave completed time
+             */
+            public long getWaveCompleted(int wave) {
+                return waveCompletions[wave];
+            }
+
+            /**
+             * Returns the number of services which were not yet removed when the shutdown gave up on them, or
+             * {@code 0} if the shutdown completed normally.
+             *
+             * @return the number of abandoned services
+             */
+            public int getAbandonedServices() {
+                return abandonedServices;
+            }
         }
     }
 }
@@ -23,17 +23,15 @@
 package org.jboss.msc.service;
 
 import java.io.ByteArrayOutputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
-import java.io.Writer;
 import java.lang.management.ManagementFactory;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -47,6 +45,7 @@ import java.util.TreeSet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -54,13 +53,15 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.modules.management.ObjectProperties;
 import org.jboss.msc.Version;
-import org.jboss.msc.inject.Injector;
 import org.jboss.modules.ref.Reaper;
 import org.jboss.modules.ref.Reference;
 import org.jboss.modules.ref.WeakReference;
+import org.jboss.msc.inject.Injector;
 import org.jboss.msc.service.ServiceController.Mode;
 import org.jboss.msc.service.management.ServiceContainerMXBean;
 import org.jboss.msc.service.management.ServiceStatus;
+import org.jboss.msc.service.management.ServiceTimings;
+import org.jboss.msc.service.management.TimingSummary;
 
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
@@ -77,28 +78,166 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
 
     static final String PROFILE_OUTPUT;
 
+    /**
+     * Whether the profile output file is written through a memory mapping; see {@link ProfileWriter}.
+     */
+    static final boolean PROFILE_MAPPED;
+
+    /**
+     * The maximum number of internal controller tasks a thread queues for running itself, rather than submitting them
+     * to the executor; {@code 0} disables inline execution.
+     */
+    static final int INLINE_TASK_LIMIT;
+
+    /**
+     * Whether service start tasks are ordered by their critical path priority; see {@link StartScheduler}.  On unless
+     * {@code jboss.msc.start.priorities} is {@code false}.
+     */
+    static final boolean START_PRIORITIES;
+
+    /**
+     * The smallest batch whose controllers are prepared by several threads at once; {@code 0} disables parallel
+     * preparation.
+     */
+    static final int PARALLEL_INSTALL_THRESHOLD;
+
+    /**
+     * The time, in milliseconds, that the shutdown hook lets each container take to remove its services; {@code 0}
+     * waits as long as needed.
+     */
+    static final long SHUTDOWN_TIMEOUT;
+
+    /**
+     * Whether containers run service start and stop methods on virtual threads by default.
+     */
+    static final boolean LIFECYCLE_VIRTUAL_THREADS;
+
+    /**
+     * The number of builders prepared by one thread at a time during a parallel install.
+     */
+    private static final int INSTALL_CHUNK_SIZE = 256;
+
+    /**
+     * Whether containers start out recording service lifecycle timings for the management interface.  Off unless
+     * enabled, since every start, stop, dependency wait and listener call is then timed and counted; recording can
+     * also be switched on and off at run time through {@link ServiceContainerMXBean#setTimingMetricsEnabled(boolean)}.
+     */
+    static final boolean TIMING_METRICS;
+
+    /**
+     * The default number of threads for a container's built-in executor.
+     */
+    static final int DEFAULT_CORE_SIZE;
+
     static {
         PROFILE_OUTPUT = AccessController.doPrivileged(new PrivilegedAction<String>() {
             public String run() {
                 return System.getProperty("jboss.msc.profile.output");
             }
         });
+        PROFILE_MAPPED = AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
+            public Boolean run() {
+                return Boolean.valueOf(Boolean.getBoolean("jboss.msc.profile.mapped"));
+            }
+        }).booleanValue();
+        INLINE_TASK_LIMIT = AccessController.doPrivileged(new PrivilegedAction<Integer>() {
+            public Integer run() {
+                final String value = System.getProperty("jboss.msc.inline.task.limit");
+                if (value != null) try {
+                    return Integer.valueOf(Math.max(0, Integer.parseInt(value.trim())));
+                } catch (NumberFormatException ignored) {
+                }
+                return Integer.valueOf(256);
+            }
+        }).intValue();
+        START_PRIORITIES = AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
+            public Boolean run() {
+                return Boolean.valueOf(! "false".equalsIgnoreCase(System.getProperty("jboss.msc.start.priorities")));
+            }
+        }).booleanValue();
+        PARALLEL_INSTALL_THRESHOLD = AccessController.doPrivileged(new PrivilegedAction<Integer>() {
+            public Integer run() {
+                final String value = System.getProperty("jboss.msc.parallel.install.threshold");
+                if (value != null) try {
+                    return Integer.valueOf(Math.max(0, Integer.parseInt(value.trim())));
+                } catch (NumberFormatException ignored) {
+                }
+                return Integer.valueOf(2048);
+            }
+        }).intValue();
+        SHUTDOWN_TIMEOUT = AccessController.doPrivileged(new PrivilegedAction<Long>() {
+            public Long run() {
+                final String value = System.getProperty("jboss.msc.shutdown.timeout");
+                if (value != null) try {
+                    return Long.valueOf(Math.max(0L, Long.parseLong(value.trim())));
+                } catch (NumberFormatException ignored) {
+                }
+                return Long.valueOf(0L);
+            }
+        }).longValue();
+        LIFECYCLE_VIRTUAL_THREADS = AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
+            public Boolean run() {
+                return Boolean.valueOf(Boolean.getBoolean("jboss.msc.lifecycle.virtual.threads"));
+            }
+        }).booleanValue();
+        if (LIFECYCLE_VIRTUAL_THREADS && VirtualThreadExecutor.INSTANCE == null) {
+            ServiceLogger.INSTANCE.virtualThreadsUnavailable();
+        }
+        TIMING_METRICS = AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
+            public Boolean run() {
+                return Boolean.valueOf(Boolean.getBoolean("jboss.msc.timing.metrics"));
+            }
+        }).booleanValue();
+        DEFAULT_CORE_SIZE = AccessController.doPrivileged(new PrivilegedAction<Integer>() {
+            public Integer run() {
+                final int processors = Runtime.getRuntime().availableProcessors();
+                final String value = System.getProperty("jboss.msc.container.threads");
+                if (value != null) try {
+                    final int threads = Integer.parseInt(value.trim());
+                    if (threads > 0) {
+                        return Integer.valueOf(threads);
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+                return Integer.valueOf(processors);
+            }
+        }).intValue();
         ServiceLogger.INSTANCE.greeting(Version.getVersionString());
     }
 
-    private final Map<ServiceName, ServiceRegistrationImpl> registry = new UnlockedReadHashMap<ServiceName, ServiceRegistrationImpl>(512);
+    private final UnlockedReadHashMap<ServiceName, ServiceRegistrationImpl> registry = new UnlockedReadHashMap<ServiceName, ServiceRegistrationImpl>(512);
+    private final RegistryIndex registryIndex = new RegistryIndex();
 
-    private final long start = System.nanoTime();
+    private final UnlockedReadHashMap.Factory<ServiceName, ServiceRegistrationImpl> registrationFactory = new UnlockedReadHashMap.Factory<ServiceName, ServiceRegistrationImpl>() {
+        public ServiceRegistrationImpl create(final ServiceName name) {
+            final ServiceRegistrationImpl registration = new ServiceRegistrationImpl(ServiceContainerImpl.this, name);
+            registryIndex.add(registration);
+            return registration;
+        }
+    };
 
     private final List<TerminateListener> terminateListeners = new ArrayList<TerminateListener>(1);
 
-    private static final class ExecutorHolder {
-        private static final Executor VALUE;
+    private final StartScheduler startScheduler = new StartScheduler();
+
+    private final TimingHistogram startTimes = new TimingHistogram();
+    private final TimingHistogram stopTimes = new TimingHistogram();
+    private final TimingHistogram dependencyWaitTimes = new TimingHistogram();
+    private final TimingHistogram listenerTimes = new TimingHistogram();
+
+    /**
+     * The built-in executor of a container, used whenever no executor is {@link #setExecutor(Executor) set}.  Every
+     * thread shares the one task queue, so up to {@code coreSize} lifecycle tasks are run in parallel.  Idle threads
+     * time out and are recreated on demand.
+     */
+    private static final class ContainerExecutor extends ThreadPoolExecutor {
+
+        ContainerExecutor(final int coreSize, final long keepAliveTime, final TimeUnit keepAliveTimeUnit, final int containerSerial) {
+            super(coreSize, coreSize, keepAliveTime, keepAliveTimeUnit, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger threadSerial = new AtomicInteger(1);
 
-        static {
-            final ThreadPoolExecutor executor = new ThreadPoolExecutor(0, 1, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
                 public Thread newThread(final Runnable r) {
-                    final Thread thread = new Thread(r);
+                    final Thread thread = new Thread(r, String.format("MSC service thread %d-%d", Integer.valueOf(containerSerial), Integer.valueOf(threadSerial.getAndIncrement())));
                     thread.setDaemon(true);
                     thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
                         public void uncaughtException(final Thread t, final Throwable e) {
@@ -108,12 +247,24 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
                     return thread;
                 }
             });
-            executor.allowCoreThreadTimeOut(true);
-            executor.setCorePoolSize(1);
-            VALUE = executor;
+            allowCoreThreadTimeOut(true);
+        }
+    }
+
+    private static final class ProfileWriterHolder {
+        private static final ProfileWriter WRITER;
+
+        static {
+            ProfileWriter writer = null;
+            try {
+                writer = ProfileWriter.open(PROFILE_OUTPUT, PROFILE_MAPPED, System.nanoTime());
+            } catch (IOException e) {
+                // ignore
+            }
+            WRITER = writer;
         }
 
-        private ExecutorHolder() {
+        private ProfileWriterHolder() {
         }
     }
 
@@ -139,7 +290,7 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
                                         listener.countDown();
                                         continue;
                                     }
-                                    container.shutdown();
+                                    container.shutdown(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
                                     container.addTerminateListener(listener);
                                 }
                                 set.clear();
@@ -163,14 +314,20 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
         }
     }
 
-    private final Writer profileOutput;
+    private final ProfileWriter profileWriter;
 
     private TerminateListener.Info terminateInfo = null;
 
     private volatile boolean down = false;
 
+    private volatile boolean timingMetrics = TIMING_METRICS;
+
     private volatile Executor executor;
 
+    private volatile Executor lifecycleExecutor = LIFECYCLE_VIRTUAL_THREADS ? VirtualThreadExecutor.INSTANCE : null;
+
+    private final ContainerExecutor defaultExecutor;
+
     private final String name;
     private final MBeanServer mBeanServer;
     private final ObjectName objectName;
@@ -222,6 +379,59 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
             }
         }
 
+        public ServiceTimings getServiceTimings(final String name) {
+            final ServiceRegistrationImpl registration = registry.get(ServiceName.parse(name));
+            if (registration != null) {
+                final ServiceInstanceImpl<?> instance = registration.getInstance();
+                if (instance != null) {
+                    return instance.getTimings();
+                }
+            }
+            return null;
+        }
+
+        public List<ServiceTimings> querySlowestServices(final int count) {
+            if (count < 0) {
+                throw new IllegalArgumentException("count is negative");
+            }
+            final Collection<ServiceRegistrationImpl> registrations = registry.values();
+            final ArrayList<ServiceTimings> list = new ArrayList<ServiceTimings>(registrations.size());
+            for (ServiceRegistrationImpl registration : registrations) {
+                final ServiceInstanceImpl<?> instance = registration.getInstance();
+                // aliases share the instance of their primary registration
+                if (instance != null && registration == instance.getPrimaryRegistration()) list.add(instance.getTimings());
+            }
+            Collections.sort(list, new Comparator<ServiceTimings>() {
+                public int compare(final ServiceTimings o1, final ServiceTimings o2) {
+                    final long n1 = o1.getStartNanos();
+                    final long n2 = o2.getStartNanos();
+                    return n1 > n2 ? -1 : n1 < n2 ? 1 : o1.getServiceName().compareTo(o2.getServiceName());
+                }
+            });
+            return count < list.size() ? new ArrayList<ServiceTimings>(list.subList(0, count)) : list;
+        }
+
+        public boolean isTimingMetricsEnabled() {
+            return timingMetrics;
+        }
+
+        public void setTimingMetricsEnabled(final boolean enabled) {
+            timingMetrics = enabled;
+        }
+
+        public List<TimingSummary> queryTimingSummaries() {
+            final ArrayList<TimingSummary> list = new ArrayList<TimingSummary>(4);
+            list.add(summarize("start", startTimes));
+            list.add(summarize("stop", stopTimes));
+            list.add(summarize("dependency-wait", dependencyWaitTimes));
+            list.add(summarize("listener", listenerTimes));
+            return list;
+        }
+
+        private TimingSummary summarize(final String name, final TimingHistogram histogram) {
+            return new TimingSummary(name, histogram.getCount(), histogram.getTotal(), histogram.getMax(), histogram.getPercentile(50.0), histogram.getPercentile(90.0), histogram.getPercentile(99.0));
+        }
+
         public void dumpServices() {
             ServiceContainerImpl.this.dumpServices();
         }
@@ -244,12 +454,22 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
         }
     };
 
-    ServiceContainerImpl(String name) {
+    ServiceContainerImpl(String name, final int coreSize, final long keepAliveTime, final TimeUnit keepAliveTimeUnit) {
+        if (coreSize < 1) {
+            throw new IllegalArgumentException("coreSize must be at least 1");
+        }
+        if (keepAliveTime <= 0L) {
+            throw new IllegalArgumentException("keepAliveTime must be positive");
+        }
+        if (keepAliveTimeUnit == null) {
+            throw new IllegalArgumentException("keepAliveTimeUnit is null");
+        }
         final int serialNo = SERIAL.getAndIncrement();
         if (name == null) {
             name = String.format("anonymous-%d", Integer.valueOf(serialNo));
         }
         this.name = name;
+        defaultExecutor = new ContainerExecutor(coreSize, keepAliveTime, keepAliveTimeUnit, serialNo);
         ObjectName objectName = null;
         MBeanServer mBeanServer = null;
         try {
@@ -262,15 +482,7 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
         this.mBeanServer = mBeanServer;
         this.objectName = objectName;
         final Set<Reference<ServiceContainerImpl, Void>> set = ShutdownHookHolder.containers;
-        Writer profileOutput = null;
-        if (PROFILE_OUTPUT != null) {
-            try {
-                profileOutput = new OutputStreamWriter(new FileOutputStream(PROFILE_OUTPUT));
-            } catch (FileNotFoundException e) {
-                // ignore
-            }
-        }
-        this.profileOutput = profileOutput;
+        profileWriter = PROFILE_OUTPUT == null ? null : ProfileWriterHolder.WRITER;
         synchronized (set) {
             // if the shutdown hook was triggered, then no services can ever come up in any new containers.
             if (ShutdownHookHolder.down) {
@@ -286,6 +498,24 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
                 }));
             }
         }
+        addTerminateListener(new TerminateListener() {
+            public void handleTermination(final Info info) {
+                // queued tasks still run; anything submitted afterwards is run by the caller
+                defaultExecutor.shutdown();
+            }
+        });
+        if (profileWriter != null) {
+            addTerminateListener(new TerminateListener() {
+                public void handleTermination(final Info info) {
+                    // other containers may still be running, so just make sure this one's records are written
+                    try {
+                        ServiceContainerImpl.this.profileWriter.flush();
+                    } catch (IOException e) {
+                        ServiceLogger.INSTANCE.profileOutputWriteFailed(e);
+                    }
+                }
+            });
+        }
         if (objectName != null && mBeanServer != null) {
             addTerminateListener(new TerminateListener() {
                 public void handleTermination(final Info info) {
@@ -302,18 +532,18 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
         return name;
     }
 
-    Writer getProfileOutput() {
-        return profileOutput;
-    }
-
-    long getStart() {
-        return start;
+    ProfileWriter getProfileWriter() {
+        return profileWriter;
     }
 
     public void setExecutor(final Executor executor) {
         this.executor = executor;
     }
 
+    public void setLifecycleExecutor(final Executor executor) {
+        lifecycleExecutor = executor;
+    }
+
     @Override
     public synchronized void addTerminateListener(TerminateListener listener) {
         if (terminateInfo != null) { // if shutdown is already performed 
@@ -343,33 +573,41 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
     }
 
     public void shutdown() {
-        final MultipleRemoveListener<Runnable> shutdownListener;
-        final long started;
+        shutdown(0L, TimeUnit.NANOSECONDS);
+    }
+
+    public void shutdown(final long timeout, final TimeUnit unit) {
+        if (timeout < 0L) {
+            throw new IllegalArgumentException("timeout is negative");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit is null");
+        }
         synchronized(this) {
             if (down){
                 return;
             }
             down = true;
         }
-        started =  System.nanoTime();
-        shutdownListener = MultipleRemoveListener.create(new Runnable() {
-            public void run() {
-                shutdownComplete(started);
-            }
-        });
-        final HashSet<ServiceInstanceImpl<?>> done = new HashSet<ServiceInstanceImpl<?>>();
+        final Set<ServiceInstanceImpl<?>> set = new IdentityHashSet<ServiceInstanceImpl<?>>();
         for (ServiceRegistrationImpl registration : registry.values()) {
-            ServiceInstanceImpl<?> serviceInstance = registration.getInstance();
-            if (serviceInstance != null && done.add(serviceInstance)) {
-                try {
-                    serviceInstance.addListener(shutdownListener);
-                } catch (IllegalArgumentException e) {
-                    continue;
-                }
-                serviceInstance.setMode(Mode.REMOVE);
+            final ServiceInstanceImpl<?> instance = registration.getInstance();
+            if (instance != null) {
+                set.add(instance);
             }
         }
-        shutdownListener.done();
+        final Shutdown shutdown = new Shutdown(set.toArray(new ServiceInstanceImpl<?>[set.size()]));
+        final long timeoutNanos = unit.toNanos(timeout);
+        if (timeoutNanos > 0L) {
+            final Thread deadlineThread = new Thread(new Runnable() {
+                public void run() {
+                    shutdown.awaitDeadline(timeoutNanos);
+                }
+            }, "MSC Shutdown Deadline for " + name);
+            deadlineThread.setDaemon(true);
+            deadlineThread.start();
+        }
+        shutdown.start();
     }
 
     public boolean isShutdownComplete() {
@@ -408,8 +646,12 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
         shutdown();
     }
 
-    private synchronized void shutdownComplete(long started) {
-        terminateInfo = new TerminateListener.Info(started, System.nanoTime());
+    private synchronized void shutdownComplete(final TerminateListener.Info info) {
+        if (terminateInfo != null) {
+            // the shutdown gave up before the services were all removed
+            return;
+        }
+        terminateInfo = info;
         for (TerminateListener terminateListener : terminateListeners) {
             try {
                 terminateListener.handleTermination(terminateInfo);
@@ -419,6 +661,137 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
         }
     }
 
+    /**
+     * One container shutdown.  The services are grouped into waves by the length of the longest chain of dependents
+     * above them, and each wave is a {@link BulkRemoval} of its own, so its completion can be timed and reported.  The
+     * waves are all marked for removal at once; the controllers themselves make sure that each service is only
+     * stopped once its dependents are, which keeps more services stopping in parallel than a barrier between waves
+     * would.
+     */
+    private final class Shutdown {
+        private final long started = System.nanoTime();
+        private final ServiceInstanceImpl<?>[][] waves;
+        private final int[] waveSizes;
+        private final long[] waveCompletions;
+        // the waves still being removed, plus one while they are being marked
+        private final AtomicInteger remaining;
+        private final CountDownLatch finished = new CountDownLatch(1);
+        // set once the deadline passed, after which the deadline thread reports the termination
+        private volatile boolean deadlinePassed;
+
+        Shutdown(final ServiceInstanceImpl<?>[] instances) {
+            final int[] depths = ServiceInstanceImpl.computeDependentDepths(instances, false);
+            int waveCount = 0;
+            for (int depth : depths) {
+                waveCount = Math.max(waveCount, depth + 1);
+            }
+            final int[] waveSizes = new int[waveCount];
+            for (int depth : depths) {
+                waveSizes[depth]++;
+            }
+            final ServiceInstanceImpl<?>[][] waves = new ServiceInstanceImpl<?>[waveCount][];
+            for (int i = 0; i < waveCount; i++) {
+                waves[i] = new ServiceInstanceImpl<?>[waveSizes[i]];
+            }
+            final int[] filled = new int[waveCount];
+            for (int i = 0; i < instances.length; i++) {
+                waves[depths[i]][filled[depths[i]]++] = instances[i];
+            }
+            this.waves = waves;
+            this.waveSizes = waveSizes;
+            waveCompletions = new long[waveCount];
+            Arrays.fill(waveCompletions, -1L);
+            remaining = new AtomicInteger(waveCount + 1);
+        }
+
+        void start() {
+            for (int i = 0; i < waves.length; i++) {
+                final int wave = i;
+                BulkRemoval.removeAll(new Runnable() {
+                    public void run() {
+                        waveRemoved(wave);
+                    }
+                }, Arrays.asList(waves[i]));
+            }
+            done();
+        }
+
+        private void waveRemoved(final int wave) {
+            final long now = System.nanoTime();
+            synchronized (this) {
+                waveCompletions[wave] = now;
+            }
+            ServiceLogger.INSTANCE.shutdownWaveRemoved(name, wave + 1, waves.length, waveSizes[wave], (now - started) / 1000000L);
+            done();
+        }
+
+        private void done() {
+            if (remaining.decrementAndGet() == 0) {
+                finished.countDown();
+                if (! deadlinePassed) {
+                    shutdownComplete(info(0));
+                }
+            }
+        }
+
+        private TerminateListener.Info info(final int abandoned) {
+            final long[] waveCompletions;
+            synchronized (this) {
+                waveCompletions = this.waveCompletions.clone();
+            }
+            return new TerminateListener.Info(started, System.nanoTime(), waveSizes, waveCompletions, abandoned);
+        }
+
+        /**
+         * Wait until the shutdown completes or the given time has passed since it started, and give up on the
+         * remaining services in the latter case.
+         *
+         * @param timeoutNanos the time to wait
+         */
+        void awaitDeadline(final long timeoutNanos) {
+            long remainingNanos = timeoutNanos - (System.nanoTime() - started);
+            boolean intr = false;
+            try {
+                while (remainingNanos > 0L) try {
+                    if (finished.await(remainingNanos, TimeUnit.NANOSECONDS)) {
+                        return;
+                    }
+                    break;
+                } catch (InterruptedException e) {
+                    intr = true;
+                    remainingNanos = timeoutNanos - (System.nanoTime() - started);
+                }
+            } finally {
+                if (intr) Thread.currentThread().interrupt();
+            }
+            deadlinePassed = true;
+            final List<ServiceInstanceImpl<?>> abandoned = new ArrayList<ServiceInstanceImpl<?>>();
+            for (ServiceInstanceImpl<?>[] wave : waves) {
+                for (ServiceInstanceImpl<?> instance : wave) {
+                    if (instance.getSubstate() != ServiceInstanceImpl.Substate.REMOVED) {
+                        abandoned.add(instance);
+                    }
+                }
+            }
+            if (abandoned.isEmpty()) {
+                // the last wave was removed just now
+                shutdownComplete(info(0));
+                return;
+            }
+            // force the stops while the executor still takes the work they let go on, and only then report the
+            // termination as it stood at the deadline; reporting it shuts the default executor down
+            final TerminateListener.Info info = info(abandoned.size());
+            int forced = 0;
+            for (ServiceInstanceImpl<?> instance : abandoned) {
+                if (instance.forceStop()) {
+                    forced++;
+                }
+            }
+            ServiceLogger.INSTANCE.shutdownAbandoned(name, (System.nanoTime() - started) / 1000000L, abandoned.size(), forced);
+            shutdownComplete(info);
+        }
+    }
+
     static final class LatchListener extends CountDownLatch implements TerminateListener {
 
         public LatchListener(int count) {
@@ -431,9 +804,48 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
         }
     }
 
+    StartScheduler getStartScheduler() {
+        return startScheduler;
+    }
+
+    /**
+     * Determine whether service lifecycle timings are currently recorded.
+     *
+     * @return {@code true} if timings are recorded
+     */
+    boolean isTimingMetrics() {
+        return timingMetrics;
+    }
+
+    TimingHistogram getStartTimes() {
+        return startTimes;
+    }
+
+    TimingHistogram getStopTimes() {
+        return stopTimes;
+    }
+
+    TimingHistogram getDependencyWaitTimes() {
+        return dependencyWaitTimes;
+    }
+
+    TimingHistogram getListenerTimes() {
+        return listenerTimes;
+    }
+
     Executor getExecutor() {
         final Executor executor = this.executor;
-        return executor != null ? executor : ExecutorHolder.VALUE;
+        return executor != null ? executor : defaultExecutor;
+    }
+
+    /**
+     * Get the executor for service start and stop methods.
+     *
+     * @return the lifecycle executor, or the container executor if there is none
+     */
+    Executor getLifecycleExecutor() {
+        final Executor executor = lifecycleExecutor;
+        return executor != null ? executor : getExecutor();
     }
 
     /**
@@ -456,12 +868,16 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
      * @throws DuplicateServiceException if a service is duplicated
      */
     private void install(final Collection<ServiceBuilderImpl<?>> builders) throws DuplicateServiceException {
+        if (builders.size() > 1) {
+            bulkInstall(builders);
+            return;
+        }
         final Deque<ServiceBuilderImpl<?>> installedBuilders = new ArrayDeque<ServiceBuilderImpl<?>>(builders.size());
         final Deque<ServiceInstanceImpl<?>> installedInstances = new ArrayDeque<ServiceInstanceImpl<?>>(builders.size());
         boolean ok = false;
         try {
             for (ServiceBuilderImpl<?> builder : builders) {
-                installedInstances.addLast(doInstall(builder));
+                installedInstances.addLast(doInstall(builder, null));
                 installedBuilders.addLast(builder);
             }
             ok = true;
@@ -480,7 +896,147 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
         }
     }
 
-    private <S> ServiceInstanceImpl<S> doInstall(final ServiceBuilderImpl<S> serviceBuilder) throws DuplicateServiceException {
+    /**
+     * Install a batch of several builders.  Dependencies between services of the batch are wired in a single pass
+     * once every controller exists and before any of them can start, instead of one {@code InstallTask} per service
+     * racing against the others' start-up.  Dependencies on services outside the batch are wired as usual.
+     *
+     * @param builders the builders
+     * @throws DuplicateServiceException if a service is duplicated
+     */
+    private void bulkInstall(final Collection<ServiceBuilderImpl<?>> builders) throws DuplicateServiceException {
+        final int size = builders.size();
+        final Set<ServiceName> batchNames = new HashSet<ServiceName>(size << 1);
+        for (ServiceBuilderImpl<?> builder : builders) {
+            batchNames.add(builder.getName());
+            Collections.addAll(batchNames, builder.getAliases());
+        }
+        final ServiceBuilderImpl<?>[] installedBuilders = builders.toArray(new ServiceBuilderImpl<?>[size]);
+        final ServiceInstanceImpl<?>[] installedInstances = new ServiceInstanceImpl<?>[size];
+        if (PARALLEL_INSTALL_THRESHOLD > 0 && size >= PARALLEL_INSTALL_THRESHOLD) {
+            new BatchPreparer(installedBuilders, installedInstances, batchNames).prepare();
+        } else {
+            int installed = 0;
+            boolean ok = false;
+            try {
+                for (; installed < size; installed++) {
+                    installedInstances[installed] = doInstall(installedBuilders[installed], batchNames);
+                }
+                ok = true;
+            } finally {
+                if (! ok) {
+                    for (int i = 0; i < installed; i++) {
+                        rollback(installedInstances[i]);
+                    }
+                }
+            }
+        }
+        if (START_PRIORITIES) {
+            ServiceInstanceImpl.computeStartPriorities(installedInstances);
+        }
+        final boolean[] begun = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            begun[i] = installedInstances[i].beginBulkInstall();
+        }
+        for (int i = 0; i < size; i++) {
+            installedInstances[i].wireBatchDependencies();
+        }
+        // every controller must be committed, even if one fails, or it stays blocked forever
+        RuntimeException failure = null;
+        for (int i = 0; i < size; i++) {
+            final ServiceController.Mode initialMode = installedBuilders[i].getInitialMode();
+            try {
+                installedInstances[i].commitBulkInstall(initialMode == null ? ServiceController.Mode.ACTIVE : initialMode, begun[i]);
+            } catch (RuntimeException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Prepares the controllers of a large batch on several threads.  The builders are split into chunks which the
+     * calling thread and up to one helper task per processor claim in turn, so the caller never waits for a helper
+     * which has not started, and a saturated or rejecting executor just leaves the work to the caller.  If any builder
+     * fails, the remaining chunks are skipped and everything prepared so far is rolled back.
+     */
+    private final class BatchPreparer implements Runnable {
+        private final ServiceBuilderImpl<?>[] builders;
+        private final ServiceInstanceImpl<?>[] instances;
+        private final Set<ServiceName> batchNames;
+        private final int chunkCount;
+        private final AtomicInteger nextChunk = new AtomicInteger();
+        private final CountDownLatch chunksDone;
+        private volatile Throwable failure;
+
+        BatchPreparer(final ServiceBuilderImpl<?>[] builders, final ServiceInstanceImpl<?>[] instances, final Set<ServiceName> batchNames) {
+            this.builders = builders;
+            this.instances = instances;
+            this.batchNames = batchNames;
+            chunkCount = (builders.length + INSTALL_CHUNK_SIZE - 1) / INSTALL_CHUNK_SIZE;
+            chunksDone = new CountDownLatch(chunkCount);
+        }
+
+        void prepare() throws DuplicateServiceException {
+            final Executor executor = getExecutor();
+            final int helpers = Math.min(chunkCount, Runtime.getRuntime().availableProcessors()) - 1;
+            for (int i = 0; i < helpers; i++) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    break;
+                }
+            }
+            run();
+            boolean intr = false;
+            try {
+                for (;;) try {
+                    chunksDone.await();
+                    break;
+                } catch (InterruptedException e) {
+                    intr = true;
+                }
+            } finally {
+                if (intr) Thread.currentThread().interrupt();
+            }
+            final Throwable failure = this.failure;
+            if (failure != null) {
+                for (ServiceInstanceImpl<?> instance : instances) {
+                    if (instance != null) rollback(instance);
+                }
+                if (failure instanceof DuplicateServiceException) throw (DuplicateServiceException) failure;
+                if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+                if (failure instanceof Error) throw (Error) failure;
+                throw new IllegalStateException(failure);
+            }
+        }
+
+        public void run() {
+            final ServiceBuilderImpl<?>[] builders = this.builders;
+            final ServiceInstanceImpl<?>[] instances = this.instances;
+            int chunk;
+            while ((chunk = nextChunk.getAndIncrement()) < chunkCount) {
+                try {
+                    if (failure == null) {
+                        final int end = Math.min(builders.length, (chunk + 1) * INSTALL_CHUNK_SIZE);
+                        for (int i = chunk * INSTALL_CHUNK_SIZE; i < end; i++) {
+                            instances[i] = doInstall(builders[i], batchNames);
+                        }
+                    }
+                } catch (Throwable t) {
+                    synchronized (this) {
+                        if (failure == null) failure = t;
+                    }
+                } finally {
+                    chunksDone.countDown();
+                }
+            }
+        }
+    }
+
+    private <S> ServiceInstanceImpl<S> doInstall(final ServiceBuilderImpl<S> serviceBuilder, final Set<ServiceName> batchNames) throws DuplicateServiceException {
         apply(serviceBuilder);
 
         // Get names & aliases
@@ -497,28 +1053,61 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
         }
 
         // Create the list of dependencies
-        final Map<ServiceName, ServiceBuilderImpl.Dependency> dependencyMap = serviceBuilder.getDependencies();
-        final int dependencyCount = dependencyMap.size();
-        final Dependency[] dependencies = new Dependency[dependencyCount];
-        final List<ValueInjection<?>> valueInjections = new ArrayList<ValueInjection<?>>(serviceBuilder.getValueInjections());
+        final int dependencyCount = serviceBuilder.getDependencyCount();
+        Dependency[] dependencies = new Dependency[dependencyCount];
 
         // Dependencies
-        int i = 0;
-        for (ServiceName serviceName : dependencyMap.keySet()) {
-            Dependency registration = getOrCreateRegistration(serviceName);
-            final ServiceBuilderImpl.Dependency dependency = dependencyMap.get(serviceName);
-            if (dependency.getDependencyType() == ServiceBuilder.DependencyType.OPTIONAL) {
+        int i;
+        for (i = 0; i < dependencyCount; i++) {
+            Dependency registration = getOrCreateRegistration(serviceBuilder.getDependencyName(i));
+            if (serviceBuilder.isOptionalDependency(i)) {
                 registration = new OptionalDependency(registration);
             }
-            dependencies[i++] = registration;
-            for (Injector<Object> injector : dependency.getInjectorList()) {
-                valueInjections.add(new ValueInjection<Object>(registration, injector));
+            dependencies[i] = registration;
+        }
+
+        // Move required dependencies on services of the same batch to the front, to be wired in bulk
+        int batchDependencies = 0;
+        int[] positions = null;
+        if (batchNames != null) {
+            for (i = 0; i < dependencyCount; i++) {
+                if (! serviceBuilder.isOptionalDependency(i) && batchNames.contains(dependencies[i].getName())) {
+                    batchDependencies++;
+                }
+            }
+            if (batchDependencies > 0 && batchDependencies < dependencyCount) {
+                final Dependency[] ordered = new Dependency[dependencyCount];
+                positions = new int[dependencyCount];
+                int batchIdx = 0, otherIdx = batchDependencies;
+                for (i = 0; i < dependencyCount; i++) {
+                    final int position;
+                    if (! serviceBuilder.isOptionalDependency(i) && batchNames.contains(dependencies[i].getName())) {
+                        position = batchIdx++;
+                    } else {
+                        position = otherIdx++;
+                    }
+                    ordered[position] = dependencies[i];
+                    positions[i] = position;
+                }
+                dependencies = ordered;
             }
         }
-        final ValueInjection<?>[] injections = valueInjections.toArray(new ValueInjection<?>[valueInjections.size()]);
+
+        // Injections; those of dependencies are kept as indices into the dependency array
+        final List<ValueInjection<?>> builderInjections = serviceBuilder.getValueInjections();
+        final ValueInjection<?>[] injections = builderInjections.toArray(new ValueInjection<?>[builderInjections.size()]);
+        final int dependencyInjectorCount = serviceBuilder.getDependencyInjectorCount();
+        @SuppressWarnings("unchecked")
+        final Injector<Object>[] dependencyInjectors = new Injector[dependencyInjectorCount];
+        final int[] injectedDependencies = new int[dependencyInjectorCount];
+        for (i = 0; i < dependencyInjectorCount; i++) {
+            final int dependency = serviceBuilder.getInjectedDependency(i);
+            dependencyInjectors[i] = serviceBuilder.getDependencyInjector(i);
+            injectedDependencies[i] = positions == null ? dependency : positions[dependency];
+        }
 
         // Next create the actual controller
-        final ServiceInstanceImpl<S> instance = new ServiceInstanceImpl<S>(serviceBuilder.getServiceValue(), serviceBuilder.getLocation(), dependencies, injections, primaryRegistration, aliasRegistrations, serviceBuilder.getListeners());
+        final ServiceInstanceImpl<S> instance = new ServiceInstanceImpl<S>(serviceBuilder.getServiceValue(), serviceBuilder.getLocation(), dependencies, batchDependencies, injections, dependencyInjectors, injectedDependencies, primaryRegistration, aliasRegistrations, serviceBuilder.getListeners());
 
         boolean ok = false;
         try {
@@ -562,22 +1151,13 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
     }
 
     /**
-     * Atomically get or create a registration.  Call with lock held.
+     * Atomically get or create a registration.  Concurrent callers always get the same registration for a name.
      *
      * @param name the service name
      * @return the registration
      */
     private ServiceRegistrationImpl getOrCreateRegistration(final ServiceName name) {
-        final Map<ServiceName, ServiceRegistrationImpl> registry = this.registry;
-        ServiceRegistrationImpl registration;
-        registration = registry.get(name);
-        if (registration == null) {
-            registration = new ServiceRegistrationImpl(this, name);
-            registry.put(name, registration);
-            return registration;
-        } else {
-            return registration;
-        }
+        return registry.getOrCreate(name, registrationFactory);
     }
 
     @Override
@@ -606,6 +1186,62 @@ final class ServiceContainerImpl extends AbstractServiceTarget implements Servic
         return result;
     }
 
+    @Override
+    public List<ServiceName> getServiceNames(final ServiceName name) {
+        final List<ServiceRegistrationImpl> registrations = registrationsUnder(name);
+        final List<ServiceName> result = new ArrayList<ServiceName>(registrations.size());
+        for (ServiceRegistrationImpl registration : registrations) {
+            if (registration.getInstance() != null) {
+                result.add(registration.getName());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int getServiceCount(final ServiceName name) {
+        int count = 0;
+        for (ServiceRegistrationImpl registration : registrationsUnder(name)) {
+            if (registration.getInstance() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int removeServices(final ServiceName name) {
+        return removeServices(name, null);
+    }
+
+    public int removeServices(final ServiceName name, final Runnable completeTask) {
+        final Set<ServiceInstanceImpl<?>> instances = new IdentityHashSet<ServiceInstanceImpl<?>>();
+        for (ServiceRegistrationImpl registration : registrationsUnder(name)) {
+            final ServiceInstanceImpl<?> instance = registration.getInstance();
+            // a service is removed by its own name, not by an alias which happens to fall under the given name
+            if (instance != null && registration == instance.getPrimaryRegistration()) {
+                instances.add(instance);
+            }
+        }
+        return BulkRemoval.removeAll(completeTask, instances);
+    }
+
+    public void removeServices(final Collection<? extends ServiceController<?>> controllers, final Runnable completeTask) {
+        if (controllers == null) {
+            throw new IllegalArgumentException("controllers is null");
+        }
+        BulkRemoval.removeAll(completeTask, controllers);
+    }
+
+    private List<ServiceRegistrationImpl> registrationsUnder(final ServiceName name) {
+        if (name == null) {
+            throw new IllegalArgumentException("name is null");
+        }
+        final List<ServiceRegistrationImpl> registrations = new ArrayList<ServiceRegistrationImpl>();
+        registryIndex.collect(name, registrations);
+        return registrations;
+    }
+
     @Override
     void install(final ServiceBuilderImpl<?> serviceBuilder) throws DuplicateServiceException {
         validateTargetState();
@@ -22,13 +22,19 @@
 
 package org.jboss.msc.service;
 
-import java.io.IOException;
-import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
+import org.jboss.msc.inject.Injector;
 import org.jboss.msc.service.management.ServiceStatus;
+import org.jboss.msc.service.management.ServiceTimings;
 import org.jboss.msc.value.Value;
 
 /**
@@ -52,9 +58,25 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
      */
     private final Dependency[] dependencies;
     /**
-     * The injections of this service.
+     * The number of leading {@link #dependencies} which are registrations of services installed in the same batch.
+     * Those are wired by {@link #wireBatchDependencies()} rather than by the {@link InstallTask}.
+     */
+    private final int batchDependencies;
+    /**
+     * The priority of this service's start tasks; see {@link #computeStartPriorities(ServiceInstanceImpl[])}.
+     * Written before the controller is first committed.
+     */
+    private int startPriority;
+    /**
+     * The value injections of this service.
      */
     private final ValueInjection<?>[] injections;
+    /**
+     * The injectors fed from dependencies, and for each the index in {@link #dependencies} of the one feeding it.
+     * Injections are numbered with the value injections first; see {@link #doInject(int)}.
+     */
+    private final Injector<Object>[] dependencyInjectors;
+    private final int[] injectedDependencies;
     /**
      * The set of registered service listeners.
      */
@@ -82,58 +104,109 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
     /**
      * The number of registrations which place a demand-to-start on this instance.  If this value is >0, propagate a demand
      * up to all parent dependents.  If this value is >0 and mode is ON_DEMAND, put a load of +1 on {@code upperCount}.
+     * Updated without holding the lock; only a change which crosses zero takes the lock, to bring {@link #demanded}
+     * in line with it.
      */
-    private int demandedByCount;
+    private volatile int demandedByCount;
+    /**
+     * Whether the demand on this instance is currently reflected in {@code upperCount} and in the demands placed on
+     * the parent dependencies.  Guarded by the lock; follows {@link #demandedByCount} crossing zero.
+     */
+    private boolean demanded;
     /**
      * Semaphore count for bringing this dep up.  If the value is <= 0, the service is stopped.  Each unstarted
      * dependency will put a load of -1 on this value.  A mode of AUTOMATIC or IMMEDIATE will put a load of +1 on this
      * value.  A mode of NEVER will cause this value to be ignored.  A mode of ON_DEMAND will put a load of +1 on this
-     * value <b>if</b> {@link #demandedByCount} is >0.
+     * value <b>if</b> {@link #demandedByCount} is >0.  Updated without holding the lock; only a change which crosses
+     * zero requires a {@link #transition()}.
      */
-    private int upperCount;
+    private volatile int upperCount;
     /**
      * The number of dependents that are currently running.  The deployment will not execute the {@code stop()} method
      * (and subsequently leave the {@link org.jboss.msc.service.ServiceController.State#STOPPING} state) until all running dependents (and listeners) are stopped.
      */
-    private int runningDependents;
+    private volatile int runningDependents;
     /**
      * Count for failure notification. It indicates how many services have failed to start and are not recovered so far.
      * This count monitors failures that happen when starting this service, and dependency related failures as well.
      * When incremented from 0 to 1, it is time to notify dependents and listeners that a failure occurred. When
      * decremented from 1 to 0, the dependents and listeners are notified that the affected services are retrying to
-     * start. Values larger than 1 are ignored to avoid multiple notifications. 
+     * start. Values larger than 1 are ignored to avoid multiple notifications.  Updated without holding the lock; only
+     * a change which crosses zero takes the lock, to notify.
      */
-    private int failCount;
+    private volatile int failCount;
 
     /**
      * Count for notification of missing (uninstalled) dependencies. Its value indicates how many dependencies are
      * missing. When incremented from 0 to 1, dependents and listeners are notified of the missing dependency. When
      * decremented from 1 to 0, a notification that the missing dependencies are now installed is sent to dependents and
-     * listeners. Values larger than 1 are ignored to avoid multiple notifications. 
+     * listeners. Values larger than 1 are ignored to avoid multiple notifications.  Updated without holding the lock;
+     * only a change which crosses zero takes the lock, to notify.
      */
-    private int missingDependencyCount;
+    private volatile int missingDependencyCount;
 
     /**
      * The number of asynchronous tasks that are currently running.  This includes listeners, start/stop methods,
-     * outstanding asynchronous start/stops, and internal tasks.
+     * outstanding asynchronous start/stops, and internal tasks.  Whichever task drops it to zero is responsible for
+     * the next {@link #transition()}.
      */
-    private int asyncTasks;
+    private volatile int asyncTasks;
 
     /**
      * The system nanotime of the moment in which the last lifecycle change was initiated.
      */
     private volatile long lifecycleTime;
 
+    /**
+     * The duration of the last start, the last stop, and the last wait for dependencies to come up, in nanoseconds,
+     * or {@code -1} if never measured.
+     */
+    private long startDuration = -1L;
+    private long stopDuration = -1L;
+    private long dependencyWaitDuration = -1L;
+    /**
+     * The total time spent in listener notifications, in nanoseconds.  Listeners run outside of the lock.
+     */
+    private volatile long listenerDuration;
+    /**
+     * The bulk removal to notify once this controller is removed, if any.
+     */
+    private BulkRemoval bulkRemoval;
+    /**
+     * The context of the asynchronous stop in progress, if any.
+     */
+    private StopContextImpl asyncStop;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<ServiceInstanceImpl> demandedByCountUpdater = AtomicIntegerFieldUpdater.newUpdater(ServiceInstanceImpl.class, "demandedByCount");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<ServiceInstanceImpl> upperCountUpdater = AtomicIntegerFieldUpdater.newUpdater(ServiceInstanceImpl.class, "upperCount");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<ServiceInstanceImpl> failCountUpdater = AtomicIntegerFieldUpdater.newUpdater(ServiceInstanceImpl.class, "failCount");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<ServiceInstanceImpl> missingDependencyCountUpdater = AtomicIntegerFieldUpdater.newUpdater(ServiceInstanceImpl.class, "missingDependencyCount");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<ServiceInstanceImpl> runningDependentsUpdater = AtomicIntegerFieldUpdater.newUpdater(ServiceInstanceImpl.class, "runningDependents");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<ServiceInstanceImpl> asyncTasksUpdater = AtomicIntegerFieldUpdater.newUpdater(ServiceInstanceImpl.class, "asyncTasks");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<ServiceInstanceImpl> listenerDurationUpdater = AtomicLongFieldUpdater.newUpdater(ServiceInstanceImpl.class, "listenerDuration");
+
     private static final ServiceRegistrationImpl[] NO_REGISTRATIONS = new ServiceRegistrationImpl[0];
-    private static final Dependent[] NO_DEPENDENTS = new Dependent[0];
     private static final ValueInjection<?>[] NO_INJECTIONS = new ValueInjection<?>[0];
+    @SuppressWarnings("unchecked")
+    private static final Injector<Object>[] NO_INJECTORS = new Injector[0];
+    private static final int[] NO_INTS = new int[0];
     private static final String[] NO_STRINGS = new String[0];
 
-    ServiceInstanceImpl(final Value<? extends Service<? extends S>> serviceValue, final Location location, final Dependency[] dependencies, final ValueInjection<?>[] injections, final ServiceRegistrationImpl primaryRegistration, final ServiceRegistrationImpl[] aliasRegistrations, final Set<? extends ServiceListener<? super S>> listeners) {
+    ServiceInstanceImpl(final Value<? extends Service<? extends S>> serviceValue, final Location location, final Dependency[] dependencies, final int batchDependencies, final ValueInjection<?>[] injections, final Injector<Object>[] dependencyInjectors, final int[] injectedDependencies, final ServiceRegistrationImpl primaryRegistration, final ServiceRegistrationImpl[] aliasRegistrations, final Set<? extends ServiceListener<? super S>> listeners) {
         this.serviceValue = serviceValue;
         this.location = location;
         this.dependencies = dependencies;
+        this.batchDependencies = batchDependencies;
         this.injections = injections;
+        this.dependencyInjectors = dependencyInjectors;
+        this.injectedDependencies = injectedDependencies;
         this.primaryRegistration = primaryRegistration;
         this.aliasRegistrations = aliasRegistrations;
         this.listeners =  new IdentityHashSet<ServiceListener<? super S>>(listeners);
@@ -145,7 +218,10 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
         this.primaryRegistration = primaryRegistration;
         location = null;
         dependencies = NO_REGISTRATIONS;
+        batchDependencies = 0;
         injections = NO_INJECTIONS;
+        dependencyInjectors = NO_INJECTORS;
+        injectedDependencies = NO_INTS;
         aliasRegistrations = NO_REGISTRATIONS;
         listeners = new IdentityHashSet<ServiceListener<? super S>>(0);
         upperCount = - dependencies.length;
@@ -165,11 +241,43 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
     }
 
     void addAsyncTask() {
-        asyncTasks++;
+        asyncTasksUpdater.incrementAndGet(this);
     }
 
-    void removeAsyncTask() {
-        asyncTasks--;
+    /**
+     * Release a task added by {@link #addAsyncTask()}.  Call without holding the lock.
+     *
+     * @return the async tasks to start, {@code null} for none
+     */
+    Runnable[] removeAsyncTask() {
+        assert ! lockHeld();
+        if (asyncTasksUpdater.decrementAndGet(this) != 0) {
+            return null;
+        }
+        synchronized (this) {
+            return transition();
+        }
+    }
+
+    /**
+     * Release the reference held by a finished asynchronous task, and run the next transition if it was the last one.
+     */
+    private void asyncTaskDone() {
+        doExecute(removeAsyncTask());
+    }
+
+    /**
+     * Release the reference held by a finished task which notified dependents that this service went up or down.
+     * If the resulting count changes were deferred, the reference is only released once they are applied, so that
+     * this controller cannot move on before its dependents have seen the change.
+     */
+    private void upperCountTaskDone() {
+        final InlineTasks inlineTasks = INLINE_TASKS.get();
+        if (inlineTasks.coalescing) {
+            inlineTasks.heldControllers.add(this);
+        } else {
+            asyncTaskDone();
+        }
     }
 
     /**
@@ -183,6 +291,8 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
             // no movement possible
             return null;
         }
+        // the counters may change under us; whoever changes them next will call back in here
+        final int upperCount = this.upperCount;
         switch (state) {
             case DOWN: {
                 if (mode == ServiceController.Mode.REMOVE) {
@@ -269,6 +379,10 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
                 break;
             }
             case START_REQUESTED_to_STARTING: {
+                if (primaryRegistration.getContainer().isTimingMetrics()) {
+                    dependencyWaitDuration = Math.max(0L, System.nanoTime() - lifecycleTime);
+                    primaryRegistration.getContainer().getDependencyWaitTimes().record(dependencyWaitDuration);
+                }
                 tasks = getListenerTasks(transition.getAfter().getState(), new StartTask(true));
                 break;
             }
@@ -291,7 +405,7 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
             }
             case START_FAILED_to_DOWN: {
                 startException = null;
-                failCount --;
+                failCountUpdater.decrementAndGet(this);
                 tasks = getListenerTasks(transition.getAfter().getState(), new DependencyRetryingTask(getDependents()), new StopTask(true), new DependentStoppedTask());
                 break;
             }
@@ -308,7 +422,12 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
                 break;
             }
             case REMOVING_to_REMOVED: {
-                tasks = getListenerTasks(transition.getAfter().getState());
+                final BulkRemoval bulkRemoval = this.bulkRemoval;
+                if (bulkRemoval != null && bulkRemoval.removed()) {
+                    tasks = getListenerTasks(transition.getAfter().getState(), new BulkRemovalCompleteTask(bulkRemoval));
+                } else {
+                    tasks = getListenerTasks(transition.getAfter().getState());
+                }
                 listeners.clear();
                 break;
             }
@@ -322,7 +441,7 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
             }
         }
         state = transition.getAfter();
-        asyncTasks += tasks.length;
+        asyncTasksUpdater.addAndGet(this, tasks.length);
         return tasks;
     }
 
@@ -377,6 +496,17 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
         return tasks;
     }
 
+    private Runnable[] getListenerTasks(final ListenerNotification notification) {
+        final IdentityHashSet<ServiceListener<? super S>> listeners = this.listeners;
+        final int size = listeners.size();
+        final Runnable[] tasks = new Runnable[size];
+        int i = 0;
+        for (ServiceListener<? super S> listener : listeners) {
+            tasks[i++] = new ListenerTask(listener, notification);
+        }
+        return tasks;
+    }
+
     private Runnable[] getListenerTasks(final ListenerNotification notification, final Runnable extraTask) {
         final IdentityHashSet<ServiceListener<? super S>> listeners = this.listeners;
         final int size = listeners.size();
@@ -392,11 +522,8 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
     void doExecute(final Runnable task) {
         assert ! lockHeld();
         if (task == null) return;
-        try {
-            primaryRegistration.getContainer().getExecutor().execute(task);
-        } catch (RejectedExecutionException e) {
-            task.run();
-        }
+        if (queueInline(task)) return;
+        submit(primaryRegistration.getContainer().getExecutor(), task);
     }
 
     void doExecute(final Runnable... tasks) {
@@ -404,18 +531,233 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
         if (tasks == null) return;
         final Executor executor = primaryRegistration.getContainer().getExecutor();
         for (Runnable task : tasks) {
-            try {
-                executor.execute(task);
-            } catch (RejectedExecutionException e) {
-                task.run();
+            if (queueInline(task)) continue;
+            submit(executor, task);
+        }
+    }
+
+    private boolean hasLifecycleExecutor() {
+        final ServiceContainerImpl container = primaryRegistration.getContainer();
+        return container.getLifecycleExecutor() != container.getExecutor();
+    }
+
+    private void submit(final Executor executor, final Runnable task) {
+        final boolean start = task instanceof ServiceInstanceImpl.StartTask;
+        // start and stop tasks may block in service code, so they may have an executor of their own
+        final Executor target = start || task instanceof ServiceInstanceImpl.StopTask ? primaryRegistration.getContainer().getLifecycleExecutor() : executor;
+        if (ServiceContainerImpl.START_PRIORITIES && start) {
+            primaryRegistration.getContainer().getStartScheduler().execute(target, task, startPriority);
+            return;
+        }
+        try {
+            target.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * Give each service of a batch a start priority equal to the length of the longest chain of dependents above it
+     * within the batch, so that services on the critical path of the batch start first.  Services at the top of the
+     * batch, or installed on their own, have priority {@code 0}.  Priorities are not revised when services are
+     * installed later.  Call before the batch is committed.
+     *
+     * @param instances the service instances of the batch
+     */
+    static void computeStartPriorities(final ServiceInstanceImpl<?>[] instances) {
+        final int[] depths = computeDependentDepths(instances, true);
+        for (int i = 0; i < instances.length; i++) {
+            instances[i].startPriority = depths[i];
+        }
+    }
+
+    /**
+     * Compute the length of the longest chain of dependents above each of the given service instances, counting only
+     * dependents among the given instances.  Instances without such dependents have depth {@code 0}.
+     *
+     * @param instances the service instances
+     * @param batchOnly {@code true} to only follow the dependencies of each instance on services of its own batch
+     * @return the depth of each instance, by index
+     */
+    static int[] computeDependentDepths(final ServiceInstanceImpl<?>[] instances, final boolean batchOnly) {
+        final int size = instances.length;
+        final IdentityHashMap<ServiceInstanceImpl<?>, Integer> indices = new IdentityHashMap<ServiceInstanceImpl<?>, Integer>(size);
+        int edgeCount = 0;
+        for (int i = 0; i < size; i++) {
+            indices.put(instances[i], Integer.valueOf(i));
+            edgeCount += batchOnly ? instances[i].batchDependencies : instances[i].dependencies.length;
+        }
+        // dependency edges, in compressed rows: the dependencies of instance i are edges[offsets[i]] to edges[offsets[i + 1] - 1]
+        final int[] offsets = new int[size + 1];
+        final int[] edges = new int[edgeCount];
+        // the number of dependents of each instance whose depth is still unknown
+        final int[] waiting = new int[size];
+        int e = 0;
+        for (int i = 0; i < size; i++) {
+            final ServiceInstanceImpl<?> instance = instances[i];
+            final int count = batchOnly ? instance.batchDependencies : instance.dependencies.length;
+            for (int j = 0; j < count; j++) {
+                final Integer index = indices.get(instanceOf(instance.dependencies[j]));
+                if (index != null) {
+                    edges[e++] = index.intValue();
+                    waiting[index.intValue()]++;
+                }
+            }
+            offsets[i + 1] = e;
+        }
+        // visit each instance once all of its dependents are done, starting from the top
+        final int[] depths = new int[size];
+        final int[] ready = new int[size];
+        int readyCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (waiting[i] == 0) ready[readyCount++] = i;
+        }
+        while (readyCount > 0) {
+            final int i = ready[--readyCount];
+            final int depth = depths[i] + 1;
+            for (e = offsets[i]; e < offsets[i + 1]; e++) {
+                final int dependency = edges[e];
+                if (depths[dependency] < depth) depths[dependency] = depth;
+                if (--waiting[dependency] == 0) ready[readyCount++] = dependency;
             }
         }
+        // instances on or below a dependency cycle are never visited, and keep whatever depth they reached
+        return depths;
+    }
+
+    private static ServiceInstanceImpl<?> instanceOf(final Dependency dependency) {
+        final Dependency realDependency = dependency instanceof OptionalDependency ? ((OptionalDependency) dependency).getOptionalDependency() : dependency;
+        return realDependency instanceof ServiceRegistrationImpl ? ((ServiceRegistrationImpl) realDependency).getInstance() : null;
+    }
+
+    /**
+     * Queue an internal task to be run by the current thread once the controller task it is running is done, instead
+     * of submitting it to the executor.  Tasks which may run user code are never queued.
+     *
+     * @param task the task
+     * @return {@code true} if the task was queued, {@code false} if it must be submitted to the executor
+     */
+    private static boolean queueInline(final Runnable task) {
+        if (ServiceContainerImpl.INLINE_TASK_LIMIT == 0 || ! (task instanceof InternalTask)) {
+            return false;
+        }
+        final InlineTasks inlineTasks = INLINE_TASKS.get();
+        if (! inlineTasks.running || inlineTasks.queue.size() >= ServiceContainerImpl.INLINE_TASK_LIMIT) {
+            return false;
+        }
+        inlineTasks.queue.addLast(task);
+        return true;
     }
 
     public void setMode(final ServiceController.Mode newMode) {
         internalSetMode(null, newMode);
     }
 
+    /**
+     * Begin a bulk install.  Leave the {@code NEW} state and notify the listeners as {@link #setMode} would, but
+     * neither wire the dependencies nor apply a mode yet.  Until {@link #commitBulkInstall} is called, an extra
+     * async task keeps this controller from making any transition.
+     *
+     * @return {@code true} if this call took the controller out of the {@code NEW} state
+     */
+    boolean beginBulkInstall() {
+        assert !lockHeld();
+        final Runnable[] tasks;
+        synchronized (this) {
+            if (state != Substate.NEW) {
+                // someone got hold of this controller early and set its mode already
+                asyncTasksUpdater.incrementAndGet(this);
+                return false;
+            }
+            state = Substate.DOWN;
+            tasks = getListenerTasks(ListenerNotification.LISTENER_ADDED);
+            asyncTasksUpdater.addAndGet(this, tasks.length + 1);
+        }
+        // like setMode's boot tasks, run on the caller's behalf
+        for (Runnable task : tasks) {
+            ((ControllerTask) task).execute();
+        }
+        return true;
+    }
+
+    /**
+     * Add this controller as a dependent of its dependencies from the same batch.  Called once every controller of
+     * the batch is past {@link #beginBulkInstall()}.  A dependency which was begun there has not applied its mode yet,
+     * so it cannot be up, failed or missing a dependency, and wiring to it triggers no notifications.  A dependency
+     * whose mode was set early, making {@code beginBulkInstall()} return {@code false}, may already be in any of
+     * those states; {@link Dependency#addDependent(Dependent)} notifies this controller of it as for any other
+     * dependent.
+     */
+    void wireBatchDependencies() {
+        assert !lockHeld();
+        final Dependency[] dependencies = this.dependencies;
+        for (int i = 0; i < batchDependencies; i++) {
+            dependencies[i].addDependent(this);
+        }
+    }
+
+    /**
+     * Complete a bulk install: apply the initial mode, wire the dependencies from outside the batch, and let the
+     * controller transition.
+     *
+     * @param initialMode the initial service mode
+     * @param begun the value returned by {@link #beginBulkInstall()}
+     */
+    void commitBulkInstall(final ServiceController.Mode initialMode, final boolean begun) {
+        try {
+            internalSetMode(null, initialMode);
+        } finally {
+            if (begun && batchDependencies < dependencies.length) {
+                new InstallTask().execute();
+            } else {
+                asyncTaskDone();
+            }
+        }
+    }
+
+    /**
+     * Set the mode to {@code REMOVE} on behalf of a bulk removal, which is notified once this controller is removed.
+     * A controller takes part in at most one bulk removal.
+     *
+     * @param removal the bulk removal
+     * @return {@code false} if this controller already takes part in another bulk removal, in which case nothing was
+     *      done
+     */
+    boolean bulkRemove(final BulkRemoval removal) {
+        assert !lockHeld();
+        synchronized (this) {
+            if (bulkRemoval != null) {
+                return false;
+            }
+            if (state == Substate.REMOVED) {
+                return true;
+            }
+            removal.add();
+            bulkRemoval = removal;
+        }
+        internalSetMode(null, Mode.REMOVE);
+        return true;
+    }
+
+    /**
+     * Complete the asynchronous stop in progress, if any, as if the service had called {@link StopContext#complete()}.
+     * A later call by the service is ignored.
+     *
+     * @return {@code true} if a stop was completed
+     */
+    boolean forceStop() {
+        assert !lockHeld();
+        final StopContextImpl context;
+        synchronized (this) {
+            context = asyncStop;
+            if (context == null || ! context.force()) {
+                return false;
+            }
+        }
+        context.completed();
+        return true;
+    }
+
     private boolean internalSetMode(final ServiceController.Mode expectedMode, final ServiceController.Mode newMode) {
         assert !lockHeld();
         if (newMode == null) {
@@ -435,7 +777,7 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
             if (oldState == Substate.NEW) {
                 state = Substate.DOWN;
                 bootTasks = getListenerTasks(ListenerNotification.LISTENER_ADDED, new InstallTask());
-                asyncTasks += bootTasks.length;
+                asyncTasksUpdater.addAndGet(this, bootTasks.length);
             }
             final ServiceController.Mode oldMode = mode;
             mode = newMode;
@@ -454,25 +796,25 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
                 case NEVER: {
                     switch (newMode) {
                         case ON_DEMAND: {
-                            if (demandedByCount > 0) {
-                                upperCount++;
+                            if (demanded) {
+                                upperCountUpdater.incrementAndGet(this);
                                 specialTask = new DemandParentsTask();
-                                asyncTasks++;
+                                asyncTasksUpdater.incrementAndGet(this);
                             }
                             break;
                         }
                         case PASSIVE: {
-                            upperCount++;
-                            if (demandedByCount > 0) {
+                            upperCountUpdater.incrementAndGet(this);
+                            if (demanded) {
                                 specialTask = new DemandParentsTask();
-                                asyncTasks++;
+                                asyncTasksUpdater.incrementAndGet(this);
                             }
                             break;
                         }
                         case ACTIVE: {
                             specialTask = new DemandParentsTask();
-                            asyncTasks++;
-                            upperCount++;
+                            asyncTasksUpdater.incrementAndGet(this);
+                            upperCountUpdater.incrementAndGet(this);
                             break;
                         }
                     }
@@ -482,24 +824,24 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
                     switch (newMode) {
                         case REMOVE:
                         case NEVER: {
-                            if (demandedByCount > 0) {
-                                upperCount--;
+                            if (demanded) {
+                                upperCountUpdater.decrementAndGet(this);
                                 specialTask = new UndemandParentsTask();
-                                asyncTasks++;
+                                asyncTasksUpdater.incrementAndGet(this);
                             }
                             break;
                         }
                         case PASSIVE: {
-                            if (demandedByCount == 0) {
-                                upperCount++;
+                            if (! demanded) {
+                                upperCountUpdater.incrementAndGet(this);
                             }
                             break;
                         }
                         case ACTIVE: {
                             specialTask = new DemandParentsTask();
-                            asyncTasks++;
-                            if (demandedByCount == 0) {
-                                upperCount++;
+                            asyncTasksUpdater.incrementAndGet(this);
+                            if (! demanded) {
+                                upperCountUpdater.incrementAndGet(this);
                             }
                             break;
                         }
@@ -510,22 +852,22 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
                     switch (newMode) {
                         case REMOVE:
                         case NEVER: {
-                            if (demandedByCount > 0) {
+                            if (demanded) {
                                 specialTask = new UndemandParentsTask();
-                                asyncTasks++;
+                                asyncTasksUpdater.incrementAndGet(this);
                             }
-                            upperCount--;
+                            upperCountUpdater.decrementAndGet(this);
                             break;
                         }
                         case ON_DEMAND: {
-                            if (demandedByCount == 0) {
-                                upperCount--;
+                            if (! demanded) {
+                                upperCountUpdater.decrementAndGet(this);
                             }
                             break;
                         }
                         case ACTIVE: {
                             specialTask = new DemandParentsTask();
-                            asyncTasks++;
+                            asyncTasksUpdater.incrementAndGet(this);
                             break;
                         }
                     }
@@ -536,22 +878,22 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
                         case REMOVE:
                         case NEVER: {
                             specialTask = new UndemandParentsTask();
-                            asyncTasks++;
-                            upperCount--;
+                            asyncTasksUpdater.incrementAndGet(this);
+                            upperCountUpdater.decrementAndGet(this);
                             break;
                         }
                         case ON_DEMAND: {
-                            if (demandedByCount == 0) {
-                                upperCount--;
+                            if (! demanded) {
+                                upperCountUpdater.decrementAndGet(this);
                                 specialTask = new UndemandParentsTask();
-                                asyncTasks++;
+                                asyncTasksUpdater.incrementAndGet(this);
                             }
                             break;
                         }
                         case PASSIVE: {
-                            if (demandedByCount == 0) {
+                            if (! demanded) {
                                 specialTask = new UndemandParentsTask();
-                                asyncTasks++;
+                                asyncTasksUpdater.incrementAndGet(this);
                             }
                             break;
                         }
@@ -562,8 +904,9 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
             tasks = (oldMode == newMode) ? null : transition();
         }
         if (bootTasks != null) {
+            // run on the caller's behalf, so whatever they submit goes to the executor unless the caller is itself a task
             for (Runnable bootTask : bootTasks) {
-                bootTask.run();
+                ((ControllerTask) bootTask).execute();
             }
         }
         doExecute(tasks);
@@ -583,104 +926,135 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
 
     @Override
     public void dependencyInstalled() {
-        Runnable[] tasks = null;
+        assert ! lockHeld();
+        if (missingDependencyCountUpdater.decrementAndGet(this) != 0) {
+            return;
+        }
+        // we dropped it to 0
+        final Runnable[] tasks;
         synchronized (this) {
-            if (-- missingDependencyCount != 0) {
-                return;
-            }
-            // we dropped it to 0
             tasks = getListenerTasks(ListenerNotification.DEPENDENCY_INSTALLED,
                     new DependencyInstalledTask(getDependents()));
-            asyncTasks += tasks.length;
+            asyncTasksUpdater.addAndGet(this, tasks.length);
         }
         doExecute(tasks);
     }
 
     @Override
     public void dependencyUninstalled() {
-        Runnable[] tasks = null;
+        assert ! lockHeld();
+        if (missingDependencyCountUpdater.incrementAndGet(this) != 1) {
+            return;
+        }
+        // we raised it to 1
+        final Runnable[] tasks;
         synchronized (this) {
-            if (++ missingDependencyCount != 1) {
-                return;
-            }
-            // we raised it to 1
             tasks = getListenerTasks(ListenerNotification.MISSING_DEPENDENCY,
                     new DependencyUninstalledTask(getDependents()));
-            asyncTasks += tasks.length;
+            asyncTasksUpdater.addAndGet(this, tasks.length);
         }
         doExecute(tasks);
     }
 
     @Override
     public void immediateDependencyUp() {
-        Runnable[] tasks = null;
-        synchronized (this) {
-            if (++upperCount != 1) {
-                return;
-            }
-            // we raised it to 1
-            tasks = transition();
+        if (! deferUpperCount(1)) {
+            adjustUpperCount(1);
         }
-        doExecute(tasks);
     }
 
     @Override
     public void immediateDependencyDown() {
-        Runnable[] tasks = null;
+        if (! deferUpperCount(-1)) {
+            adjustUpperCount(-1);
+        }
+    }
+
+    /**
+     * Apply a change to {@code upperCount}, running a transition only if the count crossed zero.
+     *
+     * @param delta the change
+     */
+    private void adjustUpperCount(final int delta) {
+        assert ! lockHeld();
+        final int newCount = upperCountUpdater.addAndGet(this, delta);
+        if ((newCount - delta > 0) == (newCount > 0)) {
+            return;
+        }
+        final Runnable[] tasks;
         synchronized (this) {
-            if (--upperCount != 0) {
-                return;
-            }
-            // we dropped it below 0
             tasks = transition();
         }
         doExecute(tasks);
     }
 
+    /**
+     * If the current thread is running a {@link DependencyStartedTask} or {@link DependencyStoppedTask}, record a
+     * change to {@code upperCount} to be applied before the next task of any other kind runs.  Changes to the same
+     * controller are summed, so a wave of dependencies coming up or down results in one update and at most one
+     * transition per dependent.  The notifying controllers are held until then; see {@link #upperCountTaskDone()}.
+     *
+     * @param delta the change
+     * @return {@code true} if the change was recorded, {@code false} if it must be applied now
+     */
+    private boolean deferUpperCount(final int delta) {
+        final InlineTasks inlineTasks = INLINE_TASKS.get();
+        if (! inlineTasks.coalescing) {
+            return false;
+        }
+        final int[] pending = inlineTasks.upperCountDeltas.get(this);
+        if (pending == null) {
+            inlineTasks.upperCountDeltas.put(this, new int[] { delta });
+        } else {
+            pending[0] += delta;
+        }
+        return true;
+    }
+
     @Override
     public void dependencyFailed() {
-        Runnable[] tasks = null;
+        assert ! lockHeld();
+        if (failCountUpdater.incrementAndGet(this) != 1) {
+            return;
+        }
+        // we raised it to 1
+        final Runnable[] tasks;
         synchronized (this) {
-            if (++failCount != 1) {
-                return;
-            }
-            // we raised it to 1
             tasks = getListenerTasks(ListenerNotification.DEPENDENCY_FAILURE,
                     new DependencyFailedTask(getDependents()));
-            asyncTasks += tasks.length;
+            asyncTasksUpdater.addAndGet(this, tasks.length);
         }
         doExecute(tasks);
     }
 
     @Override
     public void dependencyFailureCleared() {
-        Runnable[] tasks = null;
+        assert ! lockHeld();
+        if (failCountUpdater.decrementAndGet(this) != 0) {
+            return;
+        }
+        // we dropped it to 0
+        final Runnable[] tasks;
         synchronized (this) {
-            if (--failCount != 0) {
-                return;
-            }
-            // we dropped it to 0
             tasks = getListenerTasks(ListenerNotification.DEPENDENCY_FAILURE_CLEAR,
                     new DependencyRetryingTask(getDependents()));
-            asyncTasks += tasks.length;
+            asyncTasksUpdater.addAndGet(this, tasks.length);
         }
         doExecute(tasks);
     }
 
     void dependentStarted() {
         assert ! lockHeld();
-        synchronized (this) {
-            runningDependents++;
-        }
+        runningDependentsUpdater.incrementAndGet(this);
     }
 
     void dependentStopped() {
         assert ! lockHeld();
+        if (runningDependentsUpdater.decrementAndGet(this) != 0) {
+            return;
+        }
         final Runnable[] tasks;
         synchronized (this) {
-            if (--runningDependents != 0) {
-                return;
-            }
             tasks = transition();
         }
         doExecute(tasks);
@@ -699,13 +1073,13 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
                     tasks = new Runnable[1];
                 }
                 tasks[0] = new DependencyFailedTask(dependents);
-                asyncTasks += tasks.length;
+                asyncTasksUpdater.addAndGet(this, tasks.length);
             } else if (missingDependencyCount > 0) {
                 tasks = new Runnable[]{new DependencyUninstalledTask(new Dependent[][]{{dependent}})};
-                asyncTasks ++;
+                asyncTasksUpdater.incrementAndGet(this);
             } else if (state == Substate.UP){
                 tasks = new Runnable[]{new DependencyStartedTask(new Dependent[][]{{dependent}})};
-                asyncTasks ++;
+                asyncTasksUpdater.incrementAndGet(this);
             } else {
                 tasks = null;
             }
@@ -733,43 +1107,50 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
 
     void addDemands(final int demandedByCount) {
         assert ! lockHeld();
-        final Runnable[] tasks;
-        final boolean propagate;
-        synchronized (this) {
-            final int cnt = this.demandedByCount;
-            this.demandedByCount += demandedByCount;
-            propagate = cnt == 0 && mode.compareTo(Mode.NEVER) > 0;
-            if (cnt == 0 && mode == Mode.ON_DEMAND) {
-                upperCount++;
-                tasks = transition();
-            } else {
-                // no change
-                tasks = null;
-            }
-            if (propagate) asyncTasks++;
+        if (demandedByCountUpdater.getAndAdd(this, demandedByCount) != 0) {
+            return;
         }
-        doExecute(tasks);
-        if (propagate) doExecute(new DemandParentsTask());
+        demandChanged();
     }
 
     void removeDemand() {
         assert ! lockHeld();
+        if (demandedByCountUpdater.decrementAndGet(this) != 0) {
+            return;
+        }
+        demandChanged();
+    }
+
+    /**
+     * Bring {@link #demanded} in line with {@link #demandedByCount} after the count crossed zero.  Concurrent
+     * crossings may arrive in any order; each compares the current count with the applied state, so a demand which
+     * was added and removed again before either caller got the lock has no effect.
+     */
+    private void demandChanged() {
         final Runnable[] tasks;
-        final boolean propagate;
+        final Runnable propagateTask;
         synchronized (this) {
-            final int cnt = --demandedByCount;
-            propagate = cnt == 0 && (mode == Mode.ON_DEMAND || mode == Mode.PASSIVE);
-            if (cnt == 0 && mode == Mode.ON_DEMAND) {
-                upperCount--;
+            final boolean demanded = demandedByCount > 0;
+            if (demanded == this.demanded) {
+                return;
+            }
+            this.demanded = demanded;
+            if (demanded) {
+                propagateTask = mode.compareTo(Mode.NEVER) > 0 ? new DemandParentsTask() : null;
+            } else {
+                propagateTask = mode == Mode.ON_DEMAND || mode == Mode.PASSIVE ? new UndemandParentsTask() : null;
+            }
+            if (mode == Mode.ON_DEMAND) {
+                upperCountUpdater.addAndGet(this, demanded ? 1 : -1);
                 tasks = transition();
             } else {
                 // no change
                 tasks = null;
             }
-            if (propagate) asyncTasks++;
+            if (propagateTask != null) asyncTasksUpdater.incrementAndGet(this);
         }
         doExecute(tasks);
-        if (propagate) doExecute(new UndemandParentsTask());
+        doExecute(propagateTask);
     }
 
     public ServiceContainer getServiceContainer() {
@@ -818,9 +1199,9 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
                     // Duplicates not allowed
                     throw new IllegalArgumentException("Listener " + listener + " already present on controller for " + primaryRegistration.getName());
                 }
-                asyncTasks ++;
+                asyncTasksUpdater.incrementAndGet(this);
             } else {
-                asyncTasks += 2;
+                asyncTasksUpdater.addAndGet(this, 2);
             }
         }
         invokeListener(listener, ListenerNotification.LISTENER_ADDED, null);
@@ -849,7 +1230,7 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
                 return;
             }
             startException = null;
-            failCount --;
+            failCountUpdater.decrementAndGet(this);
             tasks = transition();
         }
         doExecute(tasks);
@@ -915,6 +1296,13 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
         }
     }
 
+    ServiceTimings getTimings() {
+        final String name = primaryRegistration.getName().getCanonicalName();
+        synchronized (this) {
+            return new ServiceTimings(name, startDuration, stopDuration, dependencyWaitDuration, listenerDuration);
+        }
+    }
+
     private static enum ListenerNotification {
         /** Notify the listener that is has been added. */
         LISTENER_ADDED,
@@ -988,12 +1376,7 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
         } catch (Throwable t) {
             ServiceLogger.INSTANCE.listenerFailed(t, listener);
         } finally {
-            final Runnable[] tasks;
-            synchronized (this) {
-                asyncTasks--;
-                tasks = transition();
-            }
-            doExecute(tasks);
+            asyncTaskDone();
         }
     }
 
@@ -1012,25 +1395,21 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
     }
 
     /**
-     * Returns a compiled array of all dependents of this service instance.
+     * Returns the dependents of this service instance, one snapshot array per registration.  The arrays are shared
+     * and must not be modified.
      * 
      * @return an array of dependents
      */
     private Dependent[][] getDependents() {
-        if (aliasRegistrations.length == 0) {
-            synchronized (primaryRegistration.getDependentsLock()) {
-                return new Dependent[][] {primaryRegistration.getDependents().toScatteredArray(NO_DEPENDENTS)};
-            }
-        }
-        Dependent[][] dependents = new Dependent[aliasRegistrations.length + 1][];
-        synchronized (primaryRegistration.getDependentsLock()) {
-            dependents[0] = primaryRegistration.getDependents().toScatteredArray(NO_DEPENDENTS);
+        final ServiceRegistrationImpl[] aliasRegistrations = this.aliasRegistrations;
+        final int aliasLength = aliasRegistrations.length;
+        if (aliasLength == 0) {
+            return new Dependent[][] {primaryRegistration.getDependents()};
         }
-        for (int i = 0; i < aliasRegistrations.length; i++) {
-            ServiceRegistrationImpl alias = aliasRegistrations[i];
-            synchronized (alias.getDependentsLock()) {
-                dependents[i + 1] = alias.getDependents().toScatteredArray(NO_DEPENDENTS);
-            }
+        final Dependent[][] dependents = new Dependent[aliasLength + 1][];
+        dependents[0] = primaryRegistration.getDependents();
+        for (int i = 0; i < aliasLength; i++) {
+            dependents[i + 1] = aliasRegistrations[i].getDependents();
         }
         return dependents;
     }
@@ -1046,84 +1425,284 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
         injection.getTarget().inject(injection.getSource().getValue());
     }
 
+    private int getInjectionCount() {
+        return injections.length + dependencyInjectors.length;
+    }
+
+    /**
+     * Perform an injection.
+     *
+     * @param i the injection number, counting the value injections first, then the injections of dependencies
+     */
+    private void doInject(final int i) {
+        final int valueInjections = injections.length;
+        if (i < valueInjections) {
+            doInject(injections[i]);
+        } else {
+            final int j = i - valueInjections;
+            dependencyInjectors[j].inject(dependencies[injectedDependencies[j]].getValue());
+        }
+    }
+
+    private void doUninject(final int i) {
+        final int valueInjections = injections.length;
+        if (i < valueInjections) {
+            injections[i].getTarget().uninject();
+        } else {
+            dependencyInjectors[i - valueInjections].uninject();
+        }
+    }
+
+    /**
+     * Get an injection as an object, to report it.
+     *
+     * @param i the injection number
+     * @return the injection
+     */
+    private ValueInjection<?> getInjection(final int i) {
+        final int valueInjections = injections.length;
+        if (i < valueInjections) {
+            return injections[i];
+        } else {
+            final int j = i - valueInjections;
+            return new ValueInjection<Object>(dependencies[injectedDependencies[j]], dependencyInjectors[j]);
+        }
+    }
+
     @Override
     public String toString() {
         return String.format("Controller for %s@%x", getName(), Integer.valueOf(hashCode()));
     }
 
-    private class DemandParentsTask implements Runnable {
+    /**
+     * The internal tasks queued by the current thread, to be run after the controller task it is running.
+     */
+    private static final class InlineTasks {
+        private final ArrayDeque<Runnable> queue = new ArrayDeque<Runnable>();
+        private final IdentityHashMap<ServiceInstanceImpl<?>, int[]> upperCountDeltas = new IdentityHashMap<ServiceInstanceImpl<?>, int[]>();
+        private final ArrayList<ServiceInstanceImpl<?>> heldControllers = new ArrayList<ServiceInstanceImpl<?>>();
+        private boolean running;
+        private boolean coalescing;
+        private boolean lifecycle;
+
+        /**
+         * Run a controller task.  If it only changes dependency up/down counts, the changes are deferred; otherwise
+         * the changes deferred so far are applied first, so they are never reordered with respect to the other
+         * notifications.
+         *
+         * @param task the task
+         */
+        void execute(final ControllerTask task) {
+            final boolean coalescing = this.coalescing;
+            this.coalescing = ServiceContainerImpl.INLINE_TASK_LIMIT != 0 && task.coalescesUpperCounts();
+            if (! this.coalescing) {
+                flushUpperCounts();
+            }
+            try {
+                task.execute();
+            } finally {
+                this.coalescing = coalescing;
+            }
+        }
+
+        /**
+         * Run the queued tasks and apply the deferred count changes, until neither is left.
+         */
+        void drain() {
+            for (;;) {
+                Runnable task;
+                while ((task = queue.pollFirst()) != null) {
+                    try {
+                        if (task instanceof InternalTask) {
+                            execute((ControllerTask) task);
+                        } else {
+                            executeUserTask((ControllerTask) task);
+                        }
+                    } catch (Throwable t) {
+                        ServiceLogger.INSTANCE.uncaughtException(t);
+                    }
+                }
+                if (upperCountDeltas.isEmpty() && heldControllers.isEmpty()) {
+                    return;
+                }
+                flushUpperCounts();
+            }
+        }
 
-        public void run() {
+        /**
+         * Run a task which runs user code.  The user code may wait for tasks it triggers, so it runs in an inline
+         * context of its own, where nothing is held back on this thread.
+         *
+         * @param task the task
+         */
+        void executeUserTask(final ControllerTask task) {
+            flushUpperCounts();
+            INLINE_TASKS.set(new InlineTasks());
             try {
-                doDemandParents();
-                final Runnable[] tasks;
-                synchronized (ServiceInstanceImpl.this) {
-                    asyncTasks--;
-                    tasks = transition();
+                task.execute();
+            } finally {
+                INLINE_TASKS.set(this);
+            }
+        }
+
+        private void flushUpperCounts() {
+            if (! upperCountDeltas.isEmpty()) {
+                final Map.Entry<?, ?>[] entries = upperCountDeltas.entrySet().toArray(new Map.Entry<?, ?>[upperCountDeltas.size()]);
+                upperCountDeltas.clear();
+                for (Map.Entry<?, ?> entry : entries) {
+                    final int delta = ((int[]) entry.getValue())[0];
+                    if (delta != 0) try {
+                        ((ServiceInstanceImpl<?>) entry.getKey()).adjustUpperCount(delta);
+                    } catch (Throwable t) {
+                        ServiceLogger.INSTANCE.uncaughtException(t);
+                    }
                 }
-                doExecute(tasks);
+            }
+            if (! heldControllers.isEmpty()) {
+                final ServiceInstanceImpl<?>[] controllers = heldControllers.toArray(new ServiceInstanceImpl<?>[heldControllers.size()]);
+                heldControllers.clear();
+                for (ServiceInstanceImpl<?> controller : controllers) try {
+                    controller.asyncTaskDone();
+                } catch (Throwable t) {
+                    ServiceLogger.INSTANCE.uncaughtException(t);
+                }
+            }
+        }
+    }
+
+    private static final ThreadLocal<InlineTasks> INLINE_TASKS = new ThreadLocal<InlineTasks>() {
+        protected InlineTasks initialValue() {
+            return new InlineTasks();
+        }
+    };
+
+    /**
+     * A task of a service controller.  When an internal task is run by a thread that is not already running one, the
+     * internal tasks queued during its execution are run on the same thread right after it, in submission order.  No
+     * locks are held at that point.  A task which runs user code never queues tasks this way, since the user code may
+     * wait for them; if such a task is run while an internal task is running, for example because the executor
+     * rejected it, it is run after that task, as it may hold locks.  A thread of a separate lifecycle executor never
+     * runs internal tasks this way: one it runs because the container executor rejected it is run on its own, and
+     * the tasks it submits go back to the container executor.
+     */
+    abstract static class ControllerTask implements Runnable {
+
+        public final void run() {
+            final InlineTasks inlineTasks = INLINE_TASKS.get();
+            if (! (this instanceof InternalTask)) {
+                if (inlineTasks.running) {
+                    inlineTasks.queue.addLast(this);
+                } else if (runsOnLifecycleExecutor()) {
+                    final boolean lifecycle = inlineTasks.lifecycle;
+                    inlineTasks.lifecycle = true;
+                    try {
+                        inlineTasks.execute(this);
+                    } finally {
+                        inlineTasks.lifecycle = lifecycle;
+                    }
+                } else {
+                    inlineTasks.execute(this);
+                }
+                return;
+            }
+            if (inlineTasks.running || inlineTasks.lifecycle) {
+                inlineTasks.execute(this);
+                return;
+            }
+            inlineTasks.running = true;
+            try {
+                inlineTasks.execute(this);
+            } finally {
+                try {
+                    inlineTasks.drain();
+                } finally {
+                    inlineTasks.running = false;
+                }
+            }
+        }
+
+        abstract void execute();
+
+        /**
+         * Determine whether this task only notifies dependents that a dependency went up or down, in which case the
+         * resulting count changes may be summed per dependent.
+         *
+         * @return {@code true} if the count changes made by this task may be deferred
+         */
+        boolean coalescesUpperCounts() {
+            return false;
+        }
+
+        /**
+         * Determine whether this task is submitted to a lifecycle executor other than the container executor.
+         *
+         * @return {@code true} if this task is run by a separate lifecycle executor
+         */
+        boolean runsOnLifecycleExecutor() {
+            return false;
+        }
+    }
+
+    /**
+     * A controller task which only updates the bookkeeping of this and neighbouring controllers, and never runs user
+     * code; such tasks are eligible for inline execution.
+     */
+    abstract static class InternalTask extends ControllerTask {
+    }
+
+    private class DemandParentsTask extends InternalTask {
+
+        void execute() {
+            try {
+                doDemandParents();
+                asyncTaskDone();
             } catch (Throwable t) {
                 ServiceLogger.INSTANCE.internalServiceError(t, primaryRegistration.getName());
             }
         }
     }
 
-    private class UndemandParentsTask implements Runnable {
+    private class UndemandParentsTask extends InternalTask {
 
-        public void run() {
+        void execute() {
             try {
                 doUndemandParents();
-                final Runnable[] tasks;
-                synchronized (ServiceInstanceImpl.this) {
-                    asyncTasks--;
-                    tasks = transition();
-                }
-                doExecute(tasks);
+                asyncTaskDone();
             } catch (Throwable t) {
                 ServiceLogger.INSTANCE.internalServiceError(t, primaryRegistration.getName());
             }
         }
     }
 
-    private class DependentStoppedTask implements Runnable {
+    private class DependentStoppedTask extends InternalTask {
 
-        public void run() {
+        void execute() {
             try {
                 for (Dependency dependency : dependencies) {
                     dependency.dependentStopped();
                 }
-                final Runnable[] tasks;
-                synchronized (ServiceInstanceImpl.this) {
-                    asyncTasks--;
-                    tasks = transition();
-                }
-                doExecute(tasks);
+                asyncTaskDone();
             } catch (Throwable t) {
                 ServiceLogger.INSTANCE.internalServiceError(t, primaryRegistration.getName());
             }
         }
     }
 
-    private class DependentStartedTask implements Runnable {
+    private class DependentStartedTask extends InternalTask {
 
-        public void run() {
+        void execute() {
             try {
                 for (Dependency dependency : dependencies) {
                     dependency.dependentStarted();
                 }
-                final Runnable[] tasks;
-                synchronized (ServiceInstanceImpl.this) {
-                    asyncTasks--;
-                    tasks = transition();
-                }
-                doExecute(tasks);
+                asyncTaskDone();
             } catch (Throwable t) {
                 ServiceLogger.INSTANCE.internalServiceError(t, primaryRegistration.getName());
             }
         }
     }
 
-    private class StartTask implements Runnable {
+    private class StartTask extends ControllerTask {
 
         private final boolean doInjection;
 
@@ -1131,27 +1710,29 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
             this.doInjection = doInjection;
         }
 
-        public void run() {
+        boolean runsOnLifecycleExecutor() {
+            return hasLifecycleExecutor();
+        }
+
+        void execute() {
             assert !lockHeld();
             final ServiceName serviceName = primaryRegistration.getName();
             final long startNanos = System.nanoTime();
             final StartContextImpl context = new StartContextImpl(startNanos);
             try {
                 if (doInjection) {
-                    final ValueInjection<?>[] injections = ServiceInstanceImpl.this.injections;
-                    final int injectionsLength = injections.length;
+                    final int injectionsLength = getInjectionCount();
                     boolean ok = false;
                     int i = 0;
                     try {
                         for (; i < injectionsLength; i++) {
-                            final ValueInjection<?> injection = injections[i];
-                            doInject(injection);
+                            doInject(i);
                         }
                         ok = true;
                     } finally {
                         if (! ok) {
                             for (; i >= 0; i--) {
-                                injections[i].getTarget().uninject();
+                                doUninject(i);
                             }
                         }
                     }
@@ -1167,10 +1748,8 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
                         return;
                     }
                     context.state = ContextState.COMPLETE;
-                    asyncTasks--;
-                    if (ServiceContainerImpl.PROFILE_OUTPUT != null) {
-                        writeProfileInfo('S', startNanos, System.nanoTime());
-                    }
+                    asyncTasksUpdater.decrementAndGet(ServiceInstanceImpl.this);
+                    recordTiming('S', startNanos);
                     tasks = transition();
                 }
                 doExecute(tasks);
@@ -1185,12 +1764,10 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
                         return;
                     }
                     context.state = ContextState.FAILED;
-                    asyncTasks--;
+                    asyncTasksUpdater.decrementAndGet(ServiceInstanceImpl.this);
                     startException = e;
-                    if (ServiceContainerImpl.PROFILE_OUTPUT != null) {
-                        writeProfileInfo('F', startNanos, System.nanoTime());
-                    }
-                    failCount++;
+                    recordTiming('F', startNanos);
+                    failCountUpdater.incrementAndGet(ServiceInstanceImpl.this);
                     tasks = transition();
                 }
                 doExecute(tasks);
@@ -1203,12 +1780,10 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
                         return;
                     }
                     context.state = ContextState.FAILED;
-                    asyncTasks--;
+                    asyncTasksUpdater.decrementAndGet(ServiceInstanceImpl.this);
                     ServiceLogger.INSTANCE.startFailed(startException = new StartException("Failed to start service", t, location, serviceName), serviceName);
-                    if (ServiceContainerImpl.PROFILE_OUTPUT != null) {
-                        writeProfileInfo('F', startNanos, System.nanoTime());
-                    }
-                    failCount ++;
+                    recordTiming('F', startNanos);
+                    failCountUpdater.incrementAndGet(ServiceInstanceImpl.this);
                     tasks = transition();
                 }
                 doExecute(tasks);
@@ -1216,14 +1791,18 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
         }
     }
 
-    private class StopTask implements Runnable {
+    private class StopTask extends ControllerTask {
         private final boolean onlyUninject;
 
         StopTask(final boolean onlyUninject) {
             this.onlyUninject = onlyUninject;
         }
 
-        public void run() {
+        boolean runsOnLifecycleExecutor() {
+            return hasLifecycleExecutor();
+        }
+
+        void execute() {
             assert !lockHeld();
             final ServiceName serviceName = primaryRegistration.getName();
             final long startNanos = System.nanoTime();
@@ -1253,16 +1832,15 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
                     }
                     context.state = ContextState.COMPLETE;
                 }
-                for (ValueInjection<?> injection : injections) try {
-                    injection.getTarget().uninject();
+                final int injectionsLength = getInjectionCount();
+                for (int i = 0; i < injectionsLength; i++) try {
+                    doUninject(i);
                 } catch (Throwable t) {
-                    ServiceLogger.INSTANCE.uninjectFailed(t, serviceName, injection);
+                    ServiceLogger.INSTANCE.uninjectFailed(t, serviceName, getInjection(i));
                 }
                 synchronized (ServiceInstanceImpl.this) {
-                    asyncTasks--;
-                    if (ServiceContainerImpl.PROFILE_OUTPUT != null) {
-                        writeProfileInfo('X', startNanos, System.nanoTime());
-                    }
+                    asyncTasksUpdater.decrementAndGet(ServiceInstanceImpl.this);
+                    recordTiming('X', startNanos);
                     tasks = transition();
                 }
                 doExecute(tasks);
@@ -1270,7 +1848,7 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
         }
     }
 
-    private class ListenerTask implements Runnable {
+    private class ListenerTask extends ControllerTask {
 
         private final ListenerNotification notification;
         private final ServiceListener<? super S> listener;
@@ -1288,14 +1866,14 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
             this.notification = notification;
         }
 
-        public void run() {
+        void execute() {
             assert !lockHeld();
-            if (ServiceContainerImpl.PROFILE_OUTPUT != null) {
+            if (ServiceContainerImpl.PROFILE_OUTPUT != null || primaryRegistration.getContainer().isTimingMetrics()) {
                 final long start = System.nanoTime();
                 try {
                     invokeListener(listener, notification, state);
                 } finally {
-                    writeProfileInfo('L', start, System.nanoTime());
+                    recordTiming('L', start);
                 }
             } else {
                 invokeListener(listener, notification, state);
@@ -1303,7 +1881,25 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
         }
     }
 
-    private class DependencyStartedTask implements Runnable {
+    private class BulkRemovalCompleteTask extends ControllerTask {
+
+        private final BulkRemoval bulkRemoval;
+
+        BulkRemovalCompleteTask(final BulkRemoval bulkRemoval) {
+            this.bulkRemoval = bulkRemoval;
+        }
+
+        void execute() {
+            assert !lockHeld();
+            try {
+                bulkRemoval.complete();
+            } finally {
+                asyncTaskDone();
+            }
+        }
+    }
+
+    private class DependencyStartedTask extends InternalTask {
 
         private final Dependent[][] dependents;
 
@@ -1311,26 +1907,25 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
             this.dependents = dependents;
         }
 
-        public void run() {
+        boolean coalescesUpperCounts() {
+            return true;
+        }
+
+        void execute() {
             try {
                 for (Dependent[] dependentArray : dependents) {
                     for (Dependent dependent : dependentArray) {
-                        if (dependent != null) dependent.immediateDependencyUp();
+                        dependent.immediateDependencyUp();
                     }
                 }
-                final Runnable[] tasks;
-                synchronized (ServiceInstanceImpl.this) {
-                    asyncTasks--;
-                    tasks = transition();
-                }
-                doExecute(tasks);
+                upperCountTaskDone();
             } catch (Throwable t) {
                 ServiceLogger.INSTANCE.internalServiceError(t, primaryRegistration.getName());
             }
         }
     }
 
-    private class DependencyStoppedTask implements Runnable {
+    private class DependencyStoppedTask extends InternalTask {
 
         private final Dependent[][] dependents;
 
@@ -1338,26 +1933,25 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
             this.dependents = dependents;
         }
 
-        public void run() {
+        boolean coalescesUpperCounts() {
+            return true;
+        }
+
+        void execute() {
             try {
                 for (Dependent[] dependentArray : dependents) {
                     for (Dependent dependent : dependentArray) {
-                        if (dependent != null) dependent.immediateDependencyDown();
+                        dependent.immediateDependencyDown();
                     }
                 }
-                final Runnable[] tasks;
-                synchronized (ServiceInstanceImpl.this) {
-                    asyncTasks--;
-                    tasks = transition();
-                }
-                doExecute(tasks);
+                upperCountTaskDone();
             } catch (Throwable t) {
                 ServiceLogger.INSTANCE.internalServiceError(t, primaryRegistration.getName());
             }
         }
     }
 
-    private class DependencyFailedTask implements Runnable {
+    private class DependencyFailedTask extends InternalTask {
 
         private final Dependent[][] dependents;
 
@@ -1365,26 +1959,21 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
             this.dependents = dependents;
         }
 
-        public void run() {
+        void execute() {
             try {
                 for (Dependent[] dependentArray : dependents) {
                     for (Dependent dependent : dependentArray) {
-                        if (dependent != null) dependent.dependencyFailed();
+                        dependent.dependencyFailed();
                     }
                 }
-                final Runnable[] tasks;
-                synchronized (ServiceInstanceImpl.this) {
-                    asyncTasks--;
-                    tasks = transition();
-                }
-                doExecute(tasks);
+                asyncTaskDone();
             } catch (Throwable t) {
                 ServiceLogger.INSTANCE.internalServiceError(t, primaryRegistration.getName());
             }
         }
     }
 
-    private class DependencyRetryingTask implements Runnable {
+    private class DependencyRetryingTask extends InternalTask {
 
         private final Dependent[][] dependents;
 
@@ -1392,26 +1981,21 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
             this.dependents = dependents;
         }
 
-        public void run() {
+        void execute() {
             try {
                 for (Dependent[] dependentArray : dependents) {
                     for (Dependent dependent : dependentArray) {
-                        if (dependent != null) dependent.dependencyFailureCleared();
+                        dependent.dependencyFailureCleared();
                     }
                 }
-                final Runnable[] tasks;
-                synchronized (ServiceInstanceImpl.this) {
-                    asyncTasks--;
-                    tasks = transition();
-                }
-                doExecute(tasks);
+                asyncTaskDone();
             } catch (Throwable t) {
                 ServiceLogger.INSTANCE.internalServiceError(t, primaryRegistration.getName());
             }
         }
     }
 
-    private class DependencyInstalledTask implements Runnable {
+    private class DependencyInstalledTask extends InternalTask {
 
         private final Dependent[][] dependents;
 
@@ -1419,26 +2003,21 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
             this.dependents = dependents;
         }
 
-        public void run() {
+        void execute() {
             try {
                 for (Dependent[] dependentArray : dependents) {
                     for (Dependent dependent : dependentArray) {
-                        if (dependent != null) dependent.dependencyInstalled();
+                        dependent.dependencyInstalled();
                     }
                 }
-                final Runnable[] tasks;
-                synchronized (ServiceInstanceImpl.this) {
-                    asyncTasks--;
-                    tasks = transition();
-                }
-                doExecute(tasks);
+                asyncTaskDone();
             } catch (Throwable t) {
                 ServiceLogger.INSTANCE.internalServiceError(t, primaryRegistration.getName());
             }
         }
     }
 
-    private class DependencyUninstalledTask implements Runnable {
+    private class DependencyUninstalledTask extends InternalTask {
 
         private final Dependent[][] dependents;
 
@@ -1446,67 +2025,58 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
             this.dependents = dependents;
         }
 
-        public void run() {
+        void execute() {
             try {
                 for (Dependent[] dependentArray : dependents) {
                     for (Dependent dependent : dependentArray) {
-                        if (dependent != null) dependent.dependencyUninstalled();
+                        dependent.dependencyUninstalled();
                     }
                 }
-                final Runnable[] tasks;
-                synchronized (ServiceInstanceImpl.this) {
-                    asyncTasks--;
-                    tasks = transition();
-                }
-                doExecute(tasks);
+                asyncTaskDone();
             } catch (Throwable t) {
                 ServiceLogger.INSTANCE.internalServiceError(t, primaryRegistration.getName());
             }
         }
     }
 
-    private class InstallTask implements Runnable {
+    private class InstallTask extends InternalTask {
 
         private InstallTask() {
         }
 
-        public void run() {
+        void execute() {
             try {
-                for (Dependency dependency : dependencies) {
-                    dependency.addDependent(ServiceInstanceImpl.this);
-                }
-                final Runnable[] tasks;
-                synchronized (ServiceInstanceImpl.this) {
-                    asyncTasks--;
-                    tasks = transition();
+                final Dependency[] dependencies = ServiceInstanceImpl.this.dependencies;
+                for (int i = batchDependencies; i < dependencies.length; i++) {
+                    dependencies[i].addDependent(ServiceInstanceImpl.this);
                 }
-                doExecute(tasks);
+                asyncTaskDone();
             } catch (Throwable t) {
                 ServiceLogger.INSTANCE.internalServiceError(t, primaryRegistration.getName());
             }
         }
     }
 
-    private class RemoveTask implements Runnable {
+    private class RemoveTask extends InternalTask {
 
         RemoveTask() {
         }
 
-        public void run() {
+        void execute() {
             try {
                 assert getMode() == ServiceController.Mode.REMOVE;
                 assert getSubstate() == Substate.REMOVING;
                 if (failCount > 0) {
                     for (Dependent[] dependentArray: getDependents()) {
                         for (Dependent dependent: dependentArray) {
-                            if (dependent != null) dependent.dependencyFailureCleared();
+                            dependent.dependencyFailureCleared();
                         }
                     }
                 }
                 if (missingDependencyCount > 0) {
                     for (Dependent[] dependentArray: getDependents()) {
                         for (Dependent dependent: dependentArray) {
-                            if (dependent != null) dependent.dependencyInstalled();
+                            dependent.dependencyInstalled();
                         }
                     }
                 }
@@ -1517,12 +2087,7 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
                 for (Dependency dependency : dependencies) {
                     dependency.removeDependent(ServiceInstanceImpl.this);
                 }
-                final Runnable[] tasks;
-                synchronized (ServiceInstanceImpl.this) {
-                    asyncTasks--;
-                    tasks = transition();
-                }
-                doExecute(tasks);
+                asyncTaskDone();
             } catch (Throwable t) {
                 ServiceLogger.INSTANCE.internalServiceError(t, primaryRegistration.getName());
             }
@@ -1550,11 +2115,9 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
                 reason.setServiceName(serviceName);
                 ServiceLogger.INSTANCE.startFailed(reason, serviceName);
                 startException = reason;
-                failCount ++;
-                asyncTasks--;
-                if (ServiceContainerImpl.PROFILE_OUTPUT != null) {
-                    writeProfileInfo('F', startNanos, System.nanoTime());
-                }
+                failCountUpdater.incrementAndGet(ServiceInstanceImpl.this);
+                asyncTasksUpdater.decrementAndGet(ServiceInstanceImpl.this);
+                recordTiming('F', startNanos);
                 tasks = transition();
             }
             doExecute(tasks);
@@ -1577,10 +2140,8 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
                     throw new IllegalStateException(ILLEGAL_CONTROLLER_STATE);
                 } else {
                     state = ContextState.COMPLETE;
-                    asyncTasks--;
-                    if (ServiceContainerImpl.PROFILE_OUTPUT != null) {
-                        writeProfileInfo('S', startNanos, System.nanoTime());
-                    }
+                    asyncTasksUpdater.decrementAndGet(ServiceInstanceImpl.this);
+                    recordTiming('S', startNanos);
                     tasks = transition();
                 }
             }
@@ -1596,20 +2157,40 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
         }
     }
 
-    private void writeProfileInfo(final char statusChar, final long startNanos, final long endNanos) {
-        final ServiceRegistrationImpl primaryRegistration = this.primaryRegistration;
-        final ServiceName name = primaryRegistration.getName();
+    private void recordTiming(final char statusChar, final long startNanos) {
         final ServiceContainerImpl container = primaryRegistration.getContainer();
-        final Writer profileOutput = container.getProfileOutput();
-        if (profileOutput != null) {
-            synchronized (profileOutput) {
-                try {
-                    final long startOffset = startNanos - container.getStart();
-                    final long duration = endNanos - startNanos;
-                    profileOutput.write(String.format("%s\t%s\t%d\t%d\n", name.getCanonicalName(), Character.valueOf(statusChar), Long.valueOf(startOffset), Long.valueOf(duration)));
-                } catch (IOException e) {
-                    // ignore
+        final boolean timingMetrics = container.isTimingMetrics();
+        if (! timingMetrics && ServiceContainerImpl.PROFILE_OUTPUT == null) {
+            return;
+        }
+        final long endNanos = System.nanoTime();
+        if (timingMetrics) {
+            final long duration = Math.max(0L, endNanos - startNanos);
+            switch (statusChar) {
+                case 'S':
+                case 'F': {
+                    assert lockHeld();
+                    startDuration = duration;
+                    container.getStartTimes().record(duration);
+                    break;
                 }
+                case 'X': {
+                    assert lockHeld();
+                    stopDuration = duration;
+                    container.getStopTimes().record(duration);
+                    break;
+                }
+                case 'L': {
+                    listenerDurationUpdater.addAndGet(this, duration);
+                    container.getListenerTimes().record(duration);
+                    break;
+                }
+            }
+        }
+        if (ServiceContainerImpl.PROFILE_OUTPUT != null) {
+            final ProfileWriter profileWriter = container.getProfileWriter();
+            if (profileWriter != null) {
+                profileWriter.record(statusChar, primaryRegistration.getName(), startNanos, endNanos);
             }
         }
     }
@@ -1617,6 +2198,7 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
     private class StopContextImpl implements StopContext {
 
         private ContextState state = ContextState.SYNC;
+        private boolean forced;
 
         private final long startNanos;
 
@@ -1628,6 +2210,7 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
             synchronized (ServiceInstanceImpl.this) {
                 if (state == ContextState.SYNC) {
                     state = ContextState.ASYNC;
+                    asyncStop = this;
                 } else {
                     throw new IllegalStateException(ILLEGAL_CONTROLLER_STATE);
                 }
@@ -1637,19 +2220,44 @@ final class ServiceInstanceImpl<S> implements ServiceController<S>, Dependent {
         public void complete() throws IllegalStateException {
             synchronized (ServiceInstanceImpl.this) {
                 if (state != ContextState.ASYNC) {
+                    if (forced) {
+                        // the container already gave up waiting for this
+                        return;
+                    }
                     throw new IllegalStateException(ILLEGAL_CONTROLLER_STATE);
                 }
                 state = ContextState.COMPLETE;
+                asyncStop = null;
+            }
+            completed();
+        }
+
+        /**
+         * Complete this stop on behalf of the service, which may still call {@link #complete()} without effect.
+         * Call under lock.
+         *
+         * @return {@code true} if the stop was still in progress and {@link #completed()} must be called
+         */
+        boolean force() {
+            assert lockHeld();
+            if (state != ContextState.ASYNC) {
+                return false;
             }
-            for (ValueInjection<?> injection : injections) {
-                injection.getTarget().uninject();
+            state = ContextState.COMPLETE;
+            forced = true;
+            asyncStop = null;
+            return true;
+        }
+
+        void completed() {
+            final int injectionsLength = getInjectionCount();
+            for (int i = 0; i < injectionsLength; i++) {
+                doUninject(i);
             }
             final Runnable[] tasks;
             synchronized (ServiceInstanceImpl.this) {
-                asyncTasks--;
-                if (ServiceContainerImpl.PROFILE_OUTPUT != null) {
-                    writeProfileInfo('X', startNanos, System.nanoTime());
-                }
+                asyncTasksUpdater.decrementAndGet(ServiceInstanceImpl.this);
+                recordTiming('X', startNanos);
                 tasks = transition();
             }
             doExecute(tasks);
@@ -84,4 +84,24 @@ interface ServiceLogger {
     @LogMessage(level = ERROR)
     @Message(id = 10, value = "Failed to register MBean with MBeanServer")
     void mbeanFailed(@Cause Exception e);
+
+    @LogMessage(level = WARN)
+    @Message(id = 11, value = "An error occurred while writing the profile output file; profiling is disabled")
+    void profileOutputWriteFailed(@Cause IOException cause);
+
+    @LogMessage(level = ERROR)
+    @Message(id = 12, value = "Completion task \"%s\" of a bulk service removal failed")
+    void removalCompleteTaskFailed(@Cause Throwable cause, Runnable task);
+
+    @LogMessage(level = DEBUG)
+    @Message(id = 13, value = "Shutdown of %s removed wave %d of %d (%d services) after %d ms")
+    void shutdownWaveRemoved(String containerName, int wave, int waveCount, int services, long millis);
+
+    @LogMessage(level = WARN)
+    @Message(id = 14, value = "Shutdown of %s gave up after %d ms with %d services not removed; %d asynchronous stops were completed on their behalf")
+    void shutdownAbandoned(String containerName, long millis, int abandoned, int forced);
+
+    @LogMessage(level = WARN)
+    @Message(id = 15, value = "Virtual threads are not available; service start and stop methods run on the container executor")
+    void virtualThreadsUnavailable();
 }
@@ -29,10 +29,9 @@ import java.lang.reflect.Field;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.Deque;
 import java.util.Iterator;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Service name class.
@@ -47,11 +46,47 @@ public final class ServiceName implements Comparable<ServiceName>, Serializable
     private final String name;
     private final ServiceName parent;
     private final transient int hashCode;
+    private final transient boolean canonical;
+    /**
+     * The canonical name string, computed on first use.  Strings are immutable, so a racing thread at worst
+     * computes it again.
+     */
+    private transient String canonicalName;
+
+    /**
+     * Whether the factory methods return {@linkplain #intern() canonical} names.
+     */
+    private static final boolean INTERN;
+
+    /**
+     * A direct-mapped cache of recently parsed names, indexed by the hash code of the string, or {@code null} if
+     * disabled.
+     */
+    private static final AtomicReferenceArray<ParseCacheEntry> PARSE_CACHE;
+
+    static {
+        INTERN = AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
+            public Boolean run() {
+                return Boolean.valueOf(Boolean.getBoolean("jboss.msc.service.name.intern"));
+            }
+        }).booleanValue();
+        final int parseCacheSize = AccessController.doPrivileged(new PrivilegedAction<Integer>() {
+            public Integer run() {
+                final String value = System.getProperty("jboss.msc.service.name.parse.cache.size");
+                if (value != null) try {
+                    return Integer.valueOf(Math.max(0, Integer.parseInt(value.trim())));
+                } catch (NumberFormatException ignored) {
+                }
+                return Integer.valueOf(1024);
+            }
+        }).intValue();
+        PARSE_CACHE = parseCacheSize == 0 ? null : new AtomicReferenceArray<ParseCacheEntry>(Integer.highestOneBit(Math.min(parseCacheSize, 1 << 20) * 2 - 1));
+    }
 
     /**
      * The root name "jboss".
      */
-    public static final ServiceName JBOSS = new ServiceName(null, "jboss");
+    public static final ServiceName JBOSS = of("jboss");
 
     /**
      * Create a ServiceName from a series of String parts.
@@ -74,27 +109,60 @@ public final class ServiceName implements Comparable<ServiceName>, Serializable
         if(parts.length < 1)
             throw new IllegalArgumentException("Must provide at least one name segment");
         
+        if (INTERN) {
+            ServiceName current = parent == null ? null : parent.intern();
+            for (String part : parts) {
+                checkPart(part);
+                current = TableHolder.TABLE.intern(current, part);
+            }
+            return current;
+        }
         ServiceName current = parent;
         for (String part : parts) {
-            if (part.isEmpty()) {
-                throw new IllegalArgumentException("Empty name segment is not allowed");
-            }
-            current = new ServiceName(current, part);
+            checkPart(part);
+            current = new ServiceName(current, part, false);
         }
         return current;
     }
 
-    private ServiceName(final ServiceName parent, final String name) {
+    private static void checkPart(final String part) {
+        if (part.isEmpty()) {
+            throw new IllegalArgumentException("Empty name segment is not allowed");
+        }
+    }
+
+    private ServiceName(final ServiceName parent, final String name, final boolean canonical) {
         if (name == null) {
             throw new IllegalArgumentException("name is null");
         }
         this.name = name;
         this.parent = parent;
+        this.canonical = canonical;
 
         hashCode = calculateHashCode(parent, name);
     }
 
-    private static int calculateHashCode(final ServiceName parent, final String name) {
+    static ServiceName createCanonical(final ServiceName parent, final String name) {
+        return new ServiceName(parent, name, true);
+    }
+
+    /**
+     * Get the canonical instance of this service name.  Equal names always have the same canonical instance, so
+     * comparing canonical names is an identity check, and names which share a prefix share its nodes.  Canonical
+     * names which are no longer referenced are garbage collected.  If the {@code jboss.msc.service.name.intern}
+     * system property is {@code true}, every name created by this class is canonical.
+     *
+     * @return the canonical service name
+     */
+    public ServiceName intern() {
+        if (canonical) {
+            return this;
+        }
+        final ServiceName parent = this.parent;
+        return TableHolder.TABLE.intern(parent == null ? null : parent.intern(), name);
+    }
+
+    static int calculateHashCode(final ServiceName parent, final String name) {
         int result = parent == null ? 1 : parent.hashCode();
         result = 31 * result + name.hashCode();
         return result;
@@ -219,7 +287,7 @@ public final class ServiceName implements Comparable<ServiceName>, Serializable
         if (o == this) {
             return true;
         }
-        if (o == null || hashCode != o.hashCode || ! name.equals(o.name)) {
+        if (o == null || hashCode != o.hashCode || canonical && o.canonical || ! name.equals(o.name)) {
             return false;
         }
 
@@ -254,7 +322,19 @@ public final class ServiceName implements Comparable<ServiceName>, Serializable
      * @return the canonical name
      */
     public String getCanonicalName() {
-        return getCanonicalName(new StringBuilder()).toString();
+        String canonicalName = this.canonicalName;
+        if (canonicalName == null) {
+            final ServiceName parent = this.parent;
+            final StringBuilder builder;
+            if (parent == null) {
+                builder = new StringBuilder(name.length() + 2);
+            } else {
+                final String parentName = parent.getCanonicalName();
+                builder = new StringBuilder(parentName.length() + name.length() + 3).append(parentName).append('.');
+            }
+            this.canonicalName = canonicalName = appendSegment(builder, name).toString();
+        }
+        return canonicalName;
     }
 
     /**
@@ -269,17 +349,42 @@ public final class ServiceName implements Comparable<ServiceName>, Serializable
      * @return a {@code ServiceName} instance
      * @throws IllegalArgumentException if the original is not valid
      */
-    public static ServiceName parse(String original) throws IllegalArgumentException {
+    public static ServiceName parse(final String original) throws IllegalArgumentException {
+        final AtomicReferenceArray<ParseCacheEntry> parseCache = PARSE_CACHE;
+        if (parseCache == null) {
+            return parseUncached(original);
+        }
+        final int idx = original.hashCode() & (parseCache.length() - 1);
+        final ParseCacheEntry entry = parseCache.get(idx);
+        if (entry != null && entry.string.equals(original)) {
+            return entry.name;
+        }
+        final ServiceName name = parseUncached(original);
+        parseCache.lazySet(idx, new ParseCacheEntry(original, name));
+        return name;
+    }
+
+    /**
+     * Parse a string-form service name in a single pass, without consulting the parse cache.  Each segment becomes a
+     * substring of the original unless it is quoted and contains escapes.
+     *
+     * @param original the string form of a service name
+     * @return a {@code ServiceName} instance
+     * @throws IllegalArgumentException if the original is not valid
+     */
+    static ServiceName parseUncached(final String original) throws IllegalArgumentException {
         final int originalLength = original.length();
-        final List<String> segments = new ArrayList<String>();
-        final StringBuilder builder = new StringBuilder();
+        ServiceName current = null;
+        // only used for quoted segments with escapes
+        StringBuilder builder = null;
+        boolean quoted = false;
         int state = 0;
-        char escapedChar = '\0';
+        int start = 0;
+        int escapedChar = 0;
         int charSize;
         for (int i = 0; i < originalLength; i += charSize) {
-            int nextOffset = original.offsetByCodePoints(i, 1);
-            charSize = nextOffset - i;
             final int c = original.codePointAt(i);
+            charSize = Character.charCount(c);
             if (! Character.isValidCodePoint(c)) {
                 throw invalidCodePoint(i);
             }
@@ -289,21 +394,21 @@ public final class ServiceName implements Comparable<ServiceName>, Serializable
             switch (state) {
                 case 0: {
                     // First character in a section.
-                    builder.setLength(0);
                     if (c == '"') {
                         // Quoted section.
+                        quoted = true;
+                        builder = null;
+                        start = i + 1;
                         state = 2;
                         continue;
-                    } else {
-                        // Unquoted section.  Make sure c is valid.
-                        if (c == '.' || c == '\\' || Character.isWhitespace(c)) {
-                            throw invalidNameCharacter(i);
-                        }
-                        builder.append(original.substring(i, nextOffset));
-                        state = 1;
-                        continue;
                     }
-                    // not reached
+                    // Unquoted section.  Make sure c is valid.
+                    if (c == '.' || c == '\\' || Character.isWhitespace(c)) {
+                        throw invalidNameCharacter(i);
+                    }
+                    start = i;
+                    state = 1;
+                    continue;
                 }
                 case 1: {
                     // Subsequent character in an unquoted section.
@@ -311,14 +416,10 @@ public final class ServiceName implements Comparable<ServiceName>, Serializable
                         throw invalidNameCharacter(i);
                     } else if (c == '.') {
                         // Section finished.
-                        segments.add(builder.toString());
+                        current = child(current, original.substring(start, i));
                         state = 0;
-                        continue;
-                    } else {
-                        builder.append(original.substring(i, nextOffset));
-                        continue;
                     }
-                    // not reached
+                    continue;
                 }
                 case 2: {
                     // First character in a quoted section.
@@ -326,23 +427,21 @@ public final class ServiceName implements Comparable<ServiceName>, Serializable
                         throw invalidNameCharacter(i);
                     } else if (c == '\\') {
                         // First character is escaped.
+                        builder = new StringBuilder();
                         state = 3;
-                        continue;
                     } else {
-                        builder.append(original.substring(i, nextOffset));
                         state = 4;
-                        continue;
                     }
-                    // not reached
+                    continue;
                 }
                 case 3: {
-                    // First character in a quoted section, after a \ character.
+                    // Character in a quoted section, after a \ character.
                     // All valid escapes:
                     switch (c) {
                         case '"': builder.append('"'); state = 4; continue;
                         case '\'': builder.append('\''); state = 4; continue;
                         case '\\': builder.append('\\'); state = 4; continue;
-                        case 'u': state = 5; continue;
+                        case 'u': escapedChar = 0; state = 5; continue;
                         case 'b': builder.append('\b'); state = 4; continue;
                         case 't': builder.append('\t'); state = 4; continue;
                         case 'n': builder.append('\n'); state = 4; continue;
@@ -357,66 +456,35 @@ public final class ServiceName implements Comparable<ServiceName>, Serializable
                     // Subsequent character in a quoted section
                     if (c == '"') {
                         // End of section; expect only a . next.
-                        segments.add(builder.toString());
+                        current = child(current, builder == null ? original.substring(start, i) : builder.toString());
                         state = 9;
-                        continue;
                     } else if (c == '\\') {
                         // Character is escaped.
+                        if (builder == null) {
+                            builder = new StringBuilder(i - start + 16).append(original, start, i);
+                        }
                         state = 3;
-                        continue;
-                    } else {
-                        builder.append(original.substring(i, nextOffset));
-                        continue;
-                    }
-                    // not reached
-                }
-                case 5: {
-                    // Unicode escape, first char.
-                    int v;
-                    try {
-                        v = Integer.parseInt(original.substring(i, nextOffset), 16);
-                    } catch (NumberFormatException e) {
-                        throw invalidNameCharacter(i);
-                    }
-                    escapedChar = (char) (v << 12);
-                    state = 6;
-                    continue;
-                }
-                case 6: {
-                    // Unicode escape, second char.
-                    int v;
-                    try {
-                        v = Integer.parseInt(original.substring(i, nextOffset), 16);
-                    } catch (NumberFormatException e) {
-                        throw invalidNameCharacter(i);
+                    } else if (builder != null) {
+                        builder.appendCodePoint(c);
                     }
-                    escapedChar |= (char) (v << 8);
-                    state = 7;
-                    continue;
-                }
-                case 7: {
-                    // Unicode escape, third char.
-                    int v;
-                    try {
-                        v = Integer.parseInt(original.substring(i, nextOffset), 16);
-                    } catch (NumberFormatException e) {
-                        throw invalidNameCharacter(i);
-                    }
-                    escapedChar |= (char) (v << 4);
-                    state = 8;
                     continue;
                 }
+                case 5:
+                case 6:
+                case 7:
                 case 8: {
-                    // Unicode escape, last char.
-                    int v;
-                    try {
-                        v = Integer.parseInt(original.substring(i, nextOffset), 16);
-                    } catch (NumberFormatException e) {
+                    // Unicode escape, one hex digit per state.
+                    final int v = Character.digit(c, 16);
+                    if (v < 0) {
                         throw invalidNameCharacter(i);
                     }
-                    escapedChar |= (char) v;
-                    builder.append(escapedChar);
-                    state = 4;
+                    escapedChar = escapedChar << 4 | v;
+                    if (state == 8) {
+                        builder.append((char) escapedChar);
+                        state = 4;
+                    } else {
+                        state++;
+                    }
                     continue;
                 }
                 case 9: {
@@ -433,25 +501,27 @@ public final class ServiceName implements Comparable<ServiceName>, Serializable
             // not reached
         }
         switch (state) {
-            case 0:
-            case 2:
-            case 3:
-            case 4:
-            case 5:
-            case 6:
-            case 7:
-            case 8: {
-                // End of string unexpected.
-                throw unexpectedEnd();
+            case 1: {
+                current = child(current, original.substring(start));
+                break;
             }
-            case 1:
             case 9: {
-                segments.add(builder.toString());
                 break;
             }
-            default: throw new IllegalStateException();
+            default: {
+                // End of string unexpected.
+                throw unexpectedEnd();
+            }
         }
-        return ServiceName.of(segments.toArray(new String[segments.size()]));
+        if (! quoted) {
+            // an unquoted name is already in canonical form
+            current.canonicalName = original;
+        }
+        return current;
+    }
+
+    private static ServiceName child(final ServiceName parent, final String name) {
+        return INTERN ? TableHolder.TABLE.intern(parent, name) : new ServiceName(parent, name, false);
     }
 
     private static IllegalArgumentException unexpectedEnd() {
@@ -466,18 +536,12 @@ public final class ServiceName implements Comparable<ServiceName>, Serializable
         return new IllegalArgumentException("Invalid name character at offset " + i);
     }
 
-    private StringBuilder getCanonicalName(StringBuilder target) {
-        final ServiceName parent = this.parent;
-        if (parent != null) {
-            parent.getCanonicalName(target);
-            target.append('.');
-        }
-        final String name = this.name;
+    private static StringBuilder appendSegment(final StringBuilder target, final String name) {
         final int nameLength = name.length();
         boolean simple = true;
-        for (int i = 0; i < nameLength; i += name.offsetByCodePoints(i, 1)) {
+        for (int i = 0; i < nameLength; i += Character.charCount(name.codePointAt(i))) {
             final int c = name.codePointAt(i);
-            if (Character.isISOControl(c) || Character.isWhitespace(c) || c == '.' || c == '"') {
+            if (Character.isISOControl(c) || Character.isWhitespace(c) || c == '.' || c == '"' || c == '\\') {
                 simple = false;
                 break;
             }
@@ -561,6 +625,16 @@ public final class ServiceName implements Comparable<ServiceName>, Serializable
         }
     }
 
+    private static final class ParseCacheEntry {
+        private final String string;
+        private final ServiceName name;
+
+        ParseCacheEntry(final String string, final ServiceName name) {
+            this.string = string;
+            this.name = name;
+        }
+    }
+
     // Serialization stuff
 
     private static final Field hashCodeField;
@@ -580,6 +654,10 @@ public final class ServiceName implements Comparable<ServiceName>, Serializable
         });
     }
 
+    private Object readResolve() {
+        return INTERN ? intern() : this;
+    }
+
     private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException {
         ois.defaultReadObject();
         try {
@@ -590,4 +668,14 @@ public final class ServiceName implements Comparable<ServiceName>, Serializable
             throw e2;
         }
     }
+
+    /**
+     * Holds the canonical name table, so that it is only created once names are actually interned.
+     */
+    private static final class TableHolder {
+        private static final ServiceNameTable TABLE = new ServiceNameTable();
+
+        private TableHolder() {
+        }
+    }
 }
@@ -0,0 +1,184 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jboss.modules.ref.Reaper;
+import org.jboss.modules.ref.Reference;
+import org.jboss.modules.ref.WeakReference;
+
+/**
+ * The table of canonical {@link ServiceName} instances.  Each node is keyed by its (canonical) parent instance and
+ * its simple name, so a lookup never builds the name it is looking for.  Lookups do not lock; insertions lock one of
+ * a fixed number of segments.  Entries are weak, and are unlinked by the reaper once their name is collected.
+ */
+final class ServiceNameTable implements Reaper<ServiceName, Void> {
+
+    private static final int SEGMENT_BITS = 4;
+    private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_SHIFT = 32 - SEGMENT_BITS;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MAXIMUM_CAPACITY = 1 << 26;
+
+    private final Segment[] segments;
+
+    ServiceNameTable() {
+        final Segment[] segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment();
+        }
+        this.segments = segments;
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    /**
+     * Get the canonical name with the given canonical parent and simple name, creating it if needed.
+     *
+     * @param parent the canonical parent, or {@code null} for a root name
+     * @param name the simple name
+     * @return the canonical name
+     */
+    ServiceName intern(final ServiceName parent, final String name) {
+        final int hashCode = ServiceName.calculateHashCode(parent, name);
+        final int hash = spread(hashCode);
+        final Segment segment = segments[hash >>> SEGMENT_SHIFT];
+        final ServiceName found = segment.find(hash, parent, name);
+        return found != null ? found : segment.add(this, hash, parent, name);
+    }
+
+    /**
+     * Get the number of live canonical names.
+     *
+     * @return the number of names
+     */
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    public void reap(final Reference<ServiceName, Void> reference) {
+        final Entry entry = (Entry) reference;
+        segments[entry.hash >>> SEGMENT_SHIFT].remove(entry);
+    }
+
+    private static final class Entry extends WeakReference<ServiceName, Void> {
+        private final int hash;
+        // writes protected by the segment
+        private volatile Entry next;
+
+        Entry(final ServiceName referent, final Reaper<ServiceName, Void> reaper, final int hash, final Entry next) {
+            super(referent, null, reaper);
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+
+    /**
+     * A chained hash table.  Readers walk the chains without locking; since entries are moved between chains by a
+     * resize, a reader may miss an entry, which is harmless because every miss is checked again under the lock.
+     */
+    private static final class Segment {
+        // writes protected by this
+        private volatile AtomicReferenceArray<Entry> table = new AtomicReferenceArray<Entry>(INITIAL_CAPACITY);
+        private volatile int count;
+
+        ServiceName find(final int hash, final ServiceName parent, final String name) {
+            final AtomicReferenceArray<Entry> table = this.table;
+            for (Entry e = table.get(hash & (table.length() - 1)); e != null; e = e.next) {
+                if (e.hash == hash) {
+                    final ServiceName candidate = e.get();
+                    if (candidate != null && candidate.getParent() == parent && candidate.getSimpleName().equals(name)) {
+                        return candidate;
+                    }
+                }
+            }
+            return null;
+        }
+
+        synchronized ServiceName add(final ServiceNameTable owner, final int hash, final ServiceName parent, final String name) {
+            final ServiceName found = find(hash, parent, name);
+            if (found != null) {
+                return found;
+            }
+            AtomicReferenceArray<Entry> table = this.table;
+            final int capacity = table.length();
+            if (count >= capacity - (capacity >> 2) && capacity < MAXIMUM_CAPACITY) {
+                table = resize(table);
+            }
+            final ServiceName serviceName = ServiceName.createCanonical(parent, name);
+            final int idx = hash & (table.length() - 1);
+            table.set(idx, new Entry(serviceName, owner, hash, table.get(idx)));
+            count++;
+            return serviceName;
+        }
+
+        synchronized void remove(final Entry entry) {
+            final AtomicReferenceArray<Entry> table = this.table;
+            final int idx = entry.hash & (table.length() - 1);
+            Entry e = table.get(idx);
+            if (e == entry) {
+                table.set(idx, entry.next);
+                count--;
+                return;
+            }
+            while (e != null) {
+                final Entry next = e.next;
+                if (next == entry) {
+                    // the removed entry keeps its next, so a reader standing on it can go on
+                    e.next = entry.next;
+                    count--;
+                    return;
+                }
+                e = next;
+            }
+        }
+
+        private AtomicReferenceArray<Entry> resize(final AtomicReferenceArray<Entry> oldTable) {
+            final int oldCapacity = oldTable.length();
+            final int newCapacity = oldCapacity << 1;
+            final AtomicReferenceArray<Entry> newTable = new AtomicReferenceArray<Entry>(newCapacity);
+            for (int i = 0; i < oldCapacity; i++) {
+                Entry e = oldTable.get(i);
+                while (e != null) {
+                    final Entry next = e.next;
+                    final int idx = e.hash & (newCapacity - 1);
+                    e.next = newTable.get(idx);
+                    newTable.lazySet(idx, e);
+                    e = next;
+                }
+            }
+            table = newTable;
+            return newTable;
+        }
+    }
+}
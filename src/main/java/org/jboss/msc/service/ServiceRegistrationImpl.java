@@ -22,6 +22,8 @@
 
 package org.jboss.msc.service;
 
+import java.util.Arrays;
+
 /**
  * A single service registration.
  *
@@ -39,9 +41,18 @@ final class ServiceRegistrationImpl implements Dependency {
      */
     private final ServiceName name;
     /**
-     * The set of dependents on this registration.
+     * The dependents of this registration.  While there are at most {@link #DEPENDENTS_ARRAY_MAX} of them, this
+     * array is the only record of them and is replaced rather than modified on every change.  Past that size,
+     * {@link #dependentsSet} is authoritative and this is a dense copy of it, or {@code null} if the set changed since
+     * the copy was made.  A published array is never modified.
+     */
+    private volatile Dependent[] dependents = NO_DEPENDENTS;
+    /**
+     * The set of dependents, once there are too many of them to keep in a plain array; {@code null} until then.  Once
+     * created, it is never replaced.  It is modified under both the lock of this registration and its own, and only
+     * its own is needed to read it, so that {@link #getDependents()} may be called while an instance lock is held.
      */
-    private final IdentityHashSet<Dependent> dependents = new IdentityHashSet<Dependent>(0);
+    private IdentityHashSet<Dependent> dependentsSet;
 
     // Mutable properties
 
@@ -55,34 +66,35 @@ final class ServiceRegistrationImpl implements Dependency {
      */
     private int demandedByCount;
 
+    private static final Dependent[] NO_DEPENDENTS = new Dependent[0];
+    private static final int DEPENDENTS_ARRAY_MAX = 16;
+
     ServiceRegistrationImpl(final ServiceContainerImpl container, final ServiceName name) {
         this.container = container;
         this.name = name;
     }
 
     /**
-     * Returns the dependents lock.<p>
-     * This lock must be used to synchronize calls to {@link getDependents}, and any operations on the 
-     * returned set. The lock should be released only after the dependents set reference is released
-     * by the caller.
-     *  
-     * @return the dependents set lock
-     * @see #getDependents()
-     */
-    final Object getDependentsLock() {
-        return dependents;
-    }
-
-    /**
-     * Returns the dependents set.<p>
-     * This method must be called only by threads that hold the {@link #getDependentsLock() dependents lock},
-     * and any operations on the returned set, including iteration, should synchronize on the same lock.
-     * 
-     * @return the dependents set
-     * @see #getDependentsLock()
+     * Returns a snapshot of the dependents of this registration.<p>
+     * The returned array contains no {@code null}s and must not be modified.  Unless the dependents changed since the
+     * last call, this is a plain volatile read.
+     *
+     * @return the dependents
      */
-    final IdentityHashSet<Dependent> getDependents() {
-        assert lockHeldBy(dependents);
+    Dependent[] getDependents() {
+        Dependent[] dependents = this.dependents;
+        if (dependents == null) {
+            // the set was published before the array was first cleared
+            final IdentityHashSet<Dependent> dependentsSet = this.dependentsSet;
+            synchronized (dependentsSet) {
+                dependents = this.dependents;
+                if (dependents == null) {
+                    final int size = dependentsSet.size();
+                    dependents = size == 0 ? NO_DEPENDENTS : dependentsSet.toArray(new Dependent[size], 0, size);
+                    this.dependents = dependents;
+                }
+            }
+        }
         return dependents;
     }
 
@@ -96,26 +108,44 @@ final class ServiceRegistrationImpl implements Dependency {
         assert !lockHeld();
         assert !lockHeldByDependent(dependent);
         final ServiceInstanceImpl<?> instance;
-        synchronized (dependents) {
-            if (! dependents.add(dependent)) {
-                throw new IllegalStateException("Dependent already exists on this registration");
-            }
-        }
         final Runnable[] tasks;
         synchronized (this) {
+            final IdentityHashSet<Dependent> dependentsSet = this.dependentsSet;
+            if (dependentsSet != null) {
+                synchronized (dependentsSet) {
+                    if (! dependentsSet.add(dependent)) {
+                        throw new IllegalStateException("Dependent already exists on this registration");
+                    }
+                    dependents = null;
+                }
+            } else {
+                final Dependent[] dependents = this.dependents;
+                final int length = dependents.length;
+                for (Dependent existing : dependents) {
+                    if (existing == dependent) {
+                        throw new IllegalStateException("Dependent already exists on this registration");
+                    }
+                }
+                if (length < DEPENDENTS_ARRAY_MAX) {
+                    final Dependent[] newDependents = Arrays.copyOf(dependents, length + 1);
+                    newDependents[length] = dependent;
+                    this.dependents = newDependents;
+                } else {
+                    final IdentityHashSet<Dependent> newSet = new IdentityHashSet<Dependent>(length << 1);
+                    newSet.addAll(Arrays.asList(dependents));
+                    newSet.add(dependent);
+                    this.dependentsSet = newSet;
+                    this.dependents = null;
+                }
+            }
             instance = this.instance;
             if (instance == null) {
                 dependent.immediateDependencyUninstalled();
                 return;
             }
-            synchronized (instance) {
-                instance.addAsyncTask();
-            }
+            instance.addAsyncTask();
             instance.newDependent(dependent);
-            synchronized (instance) {
-                instance.removeAsyncTask();
-                tasks = instance.transition();
-            }
+            tasks = instance.removeAsyncTask();
         }
         instance.doExecute(tasks);
     }
@@ -129,8 +159,31 @@ final class ServiceRegistrationImpl implements Dependency {
     public void removeDependent(final Dependent dependent) {
         assert !lockHeld();
         assert !lockHeldByDependent(dependent);
-        synchronized (dependents) {
-            dependents.remove(dependent);
+        synchronized (this) {
+            final IdentityHashSet<Dependent> dependentsSet = this.dependentsSet;
+            if (dependentsSet != null) {
+                synchronized (dependentsSet) {
+                    if (dependentsSet.remove(dependent)) {
+                        dependents = null;
+                    }
+                }
+                return;
+            }
+            final Dependent[] dependents = this.dependents;
+            final int length = dependents.length;
+            for (int i = 0; i < length; i++) {
+                if (dependents[i] == dependent) {
+                    if (length == 1) {
+                        this.dependents = NO_DEPENDENTS;
+                    } else {
+                        final Dependent[] newDependents = new Dependent[length - 1];
+                        System.arraycopy(dependents, 0, newDependents, 0, i);
+                        System.arraycopy(dependents, i + 1, newDependents, i, length - i - 1);
+                        this.dependents = newDependents;
+                    }
+                    return;
+                }
+            }
         }
     }
 
@@ -151,10 +204,8 @@ final class ServiceRegistrationImpl implements Dependency {
             this.instance = instance;
             if (demandedByCount > 0) instance.addDemands(demandedByCount);
         }
-        synchronized (dependents) {
-            for (Dependent dependent: dependents) {
-                dependent.immediateDependencyInstalled();
-            }
+        for (Dependent dependent : getDependents()) {
+            dependent.immediateDependencyInstalled();
         }
     }
 
@@ -167,10 +218,8 @@ final class ServiceRegistrationImpl implements Dependency {
             }
             this.instance = null;
         }
-        synchronized (dependents) {
-            for (Dependent dependent: dependents) {
-                dependent.immediateDependencyUninstalled();
-            }
+        for (Dependent dependent : getDependents()) {
+            dependent.immediateDependencyUninstalled();
         }
     }
 
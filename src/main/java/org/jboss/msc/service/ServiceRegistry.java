@@ -55,4 +55,32 @@ public interface ServiceRegistry {
      * @return the list
      */
     List<ServiceName> getServiceNames();
+
+    /**
+     * Get a list of the names installed in this registry which are equal to or children of the given name.  Like
+     * {@link #getServiceNames()}, the list includes aliases.
+     *
+     * @param name the parent service name
+     * @return the list
+     */
+    List<ServiceName> getServiceNames(ServiceName name);
+
+    /**
+     * Get the number of names installed in this registry which are equal to or children of the given name.  This is
+     * the size of the list that {@link #getServiceNames(ServiceName)} would return.
+     *
+     * @param name the parent service name
+     * @return the number of names
+     */
+    int getServiceCount(ServiceName name);
+
+    /**
+     * Remove every service whose name is equal to or a child of the given name, by setting its mode to
+     * {@link ServiceController.Mode#REMOVE REMOVE}.  Services which only have an alias under the given name are not
+     * affected.  Removal proceeds asynchronously once this method returns.
+     *
+     * @param name the parent service name
+     * @return the number of services marked for removal
+     */
+    int removeServices(ServiceName name);
 }
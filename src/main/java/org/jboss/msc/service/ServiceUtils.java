@@ -25,6 +25,9 @@ package org.jboss.msc.service;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.jboss.msc.value.CachedValue;
 
 /**
  * A utility class for service actions.
@@ -54,13 +57,34 @@ public final class ServiceUtils {
      * @param controllers the controllers to undeploy
      */
     public static void undeployAll(final Runnable completeTask, final List<ServiceController<?>> controllers) {
-        final MultipleRemoveListener<Runnable> listener = MultipleRemoveListener.create(completeTask);
-        for (ServiceController<?> controller : controllers == null ? Collections.<ServiceController<?>>emptyList() : controllers) {
-            if (controller != null) {
-                controller.setMode(ServiceController.Mode.REMOVE);
-                controller.addListener(listener);
+        BulkRemoval.removeAll(completeTask, controllers == null ? Collections.<ServiceController<?>>emptyList() : controllers);
+    }
+
+    /**
+     * Get an executor which runs each task on a new virtual thread, for use as a container's
+     * {@link ServiceContainer#setLifecycleExecutor(Executor) lifecycle executor}.
+     *
+     * @return the executor, or {@code null} if this JVM does not support virtual threads
+     */
+    public static Executor virtualThreadExecutor() {
+        return VirtualThreadExecutor.INSTANCE;
+    }
+
+    /**
+     * Get a listener which {@linkplain CachedValue#invalidate() invalidates} the given cached values each time the
+     * service it is added to stops, so that they are calculated afresh when the service starts again.
+     *
+     * @param values the values to invalidate
+     * @return the listener
+     */
+    public static ServiceListener<Object> invalidateOnStop(final CachedValue<?>... values) {
+        final CachedValue<?>[] copy = values.clone();
+        return new AbstractServiceListener<Object>() {
+            public void serviceStopped(final ServiceController<?> controller) {
+                for (CachedValue<?> value : copy) {
+                    value.invalidate();
+                }
             }
-        }
-        listener.done();
+        };
     }
 }
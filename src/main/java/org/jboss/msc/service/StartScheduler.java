@@ -0,0 +1,114 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Orders the service start tasks of a container by priority.  Every submitted task is matched by one anonymous
+ * submission to the executor, which runs whichever pending start of the same queue has the highest priority at the
+ * time it gets a thread.  So while the executor is saturated, starts on a long chain of dependents overtake starts
+ * which nothing much is waiting for, whatever executor is in use.  Starts of equal priority run in submission order.
+ * <p>
+ * Pending starts are kept in several queues, picked by submitting thread, so that container threads do not contend
+ * on one lock; a queue is only allocated once a thread submits to it.  Since a thread mostly submits the starts of
+ * the dependents of what it just started, ordering within each queue keeps a critical path ahead.
+ */
+final class StartScheduler {
+
+    private static final int QUEUE_COUNT = Math.min(16, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private final AtomicReferenceArray<Queue> queues = new AtomicReferenceArray<Queue>(QUEUE_COUNT);
+
+    private Queue getQueue() {
+        final int index = (int) Thread.currentThread().getId() & QUEUE_COUNT - 1;
+        final Queue queue = queues.get(index);
+        if (queue != null) {
+            return queue;
+        }
+        final Queue newQueue = new Queue();
+        return queues.compareAndSet(index, null, newQueue) ? newQueue : queues.get(index);
+    }
+
+    /**
+     * Submit a start task.
+     *
+     * @param executor the executor to run it with
+     * @param task the task
+     * @param priority the task priority; higher runs first
+     */
+    void execute(final Executor executor, final Runnable task, final int priority) {
+        final Queue queue = getQueue();
+        queue.add(task, priority);
+        try {
+            executor.execute(queue);
+        } catch (RejectedExecutionException e) {
+            queue.run();
+        }
+    }
+
+    private static final class Queue implements Runnable {
+        private final PriorityQueue<Entry> entries = new PriorityQueue<Entry>();
+        private long seq;
+
+        synchronized void add(final Runnable task, final int priority) {
+            entries.add(new Entry(task, priority, seq++));
+        }
+
+        private synchronized Entry poll() {
+            return entries.poll();
+        }
+
+        /**
+         * Run the pending start task of this queue with the highest priority.
+         */
+        public void run() {
+            final Entry entry = poll();
+            if (entry != null) {
+                entry.task.run();
+            }
+        }
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final Runnable task;
+        private final int priority;
+        private final long seq;
+
+        Entry(final Runnable task, final int priority, final long seq) {
+            this.task = task;
+            this.priority = priority;
+            this.seq = seq;
+        }
+
+        public int compareTo(final Entry o) {
+            if (priority != o.priority) {
+                return priority > o.priority ? -1 : 1;
+            }
+            return seq < o.seq ? -1 : seq == o.seq ? 0 : 1;
+        }
+    }
+}
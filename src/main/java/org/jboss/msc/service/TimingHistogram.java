@@ -0,0 +1,187 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free histogram of durations in nanoseconds.  Values are counted in buckets of eight linear steps per power
+ * of two, so any reported percentile is within one eighth of the true value; recording is a few atomic increments
+ * and never blocks.  Counts are striped by recording thread, so that container threads do not contend on the same
+ * counters; a stripe is only allocated once a thread records into it.
+ */
+final class TimingHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKET_COUNT = (63 - SUB_BITS + 1) * SUB_COUNT;
+    private static final int STRIPE_COUNT = Math.min(16, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private final AtomicReferenceArray<Stripe> stripes = new AtomicReferenceArray<Stripe>(STRIPE_COUNT);
+
+    private static final class Stripe {
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        final AtomicLong total = new AtomicLong();
+        final AtomicLong max = new AtomicLong();
+    }
+
+    private Stripe getStripe() {
+        final int index = (int) Thread.currentThread().getId() & STRIPE_COUNT - 1;
+        final Stripe stripe = stripes.get(index);
+        if (stripe != null) {
+            return stripe;
+        }
+        final Stripe newStripe = new Stripe();
+        return stripes.compareAndSet(index, null, newStripe) ? newStripe : stripes.get(index);
+    }
+
+    /**
+     * Record one duration.  Negative values (which a misbehaving clock could produce) are counted as zero.
+     *
+     * @param nanos the duration
+     */
+    void record(long nanos) {
+        if (nanos < 0L) {
+            nanos = 0L;
+        }
+        final Stripe stripe = getStripe();
+        stripe.buckets.incrementAndGet(indexOf(nanos));
+        stripe.total.addAndGet(nanos);
+        final AtomicLong max = stripe.max;
+        long oldMax;
+        do {
+            oldMax = max.get();
+            if (nanos <= oldMax) {
+                return;
+            }
+        } while (! max.compareAndSet(oldMax, nanos));
+    }
+
+    /**
+     * Get the number of recorded durations.
+     *
+     * @return the count
+     */
+    long getCount() {
+        long count = 0L;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            final Stripe stripe = stripes.get(i);
+            if (stripe != null) {
+                final AtomicLongArray buckets = stripe.buckets;
+                for (int j = 0; j < BUCKET_COUNT; j++) {
+                    count += buckets.get(j);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the sum of all recorded durations.
+     *
+     * @return the total, in nanoseconds
+     */
+    long getTotal() {
+        long total = 0L;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            final Stripe stripe = stripes.get(i);
+            if (stripe != null) {
+                total += stripe.total.get();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Get the longest recorded duration.
+     *
+     * @return the maximum, in nanoseconds
+     */
+    long getMax() {
+        long max = 0L;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            final Stripe stripe = stripes.get(i);
+            if (stripe != null) {
+                max = Math.max(max, stripe.max.get());
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Get an upper bound for the given percentile of the recorded durations.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the duration in nanoseconds, or 0 if nothing was recorded
+     */
+    long getPercentile(final double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        final long[] counts = new long[BUCKET_COUNT];
+        long count = 0L;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            final Stripe stripe = stripes.get(i);
+            if (stripe != null) {
+                final AtomicLongArray buckets = stripe.buckets;
+                for (int j = 0; j < BUCKET_COUNT; j++) {
+                    final long bucketCount = buckets.get(j);
+                    counts[j] += bucketCount;
+                    count += bucketCount;
+                }
+            }
+        }
+        if (count == 0L) {
+            return 0L;
+        }
+        final long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+        final long max = getMax();
+        long seen = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int indexOf(final long nanos) {
+        if (nanos < SUB_COUNT) {
+            return (int) nanos;
+        }
+        final int exp = 63 - Long.numberOfLeadingZeros(nanos);
+        return (exp - SUB_BITS + 1) * SUB_COUNT + (int) (nanos >>> (exp - SUB_BITS)) - SUB_COUNT;
+    }
+
+    static long upperBoundOf(final int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        final int shift = index / SUB_COUNT - 1;
+        final long lower = (long) (SUB_COUNT + index % SUB_COUNT) << shift;
+        return lower + (1L << shift) - 1L;
+    }
+}
@@ -32,6 +32,11 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
+ * A concurrent hash map whose reads never lock.  The map is split into a fixed number of segments by the high bits
+ * of the key hash; each segment is a table of copy-on-write rows with a lock of its own, so writers to different
+ * segments do not contend, and a resize only copies (and only blocks the writers of) the one segment which outgrew
+ * its threshold.
+ *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
 final class UnlockedReadHashMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
@@ -40,18 +45,16 @@ final class UnlockedReadHashMap<K, V> extends AbstractMap<K, V> implements Concu
     private static final int MAXIMUM_CAPACITY = 1 << 30;
     private static final float DEFAULT_LOAD_FACTOR = 0.60f;
 
+    private static final int SEGMENT_BITS = 4;
+    private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_SHIFT = 32 - SEGMENT_BITS;
+    private static final int MAXIMUM_SEGMENT_CAPACITY = MAXIMUM_CAPACITY >> SEGMENT_BITS;
+
     // Final fields (thread-safe)
-    private final Object writeLock = new Object();
+    private final Segment<K, V>[] segments;
     private final Set<Entry<K, V>> entrySet = new EntrySet();
-    private final float loadFactor;
-
-    // Volatile fields (writes protected by {@link #writeLock})
-    private volatile int size;
-    private volatile AtomicReferenceArray<Item<K,V>[]> table;
-
-    // Raw fields (reads and writes protected by {@link #writeLock}
-    private int threshold;
 
+    @SuppressWarnings({ "unchecked", "rawtypes" })
     public UnlockedReadHashMap(int initialCapacity, final float loadFactor) {
         if (initialCapacity < 0) {
             throw new IllegalArgumentException("Initial capacity must be > 0");
@@ -65,15 +68,15 @@ final class UnlockedReadHashMap<K, V> extends AbstractMap<K, V> implements Concu
 
         int capacity = 1;
 
-        while (capacity < initialCapacity) {
+        while (capacity * SEGMENT_COUNT < initialCapacity) {
             capacity <<= 1;
         }
 
-        this.loadFactor = loadFactor;
-        synchronized (writeLock) {
-            threshold = (int)(capacity * loadFactor);
-            table = new AtomicReferenceArray<Item<K, V>[]>(capacity);
+        final Segment<K, V>[] segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<K, V>(capacity, loadFactor);
         }
+        this.segments = segments;
     }
 
     public UnlockedReadHashMap(final float loadFactor) {
@@ -88,136 +91,59 @@ final class UnlockedReadHashMap<K, V> extends AbstractMap<K, V> implements Concu
         this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
     }
 
-    @SuppressWarnings( { "unchecked" })
-    private void resize() {
-        assert Thread.holdsLock(writeLock);
-        final AtomicReferenceArray<Item<K, V>[]> oldTable = table;
-        final int oldCapacity = oldTable.length();
-        if (oldCapacity == MAXIMUM_CAPACITY) {
-            return;
-        }
-        final int newCapacity = oldCapacity << 1;
-        final AtomicReferenceArray<Item<K, V>[]> newTable = new AtomicReferenceArray<Item<K, V>[]>(newCapacity);
-        final int newThreshold = (int)(newCapacity * loadFactor);
-        for (int i = 0; i < oldCapacity; i ++) {
-            final Item<K, V>[] items = oldTable.get(i);
-            if (items != null) {
-                final int length = items.length;
-                for (int j = 0; j < length; j++) {
-                    Item<K, V> item = items[j];
-                    final int hc = item.hashCode() & (newCapacity - 1);
-                    final Item<K, V>[] old = newTable.get(hc);
-                    if (old == null) {
-                        newTable.lazySet(hc, new Item[] { item });
-                    } else {
-                        final int oldLen = old.length;
-                        final Item<K, V>[] copy = Arrays.copyOf(old, oldLen + 1);
-                        copy[oldLen] = item;
-                        newTable.lazySet(hc, copy);
-                    }
-                }
-            }
-        }
-        table = newTable;
-        threshold = newThreshold;
+    /**
+     * Spread the bits of a key hash code, so that both the segment (high bits) and the row (low bits) depend on all of
+     * them.
+     */
+    private static int hash(final Object key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
     }
 
-    private static <K, V> Item<K, V> doGet(final AtomicReferenceArray<Item<K, V>[]> table, final Object key) {
-        Item<K, V>[] row = doGetRow(table, key);
-        return row == null ? null : doGet(row, key);
+    private Segment<K, V> segmentFor(final int hash) {
+        return segments[hash >>> SEGMENT_SHIFT];
     }
 
-    private static <K, V> Item<K, V>[] doGetRow(final AtomicReferenceArray<Item<K, V>[]> table, final Object key) {
-        final int hc = getIndex(table, key);
-        return doGetRow(table, hc);
-    }
-
-    private static <K, V> int getIndex(final AtomicReferenceArray<Item<K, V>[]> table, final Object key) {
-        return key.hashCode() & (table.length() - 1);
-    }
-
-    private static <K, V> Item<K, V>[] doGetRow(final AtomicReferenceArray<Item<K, V>[]> table, final int hc) {
-        return table.get(hc);
+    public Set<Entry<K, V>> entrySet() {
+        return entrySet;
     }
 
-    private static <K, V> Item<K, V> doGet(Item<K, V>[] row, Object key) {
-        for (Item<K, V> item : row) {
-            if (item.key.equals(key)) {
-                return item;
-            }
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size;
         }
-        return null;
+        return size;
     }
 
-    private V doPut(AtomicReferenceArray<Item<K, V>[]> table, K key, V value, boolean ifAbsent) {
-        final int hc = getIndex(table, key);
-        final Item<K, V>[] old = doGetRow(table, hc);
-        if (old == null) {
-            @SuppressWarnings( { "unchecked" })
-            final Item<K, V>[] newRow = new Item[] { new Item<K, V>(key, value) };
-            table.set(hc, newRow);
-            if (size++ == threshold) {
-                resize();
-            }
-            return null;
-        } else {
-            final Item<K, V> item = doGet(old, key);
-            if (item != null) {
-                try {
-                    return item.value;
-                } finally {
-                    if (! ifAbsent) item.value = value;
-                }
-            }
-            final int oldLen = old.length;
-            final Item<K, V>[] newRow = Arrays.copyOf(old, oldLen + 1);
-            newRow[oldLen] = new Item<K, V>(key, value);
-            table.set(hc, newRow);
-            if (size++ == threshold) {
-                resize();
+    public boolean isEmpty() {
+        for (Segment<K, V> segment : segments) {
+            if (segment.size != 0) {
+                return false;
             }
-            return null;
-        }
-    }
-
-    private static <K, V> Item<K, V>[] remove(Item<K, V>[] row, int idx) {
-        final int len = row.length;
-        assert idx < len;
-        if (len == 1) {
-            return null;
-        }
-        @SuppressWarnings("unchecked")
-        Item<K, V>[] newRow = new Item[len - 1];
-        if (idx > 0) {
-            System.arraycopy(row, 0, newRow, 0, idx);
-        }
-        if (idx < len - 1) {
-            System.arraycopy(row, idx + 1, newRow, idx, len - 1 - idx);
         }
-        return newRow;
-    }
-
-    public Set<Entry<K, V>> entrySet() {
-        return entrySet;
-    }
-
-    public int size() {
-        return size;
+        return true;
     }
 
     public boolean containsKey(final Object key) {
         if (key == null) {
             return false;
         }
-        final Item<K, V> item = doGet(table, key);
-        return item != null;
+        final int hash = hash(key);
+        return segmentFor(hash).get(hash, key) != null;
     }
 
     public V get(final Object key) {
         if (key == null) {
             return null;
         }
-        final Item<K, V> item = doGet(table, key);
+        final int hash = hash(key);
+        final Item<K, V> item = segmentFor(hash).get(hash, key);
         return item == null ? null : item.value;
     }
 
@@ -225,79 +151,84 @@ final class UnlockedReadHashMap<K, V> extends AbstractMap<K, V> implements Concu
         if (key == null) {
             throw new IllegalArgumentException("key is null");
         }
-        synchronized (writeLock) {
-            return doPut(table, key, value, false);
-        }
+        final int hash = hash(key);
+        return segmentFor(hash).put(hash, key, value, false);
     }
 
     public V remove(final Object key) {
         if (key == null) {
             return null;
         }
-        synchronized (writeLock) {
-            final int hc = getIndex(table, key);
-            final Item<K, V>[] row = doGetRow(table, hc);
-            if (row == null) {
-                return null;
-            }
-            final int rowLen = row.length;
-            for (int i = 0; i < rowLen; i++) {
-                final Item<K, V> item = row[i];
-                if (item.key.equals(key)) {
-                    table.set(hc, remove(row, i));
-                    size --;
-                    return item.value;
-                }
-            }
-            return null;
-        }
+        final int hash = hash(key);
+        final Item<K, V> item = segmentFor(hash).remove(hash, key, null, false);
+        return item == null ? null : item.value;
     }
 
     public void clear() {
-        synchronized (writeLock) {
-            table = new AtomicReferenceArray<Item<K, V>[]>(table.length());
-            size = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
         }
     }
 
-    public V putIfAbsent(final K key, final V value) {
+    /**
+     * Get the value for a key, creating and adding it if there is none.  The lookup of an existing key does not lock,
+     * and the factory is called at most once per absent key, with the key's segment locked.
+     *
+     * @param key the key
+     * @param factory the factory for the value if the key is absent
+     * @return the existing or new value
+     */
+    V getOrCreate(final K key, final Factory<? super K, ? extends V> factory) {
         if (key == null) {
             throw new IllegalArgumentException("key is null");
         }
-        synchronized (writeLock) {
-            return doPut(table, key, value, true);
+        final int hash = hash(key);
+        final Segment<K, V> segment = segmentFor(hash);
+        final Item<K, V> item = segment.get(hash, key);
+        if (item != null) {
+            final V value = item.value;
+            if (value != null) {
+                return value;
+            }
+        }
+        synchronized (segment) {
+            final Item<K, V> existing = segment.get(hash, key);
+            if (existing != null && existing.value != null) {
+                return existing.value;
+            }
+            final V value = factory.create(key);
+            if (value == null) {
+                throw new IllegalArgumentException("factory returned null");
+            }
+            segment.put(hash, key, value, false);
+            return value;
         }
     }
 
-    public boolean remove(final Object key, final Object value) {
+    public V putIfAbsent(final K key, final V value) {
         if (key == null) {
-            return false;
+            throw new IllegalArgumentException("key is null");
         }
-        synchronized (writeLock) {
-            final int hc = getIndex(table, key);
-            final Item<K, V>[] row = doGetRow(table, hc);
-            if (row == null) {
-                return false;
-            }
-            final int rowLen = row.length;
-            for (int i = 0; i < rowLen; i++) {
-                final Item<K, V> item = row[i];
-                if (item.key.equals(key) && (value == null ? item.value == null : value.equals(item.value))) {
-                    table.set(hc, remove(row, i));
-                    size --;
-                    return true;
-                }
-            }
+        final int hash = hash(key);
+        return segmentFor(hash).put(hash, key, value, true);
+    }
+
+    public boolean remove(final Object key, final Object value) {
+        if (key == null) {
             return false;
         }
+        final int hash = hash(key);
+        return segmentFor(hash).remove(hash, key, value, true) != null;
     }
 
     public boolean replace(final K key, final V oldValue, final V newValue) {
         if (key == null) {
             return false;
         }
-        synchronized (writeLock) {
-            final Item<K, V> item = doGet(table, key);
+        final int hash = hash(key);
+        final Segment<K, V> segment = segmentFor(hash);
+        synchronized (segment) {
+            final Item<K, V> item = segment.get(hash, key);
             if (item != null) {
                 if (oldValue == null ? item.value == null : oldValue.equals(item.value)) {
                     item.value = newValue;
@@ -312,8 +243,10 @@ final class UnlockedReadHashMap<K, V> extends AbstractMap<K, V> implements Concu
         if (key == null) {
             return null;
         }
-        synchronized (writeLock) {
-            final Item<K, V> item = doGet(table, key);
+        final int hash = hash(key);
+        final Segment<K, V> segment = segmentFor(hash);
+        synchronized (segment) {
+            final Item<K, V> item = segment.get(hash, key);
             if (item != null) try {
                 return item.value;
             } finally {
@@ -323,6 +256,166 @@ final class UnlockedReadHashMap<K, V> extends AbstractMap<K, V> implements Concu
         }
     }
 
+    /**
+     * A factory for the values of {@link #getOrCreate(Object, Factory)}.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    interface Factory<K, V> {
+
+        /**
+         * Create the value for a key.
+         *
+         * @param key the key
+         * @return the value, never {@code null}
+         */
+        V create(K key);
+    }
+
+    /**
+     * One segment of the map.  Reads go straight to the volatile table; writes hold the segment's own monitor.
+     */
+    private static final class Segment<K, V> {
+        private final float loadFactor;
+
+        // Volatile fields (writes protected by this)
+        private volatile int size;
+        private volatile AtomicReferenceArray<Item<K, V>[]> table;
+
+        // Raw fields (reads and writes protected by this)
+        private int threshold;
+
+        Segment(final int capacity, final float loadFactor) {
+            this.loadFactor = loadFactor;
+            synchronized (this) {
+                threshold = (int) (capacity * loadFactor);
+                table = new AtomicReferenceArray<Item<K, V>[]>(capacity);
+            }
+        }
+
+        Item<K, V> get(final int hash, final Object key) {
+            final AtomicReferenceArray<Item<K, V>[]> table = this.table;
+            final Item<K, V>[] row = table.get(hash & (table.length() - 1));
+            if (row != null) {
+                for (Item<K, V> item : row) {
+                    if (item.hash == hash && item.key.equals(key)) {
+                        return item;
+                    }
+                }
+            }
+            return null;
+        }
+
+        synchronized V put(final int hash, final K key, final V value, final boolean ifAbsent) {
+            final AtomicReferenceArray<Item<K, V>[]> table = this.table;
+            final int idx = hash & (table.length() - 1);
+            final Item<K, V>[] old = table.get(idx);
+            final Item<K, V>[] newRow;
+            if (old == null) {
+                @SuppressWarnings("unchecked")
+                final Item<K, V>[] row = new Item[] { new Item<K, V>(hash, key, value) };
+                newRow = row;
+            } else {
+                for (Item<K, V> item : old) {
+                    if (item.hash == hash && item.key.equals(key)) {
+                        try {
+                            return item.value;
+                        } finally {
+                            if (! ifAbsent) item.value = value;
+                        }
+                    }
+                }
+                final int oldLen = old.length;
+                newRow = Arrays.copyOf(old, oldLen + 1);
+                newRow[oldLen] = new Item<K, V>(hash, key, value);
+            }
+            table.set(idx, newRow);
+            if (size++ == threshold) {
+                resize();
+            }
+            return null;
+        }
+
+        synchronized Item<K, V> remove(final int hash, final Object key, final Object value, final boolean matchValue) {
+            final AtomicReferenceArray<Item<K, V>[]> table = this.table;
+            final int idx = hash & (table.length() - 1);
+            final Item<K, V>[] row = table.get(idx);
+            if (row == null) {
+                return null;
+            }
+            final int rowLen = row.length;
+            for (int i = 0; i < rowLen; i++) {
+                final Item<K, V> item = row[i];
+                if (item.hash == hash && item.key.equals(key)) {
+                    if (matchValue && ! (value == null ? item.value == null : value.equals(item.value))) {
+                        return null;
+                    }
+                    table.set(idx, remove(row, i));
+                    size --;
+                    return item;
+                }
+            }
+            return null;
+        }
+
+        synchronized void clear() {
+            table = new AtomicReferenceArray<Item<K, V>[]>(table.length());
+            size = 0;
+        }
+
+        @SuppressWarnings( { "unchecked" })
+        private void resize() {
+            assert Thread.holdsLock(this);
+            final AtomicReferenceArray<Item<K, V>[]> oldTable = table;
+            final int oldCapacity = oldTable.length();
+            if (oldCapacity == MAXIMUM_SEGMENT_CAPACITY) {
+                return;
+            }
+            final int newCapacity = oldCapacity << 1;
+            final AtomicReferenceArray<Item<K, V>[]> newTable = new AtomicReferenceArray<Item<K, V>[]>(newCapacity);
+            final int newThreshold = (int)(newCapacity * loadFactor);
+            for (int i = 0; i < oldCapacity; i ++) {
+                final Item<K, V>[] items = oldTable.get(i);
+                if (items != null) {
+                    final int length = items.length;
+                    for (int j = 0; j < length; j++) {
+                        Item<K, V> item = items[j];
+                        final int hc = item.hash & (newCapacity - 1);
+                        final Item<K, V>[] old = newTable.get(hc);
+                        if (old == null) {
+                            newTable.lazySet(hc, new Item[] { item });
+                        } else {
+                            final int oldLen = old.length;
+                            final Item<K, V>[] copy = Arrays.copyOf(old, oldLen + 1);
+                            copy[oldLen] = item;
+                            newTable.lazySet(hc, copy);
+                        }
+                    }
+                }
+            }
+            table = newTable;
+            threshold = newThreshold;
+        }
+
+        private static <K, V> Item<K, V>[] remove(Item<K, V>[] row, int idx) {
+            final int len = row.length;
+            assert idx < len;
+            if (len == 1) {
+                return null;
+            }
+            @SuppressWarnings("unchecked")
+            Item<K, V>[] newRow = new Item[len - 1];
+            if (idx > 0) {
+                System.arraycopy(row, 0, newRow, 0, idx);
+            }
+            if (idx < len - 1) {
+                System.arraycopy(row, idx + 1, newRow, idx, len - 1 - idx);
+            }
+            return newRow;
+        }
+    }
+
     private final class EntrySet extends AbstractSet<Entry<K, V>> implements Set<Entry<K, V>> {
 
         public Iterator<Entry<K, V>> iterator() {
@@ -335,7 +428,8 @@ final class UnlockedReadHashMap<K, V> extends AbstractMap<K, V> implements Concu
     }
 
     private final class EntryIterator implements Iterator<Entry<K, V>> {
-        private final AtomicReferenceArray<Item<K,V>[]> table = UnlockedReadHashMap.this.table;
+        private int segmentIdx;
+        private AtomicReferenceArray<Item<K,V>[]> table = segments[0].table;
         private int tableIdx;
         private int itemIdx;
         private Item<K, V> next;
@@ -343,7 +437,12 @@ final class UnlockedReadHashMap<K, V> extends AbstractMap<K, V> implements Concu
         public boolean hasNext() {
             while (next == null) {
                 if (table.length() == tableIdx) {
-                    return false;
+                    if (++segmentIdx == SEGMENT_COUNT) {
+                        return false;
+                    }
+                    table = segments[segmentIdx].table;
+                    tableIdx = 0;
+                    continue;
                 }
                 final Item<K, V>[] items = table.get(tableIdx);
                 if (items != null) {
@@ -374,10 +473,12 @@ final class UnlockedReadHashMap<K, V> extends AbstractMap<K, V> implements Concu
     }
 
     private static final class Item<K, V> implements Entry<K, V> {
+        private final int hash;
         private final K key;
         private volatile V value;
 
-        private Item(final K key, final V value) {
+        private Item(final int hash, final K key, final V value) {
+            this.hash = hash;
             this.key = key;
             this.value = value;
         }
@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import java.lang.reflect.Method;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * An executor which runs each task on a new virtual thread.  Virtual threads are looked up reflectively, so this class
+ * still loads on JVMs which lack them; there, {@link #INSTANCE} is {@code null}.
+ */
+final class VirtualThreadExecutor implements Executor {
+
+    /**
+     * The shared instance, or {@code null} if this JVM does not support virtual threads.
+     */
+    static final VirtualThreadExecutor INSTANCE;
+
+    static {
+        INSTANCE = AccessController.doPrivileged(new PrivilegedAction<VirtualThreadExecutor>() {
+            public VirtualThreadExecutor run() {
+                try {
+                    // Thread.ofVirtual().name("MSC lifecycle thread ", 1L).factory()
+                    final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                    final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                    final Method name = builderClass.getMethod("name", String.class, long.class);
+                    final Method factory = builderClass.getMethod("factory");
+                    return new VirtualThreadExecutor((ThreadFactory) factory.invoke(name.invoke(builder, "MSC lifecycle thread ", Long.valueOf(1L))));
+                } catch (Throwable ignored) {
+                    // no virtual threads, or not without preview features enabled
+                    return null;
+                }
+            }
+        });
+    }
+
+    private static final Thread.UncaughtExceptionHandler HANDLER = new Thread.UncaughtExceptionHandler() {
+        public void uncaughtException(final Thread t, final Throwable e) {
+            ServiceLogger.INSTANCE.uncaughtException(e);
+        }
+    };
+
+    private final ThreadFactory threadFactory;
+
+    private VirtualThreadExecutor(final ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    public void execute(final Runnable command) {
+        final Thread thread = threadFactory.newThread(command);
+        thread.setUncaughtExceptionHandler(HANDLER);
+        thread.start();
+    }
+}
@@ -61,6 +61,46 @@ public interface ServiceContainerMXBean {
      */
     void setServiceMode(String name, String mode);
 
+    /**
+     * Determine whether this container records service lifecycle timings.  Recording is initially on if the
+     * {@code jboss.msc.timing.metrics} system property is {@code true}.
+     *
+     * @return {@code true} if timings are recorded
+     */
+    boolean isTimingMetricsEnabled();
+
+    /**
+     * Start or stop recording service lifecycle timings.  Timings recorded so far are kept.
+     *
+     * @param enabled {@code true} to record timings
+     */
+    void setTimingMetricsEnabled(boolean enabled);
+
+    /**
+     * Get the most recent lifecycle timings of one service.  Timings are only recorded while timing metrics are
+     * enabled.
+     *
+     * @param name the service name
+     * @return the timings, or {@code null} if there is no such service
+     */
+    ServiceTimings getServiceTimings(String name);
+
+    /**
+     * Get the timings of the services which took longest to start, slowest first.
+     *
+     * @param count the maximum number of services to return
+     * @return the list of timings
+     */
+    List<ServiceTimings> querySlowestServices(int count);
+
+    /**
+     * Get a summary of each kind of lifecycle timing recorded by this container: service start and stop times,
+     * time spent waiting for dependencies, and time spent in listeners.
+     *
+     * @return the list of summaries
+     */
+    List<TimingSummary> queryTimingSummaries();
+
     /**
      * Dump the container state to the console.
      */
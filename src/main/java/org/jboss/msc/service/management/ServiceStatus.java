@@ -57,7 +57,7 @@ public class ServiceStatus implements Serializable {
      * @param dependencyFailed {@code true} if some dependency is failed
      * @param dependencyMissing {@code true} if some dependency is missing
      */
-    @ConstructorProperties({"serviceName", "serviceClassName", "modeName", "stateName", "substateName", "dependencies", "dependencyFailed", "dependencyMissing"})
+    @ConstructorProperties({"serviceName", "aliases", "serviceClassName", "modeName", "stateName", "substateName", "dependencies", "dependencyFailed", "dependencyMissing"})
     public ServiceStatus(final String serviceName, final String[] aliases, final String serviceClassName, final String modeName, final String stateName, final String substateName, final String[] dependencies, final boolean dependencyFailed, final boolean dependencyMissing) {
         if (serviceName == null) {
             throw new IllegalArgumentException("serviceName is null");
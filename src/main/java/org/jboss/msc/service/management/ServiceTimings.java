@@ -0,0 +1,118 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service.management;
+
+import java.beans.ConstructorProperties;
+import java.io.Serializable;
+
+/**
+ * The most recent lifecycle timings of some service.  A duration which was never measured (for example the stop time
+ * of a service which never stopped) is reported as {@code -1}.
+ */
+public class ServiceTimings implements Serializable {
+
+    private static final long serialVersionUID = -3079540861284718206L;
+
+    private final String serviceName;
+    private final long startNanos;
+    private final long stopNanos;
+    private final long dependencyWaitNanos;
+    private final long listenerNanos;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param serviceName the service name
+     * @param startNanos the duration of the last start, in nanoseconds
+     * @param stopNanos the duration of the last stop, in nanoseconds
+     * @param dependencyWaitNanos the time the last start spent waiting for dependencies, in nanoseconds
+     * @param listenerNanos the total time spent in listeners of this service, in nanoseconds
+     */
+    @ConstructorProperties({"serviceName", "startNanos", "stopNanos", "dependencyWaitNanos", "listenerNanos"})
+    public ServiceTimings(final String serviceName, final long startNanos, final long stopNanos, final long dependencyWaitNanos, final long listenerNanos) {
+        if (serviceName == null) {
+            throw new IllegalArgumentException("serviceName is null");
+        }
+        this.serviceName = serviceName;
+        this.startNanos = startNanos;
+        this.stopNanos = stopNanos;
+        this.dependencyWaitNanos = dependencyWaitNanos;
+        this.listenerNanos = listenerNanos;
+    }
+
+    /**
+     * Get the service name, as a string.
+     *
+     * @return the service name
+     */
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    /**
+     * Get the time taken by the last execution of the service's {@code start()} method, including any asynchronous
+     * completion.
+     *
+     * @return the start duration in nanoseconds, or {@code -1} if the service never started
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Get the time taken by the last execution of the service's {@code stop()} method, including any asynchronous
+     * completion.
+     *
+     * @return the stop duration in nanoseconds, or {@code -1} if the service never stopped
+     */
+    public long getStopNanos() {
+        return stopNanos;
+    }
+
+    /**
+     * Get the time between the last start request and the moment all dependencies were up.
+     *
+     * @return the dependency wait in nanoseconds, or {@code -1} if the service never started
+     */
+    public long getDependencyWaitNanos() {
+        return dependencyWaitNanos;
+    }
+
+    /**
+     * Get the total time spent notifying the listeners of this service.
+     *
+     * @return the listener time in nanoseconds
+     */
+    public long getListenerNanos() {
+        return listenerNanos;
+    }
+
+    /**
+     * Get a string representation of these timings.
+     *
+     * @return a string representation
+     */
+    public String toString() {
+        return String.format("Service \"%s\" start %dns stop %dns dependency wait %dns listeners %dns", serviceName, Long.valueOf(startNanos), Long.valueOf(stopNanos), Long.valueOf(dependencyWaitNanos), Long.valueOf(listenerNanos));
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service.management;
+
+import java.beans.ConstructorProperties;
+import java.io.Serializable;
+
+/**
+ * A summary of one kind of lifecycle timing across all the services of a container.  Percentiles are upper bounds
+ * taken from a bucketed histogram, accurate to within one eighth of the true value.
+ */
+public class TimingSummary implements Serializable {
+
+    private static final long serialVersionUID = 2472387465209613380L;
+
+    private final String name;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long medianNanos;
+    private final long percentile90Nanos;
+    private final long percentile99Nanos;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param name the name of the timing (for example {@code "start"})
+     * @param count the number of recorded durations
+     * @param totalNanos the sum of all recorded durations, in nanoseconds
+     * @param maxNanos the longest recorded duration, in nanoseconds
+     * @param medianNanos the 50th percentile, in nanoseconds
+     * @param percentile90Nanos the 90th percentile, in nanoseconds
+     * @param percentile99Nanos the 99th percentile, in nanoseconds
+     */
+    @ConstructorProperties({"name", "count", "totalNanos", "maxNanos", "medianNanos", "percentile90Nanos", "percentile99Nanos"})
+    public TimingSummary(final String name, final long count, final long totalNanos, final long maxNanos, final long medianNanos, final long percentile90Nanos, final long percentile99Nanos) {
+        if (name == null) {
+            throw new IllegalArgumentException("name is null");
+        }
+        this.name = name;
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.medianNanos = medianNanos;
+        this.percentile90Nanos = percentile90Nanos;
+        this.percentile99Nanos = percentile99Nanos;
+    }
+
+    /**
+     * Get the name of the timing; one of {@code "start"}, {@code "stop"}, {@code "dependency-wait"} or
+     * {@code "listener"}.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the number of recorded durations.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the sum of all recorded durations.
+     *
+     * @return the total in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Get the longest recorded duration.
+     *
+     * @return the maximum in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Get the median recorded duration.
+     *
+     * @return the median in nanoseconds
+     */
+    public long getMedianNanos() {
+        return medianNanos;
+    }
+
+    /**
+     * Get the 90th percentile of the recorded durations.
+     *
+     * @return the percentile in nanoseconds
+     */
+    public long getPercentile90Nanos() {
+        return percentile90Nanos;
+    }
+
+    /**
+     * Get the 99th percentile of the recorded durations.
+     *
+     * @return the percentile in nanoseconds
+     */
+    public long getPercentile99Nanos() {
+        return percentile99Nanos;
+    }
+
+    /**
+     * Get a string representation of this summary.
+     *
+     * @return a string representation
+     */
+    public String toString() {
+        return String.format("%s: count %d total %dns max %dns p50 %dns p90 %dns p99 %dns", name, Long.valueOf(count), Long.valueOf(totalNanos), Long.valueOf(maxNanos), Long.valueOf(medianNanos), Long.valueOf(percentile90Nanos), Long.valueOf(percentile99Nanos));
+    }
+}
@@ -24,6 +24,7 @@ package org.jboss.msc.translate;
 
 import java.lang.reflect.Field;
 import org.jboss.msc.value.Value;
+import org.jboss.msc.value.Values;
 
 /**
  * A translator which translates by fetching the value of a field on the target object.
@@ -34,24 +35,59 @@ import org.jboss.msc.value.Value;
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
 public final class FieldTraversingTranslator<I, O> implements Translator<I, O> {
-    private final Value<Field> field;
+    private final Value<Field> fieldValue;
+    private final boolean bound;
+    /**
+     * The resolved field, once a bound translator first needs it.
+     */
+    private volatile Field field;
 
     /**
-     * Construct a new instance.
+     * Construct a new instance.  If the field value always yields the same field, as immediate values and the
+     * {@code Lookup*FieldValue} classes do, the field is only read from it once.
      *
      * @param field the field to traverse
      */
     public FieldTraversingTranslator(final Value<Field> field) {
-        this.field = field;
+        this(field, Values.isBindable(field));
+    }
+
+    private FieldTraversingTranslator(final Value<Field> fieldValue, final boolean bound) {
+        this.fieldValue = fieldValue;
+        this.bound = bound;
+    }
+
+    /**
+     * Construct a new instance which gets the field from the given value once, on first use, and reads that same
+     * field from then on, whatever kind of value it is.
+     *
+     * @param field the field to traverse
+     * @param <I> the input type
+     * @param <O> the output type
+     * @return the translator
+     */
+    public static <I, O> FieldTraversingTranslator<I, O> createBound(final Value<Field> field) {
+        return new FieldTraversingTranslator<I, O>(field, true);
+    }
+
+    private Field getField() {
+        Field field = this.field;
+        if (field == null) {
+            field = fieldValue.getValue();
+            if (bound) {
+                this.field = field;
+            }
+        }
+        return field;
     }
 
     /** {@inheritDoc} */
     @SuppressWarnings({ "unchecked" })
     public O translate(final I input) {
         try {
-            return (O) field.getValue().get(input);
+            return (O) getField().get(input);
         } catch (Exception e) {
             throw new TranslationException(e);
         }
     }
-}
\ No newline at end of file
+}
@@ -22,38 +22,193 @@
 
 package org.jboss.msc.value;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 /**
  * A value which is calculated once only.  After the initial calculation, the result is cached and returned.
+ * <p>
+ * Only one thread calculates the value at a time; other threads requesting it meanwhile wait for that calculation.
+ * If the calculation fails, the failure may optionally be cached as well, so that until a retry delay passes,
+ * callers get an {@link IllegalStateException} caused by it rather than each repeating the calculation.  The delay doubles with each consecutive
+ * failure, up to a maximum.  An {@linkplain #invalidate() invalidated} value is calculated again on the next request.
  *
  * @param <T> the value type
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class CachedValue<T> implements Value<T> {
-    private volatile Value<? extends T> value;
+public final class CachedValue<T> implements ContextualValue<T> {
+    private final Value<? extends T> value;
+    private final long minRetryDelay;
+    private final long maxRetryDelay;
+    /**
+     * The current state: {@code null} if not calculated, or a {@link Result}, {@link Calculation} or {@link Failure}.
+     */
+    private volatile Object state;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<CachedValue, Object> stateUpdater = AtomicReferenceFieldUpdater.newUpdater(CachedValue.class, Object.class, "state");
 
     /**
-     * Construct a new instance.
+     * Construct a new instance which does not cache failures.
      *
      * @param value the value from which this value is calculated
      */
     public CachedValue(final Value<? extends T> value) {
         this.value = value;
+        minRetryDelay = 0L;
+        maxRetryDelay = 0L;
+    }
+
+    /**
+     * Construct a new instance which caches failures.  A failure is cached for {@code minRetryDelay} at first, and
+     * for twice as long after each consecutive failure, up to {@code maxRetryDelay}.
+     *
+     * @param value the value from which this value is calculated
+     * @param minRetryDelay the time to cache the first failure
+     * @param maxRetryDelay the longest time to cache a failure
+     * @param unit the time unit of the delays
+     */
+    public CachedValue(final Value<? extends T> value, final long minRetryDelay, final long maxRetryDelay, final TimeUnit unit) {
+        if (minRetryDelay <= 0L) {
+            throw new IllegalArgumentException("minRetryDelay must be positive");
+        }
+        if (maxRetryDelay < minRetryDelay) {
+            throw new IllegalArgumentException("maxRetryDelay is less than minRetryDelay");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit is null");
+        }
+        this.value = value;
+        this.minRetryDelay = unit.toNanos(minRetryDelay);
+        this.maxRetryDelay = unit.toNanos(maxRetryDelay);
     }
 
     /** {@inheritDoc} */
     public T getValue() throws IllegalStateException {
-        Value<? extends T> value;
-        if ((value = this.value) instanceof ImmediateValue) {
-            return value.getValue();
+        return get(null);
+    }
+
+    /**
+     * Get the value.  If it is calculated by this call, the calculation is done in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public T getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
         }
-        synchronized (this) {
-            if ((value = this.value) instanceof ImmediateValue) {
-                return value.getValue();
+        return get(context);
+    }
+
+    /**
+     * Get the value, calculating it in the given context, or outside of any if it is {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    private T get(final EvaluationContext context) {
+        for (;;) {
+            final Object state = this.state;
+            if (state instanceof Result) {
+                return ((Result<T>) state).result;
+            }
+            long failedDelay = 0L;
+            if (state instanceof Calculation) {
+                final Calculation calculation = (Calculation) state;
+                if (calculation.thread == Thread.currentThread()) {
+                    // a recursive request cannot wait for its own calculation
+                    return calculate(context);
+                }
+                calculation.await();
+                continue;
+            } else if (state instanceof Failure) {
+                final Failure failure = (Failure) state;
+                if (System.nanoTime() - failure.retryTime < 0L) {
+                    // each caller gets an exception of its own
+                    throw new IllegalStateException("Value calculation failed", failure.cause);
+                }
+                failedDelay = failure.delay;
             }
-            final T result = value.getValue();
-            this.value = new ImmediateValue<T>(result);
-            return result;
+            final Calculation calculation = new Calculation();
+            if (! stateUpdater.compareAndSet(this, state, calculation)) {
+                continue;
+            }
+            try {
+                final T result = calculate(context);
+                // if invalidated meanwhile, the result is returned but not kept
+                stateUpdater.compareAndSet(this, calculation, new Result<T>(result));
+                return result;
+            } catch (RuntimeException e) {
+                Object next = null;
+                if (minRetryDelay > 0L) {
+                    final long delay = failedDelay == 0L ? minRetryDelay : failedDelay > maxRetryDelay >> 1 ? maxRetryDelay : failedDelay << 1;
+                    next = new Failure(e, delay, System.nanoTime() + delay);
+                }
+                stateUpdater.compareAndSet(this, calculation, next);
+                throw e;
+            } finally {
+                // never leave a finished calculation installed, whatever it threw
+                stateUpdater.compareAndSet(this, calculation, null);
+                calculation.done();
+            }
+        }
+    }
+
+    private T calculate(final EvaluationContext context) {
+        return context == null ? value.getValue() : Values.<T>getValue(value, context);
+    }
+
+    /**
+     * Discard the cached result or failure, if any, so that the value is calculated again on the next request.  A
+     * calculation in progress still completes, but its result is not cached.
+     */
+    public void invalidate() {
+        stateUpdater.set(this, null);
+    }
+
+    private static final class Result<T> {
+        private final T result;
+
+        Result(final T result) {
+            this.result = result;
+        }
+    }
+
+    private static final class Calculation {
+        private final Thread thread = Thread.currentThread();
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        void await() {
+            boolean intr = false;
+            try {
+                for (;;) try {
+                    latch.await();
+                    return;
+                } catch (InterruptedException e) {
+                    intr = true;
+                }
+            } finally {
+                if (intr) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        void done() {
+            latch.countDown();
+        }
+    }
+
+    private static final class Failure {
+        private final RuntimeException cause;
+        private final long delay;
+        private final long retryTime;
+
+        Failure(final RuntimeException cause, final long delay, final long retryTime) {
+            this.cause = cause;
+            this.delay = delay;
+            this.retryTime = retryTime;
         }
     }
 }
@@ -29,7 +29,7 @@ package org.jboss.msc.value;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class CheckedValue<T> implements Value<T> {
+public final class CheckedValue<T> implements ContextualValue<T> {
     private final Class<T> valueClass;
     private final Value<?> value;
 
@@ -48,4 +48,17 @@ public final class CheckedValue<T> implements Value<T> {
     public T getValue() throws IllegalStateException {
         return valueClass.cast(value.getValue());
     }
+
+    /**
+     * Get the value, evaluating the delegate value in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public T getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return valueClass.cast(Values.getValue(value, context));
+    }
 }
@@ -27,7 +27,7 @@ package org.jboss.msc.value;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class ClassOfValue<T> implements Value<Class<? extends T>> {
+public final class ClassOfValue<T> implements ContextualValue<Class<? extends T>> {
     private final Value<? extends T> value;
 
     public ClassOfValue(final Value<? extends T> value) {
@@ -37,10 +37,25 @@ public final class ClassOfValue<T> implements Value<Class<? extends T>> {
     /**
      * @return the {@code Class} of the value, or {@code null} if value.getValue() is {@code null}.
      */
-    @SuppressWarnings({ "unchecked" })
     public Class<? extends T> getValue() throws IllegalStateException {
-        final Value<? extends T> value = this.value;
-        final T actualValue = value.getValue();
+        return classOf(value.getValue());
+    }
+
+    /**
+     * Get the value, evaluating the value whose class is returned in the given context.
+     *
+     * @param context the evaluation context
+     * @return the {@code Class} of the value, or {@code null} if the value is {@code null}.
+     */
+    public Class<? extends T> getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return classOf(Values.getValue(value, context));
+    }
+
+    @SuppressWarnings({ "unchecked" })
+    private static <T> Class<? extends T> classOf(final T actualValue) {
         return actualValue == null? null: (Class<? extends T>) actualValue.getClass();
     }
 }
@@ -34,7 +34,7 @@ import java.util.List;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class ConstructedValue<T> implements Value<T> {
+public final class ConstructedValue<T> implements ContextualValue<T> {
     private final Value<Constructor<T>> constructorValue;
     private final List<? extends Value<?>> parameters;
 
@@ -51,8 +51,25 @@ public final class ConstructedValue<T> implements Value<T> {
 
     /** {@inheritDoc} */
     public T getValue() throws IllegalStateException {
+        return construct(constructorValue.getValue(), Values.getValues(parameters));
+    }
+
+    /**
+     * Get the value, evaluating the constructor and parameters in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public T getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return construct(Values.getValue(constructorValue, context), Values.getValues(parameters, context));
+    }
+
+    private static <T> T construct(final Constructor<T> constructor, final Object[] parameters) {
         try {
-            return constructorValue.getValue().newInstance(Values.getValues(parameters));
+            return constructor.newInstance(parameters);
         } catch (IllegalAccessException e) {
             throw new IllegalStateException("Field is not accessible", e);
         } catch (InvocationTargetException e) {
@@ -61,4 +78,4 @@ public final class ConstructedValue<T> implements Value<T> {
             throw new IllegalStateException("Failed to construct instance", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.value;
+
+/**
+ * A value which can be evaluated in an explicit {@link EvaluationContext}.  Evaluating a value graph in a context
+ * passes the {@linkplain Values#thisValue() this} and {@linkplain Values#injectedValue() injected} values down
+ * through its contextual values as arguments, rather than by way of thread-local variables.  A value in the graph
+ * which is not contextual is evaluated with the bindings of the context set on those thread-local variables, so
+ * contextual and other values may be mixed freely.
+ *
+ * @param <T> the value type
+ *
+ * @see Values#getValue(Value, EvaluationContext)
+ */
+public interface ContextualValue<T> extends Value<T> {
+
+    /**
+     * Get the actual value, evaluating any nested values in the given context.
+     *
+     * @param context the evaluation context; {@link EvaluationContext#EMPTY} if there are no bindings
+     * @return the actual value
+     * @throws IllegalStateException if the value is time-sensitive and the current state does not allow retrieval.
+     * @throws IllegalArgumentException when the value cannot be read due to misconfiguration, or if {@code context}
+     *     is {@code null}
+     */
+    T getValue(EvaluationContext context) throws IllegalStateException, IllegalArgumentException;
+}
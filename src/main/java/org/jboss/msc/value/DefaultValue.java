@@ -27,7 +27,7 @@ package org.jboss.msc.value;
  *
  * @param <T> the value type
  */
-public final class DefaultValue<T> implements Value<T> {
+public final class DefaultValue<T> implements ContextualValue<T> {
     private final Value<T> value;
     private final Value<? extends T> defaultValue;
 
@@ -47,4 +47,18 @@ public final class DefaultValue<T> implements Value<T> {
         final T result = value.getValue();
         return result != null ? result : defaultValue.getValue();
     }
+
+    /**
+     * Get the value, evaluating the delegate and default values in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public T getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        final T result = Values.getValue(value, context);
+        return result != null ? result : Values.getValue(defaultValue, context);
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.value;
+
+/**
+ * The bindings for the special {@linkplain Values#thisValue() this} and {@linkplain Values#injectedValue() injected}
+ * values during the evaluation of a {@link ContextualValue}.  Contexts are immutable; binding a value yields a new
+ * context.  An unbound special value is read from its thread-local variable, as it is outside of any context.
+ */
+public final class EvaluationContext {
+
+    /**
+     * The context with no bindings.
+     */
+    public static final EvaluationContext EMPTY = new EvaluationContext(null, null);
+
+    private final Value<?> thisValue;
+    private final Value<?> injectedValue;
+
+    private EvaluationContext(final Value<?> thisValue, final Value<?> injectedValue) {
+        this.thisValue = thisValue;
+        this.injectedValue = injectedValue;
+    }
+
+    /**
+     * Get the value bound to {@link Values#thisValue()}.
+     *
+     * @return the bound value, or {@code null} if there is none
+     */
+    public Value<?> getThisValue() {
+        return thisValue;
+    }
+
+    /**
+     * Get the value bound to {@link Values#injectedValue()}.
+     *
+     * @return the bound value, or {@code null} if there is none
+     */
+    public Value<?> getInjectedValue() {
+        return injectedValue;
+    }
+
+    /**
+     * Get a context which binds {@link Values#thisValue()} to the given value.
+     *
+     * @param thisValue the value to bind
+     * @return the new context
+     */
+    public EvaluationContext withThisValue(final Value<?> thisValue) {
+        return thisValue == this.thisValue ? this : new EvaluationContext(thisValue, injectedValue);
+    }
+
+    /**
+     * Get a context which binds {@link Values#injectedValue()} to the given value.
+     *
+     * @param injectedValue the value to bind
+     * @return the new context
+     */
+    public EvaluationContext withInjectedValue(final Value<?> injectedValue) {
+        return injectedValue == this.injectedValue ? this : new EvaluationContext(thisValue, injectedValue);
+    }
+}
@@ -31,7 +31,7 @@ import java.lang.reflect.Field;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class FieldValue<T> implements Value<T> {
+public final class FieldValue<T> implements ContextualValue<T> {
     private final Value<Field> fieldValue;
     private final Value<?> targetValue;
 
@@ -47,10 +47,27 @@ public final class FieldValue<T> implements Value<T> {
     }
 
     /** {@inheritDoc} */
-    @SuppressWarnings({ "unchecked" })
     public T getValue() throws IllegalStateException {
+        return get(fieldValue.getValue(), targetValue.getValue());
+    }
+
+    /**
+     * Get the value, evaluating the field and target in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public T getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return get(Values.getValue(fieldValue, context), Values.getValue(targetValue, context));
+    }
+
+    @SuppressWarnings({ "unchecked" })
+    private static <T> T get(final Field field, final Object target) {
         try {
-            return (T) fieldValue.getValue().get(targetValue.getValue());
+            return (T) field.get(target);
         } catch (IllegalAccessException e) {
             throw new IllegalStateException("Field is not accessible", e);
         }
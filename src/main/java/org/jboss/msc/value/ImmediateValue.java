@@ -29,7 +29,7 @@ package org.jboss.msc.value;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class ImmediateValue<T> implements Value<T> {
+public final class ImmediateValue<T> implements ContextualValue<T> {
     private final T value;
 
     /**
@@ -45,4 +45,12 @@ public final class ImmediateValue<T> implements Value<T> {
     public T getValue() {
         return value;
     }
+
+    /** {@inheritDoc} */
+    public T getValue(final EvaluationContext context) {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return value;
+    }
 }
@@ -32,7 +32,7 @@ import org.jboss.msc.inject.Injector;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class InjectedValue<T> implements Injector<T>, Value<T> {
+public final class InjectedValue<T> implements Injector<T>, ContextualValue<T> {
 
     private volatile Value<T> value;
 
@@ -51,6 +51,19 @@ public final class InjectedValue<T> implements Injector<T>, Value<T> {
         return value.getValue();
     }
 
+    /**
+     * Get the value.  The injected value does not depend on the context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public T getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return getValue();
+    }
+
     /** {@inheritDoc} */
     public void inject(final T value) throws InjectionException {
         this.value = new ImmediateValue<T>(value);
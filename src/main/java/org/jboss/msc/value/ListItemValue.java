@@ -31,7 +31,7 @@ import java.util.List;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class ListItemValue<T> implements Value<T> {
+public final class ListItemValue<T> implements ContextualValue<T> {
     private final Value<? extends List<? extends T>> listValue;
     private final Value<? extends Number> indexValue;
 
@@ -56,4 +56,17 @@ public final class ListItemValue<T> implements Value<T> {
     public T getValue() throws IllegalStateException {
         return listValue.getValue().get(indexValue.getValue().intValue());
     }
+
+    /**
+     * Get the value, evaluating the list and index in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public T getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return Values.getValue(listValue, context).get(Values.getValue(indexValue, context).intValue());
+    }
 }
@@ -32,7 +32,7 @@ import java.util.List;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class ListValue<T> implements Value<List<T>> {
+public final class ListValue<T> implements ContextualValue<List<T>> {
     private final List<? extends Value<? extends T>> values;
 
     /**
@@ -53,4 +53,22 @@ public final class ListValue<T> implements Value<List<T>> {
         }
         return list;
     }
+
+    /**
+     * Get the value, evaluating the element values in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public List<T> getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        final List<? extends Value<? extends T>> values = this.values;
+        final ArrayList<T> list = new ArrayList<T>(values.size());
+        for (Value<? extends T> value : values) {
+            list.add(Values.getValue(value, context));
+        }
+        return list;
+    }
 }
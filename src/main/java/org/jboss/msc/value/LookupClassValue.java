@@ -27,7 +27,7 @@ package org.jboss.msc.value;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class LookupClassValue implements Value<Class<?>> {
+public final class LookupClassValue implements ContextualValue<Class<?>> {
     private final String className;
     private final Value<? extends ClassLoader> classLoaderValue;
     private volatile Class<?> result;
@@ -51,6 +51,23 @@ public final class LookupClassValue implements Value<Class<?>> {
 
     /** {@inheritDoc} */
     public Class<?> getValue() throws IllegalStateException {
+        return get(null);
+    }
+
+    /**
+     * Get the value, evaluating the class loader in the given context if the class was not yet looked up.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public Class<?> getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return get(context);
+    }
+
+    private Class<?> get(final EvaluationContext context) {
         Class<?> result = this.result;
         if (result != null) {
             return result;
@@ -60,7 +77,7 @@ public final class LookupClassValue implements Value<Class<?>> {
             if (result != null) {
                 return result;
             }
-            final ClassLoader classLoader = classLoaderValue.getValue();
+            final ClassLoader classLoader = context == null ? classLoaderValue.getValue() : Values.getValue(classLoaderValue, context);
             try {
                 this.result = (result = Class.forName(className, false, classLoader));
             } catch (ClassNotFoundException e) {
@@ -32,9 +32,10 @@ import java.util.List;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class LookupConstructorValue implements Value<Constructor<?>> {
+public final class LookupConstructorValue implements ContextualValue<Constructor<?>> {
     private final Value<Class<?>> target;
     private final List<? extends Value<Class<?>>> parameterTypes;
+    private final ResolvedMember<Constructor<?>> resolved = new ResolvedMember<Constructor<?>>();
 
     /**
      * Construct a new instance.
@@ -55,14 +56,29 @@ public final class LookupConstructorValue implements Value<Constructor<?>> {
 
     /** {@inheritDoc} */
     public Constructor<?> getValue() throws IllegalStateException {
-        Class<?>[] types = new Class[parameterTypes.size()];
-        int i = 0;
-        for (Value<Class<?>> type : parameterTypes) {
-            types[i++] = type.getValue();
+        return lookup(target.getValue(), Values.getTypes(parameterTypes, null));
+    }
+
+    /**
+     * Get the value, evaluating the target class and parameter types in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public Constructor<?> getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return lookup(Values.getValue(target, context), Values.getTypes(parameterTypes, context));
+    }
+
+    private Constructor<?> lookup(final Class<?> targetClass, final Class<?>[] types) {
+        final Constructor<?> cached = resolved.get(targetClass, types);
+        if (cached != null) {
+            return cached;
         }
-        final Class<?> targetClass = target.getValue();
         try {
-            return targetClass.getConstructor(types);
+            return resolved.put(targetClass, types, targetClass.getConstructor(types));
         } catch (NoSuchMethodException e) {
             throw new IllegalStateException(noSuchConstructor(targetClass, parameterTypes));
         }
@@ -36,11 +36,12 @@ import java.util.List;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class LookupDeclaredConstructorValue implements Value<Constructor<?>> {
+public final class LookupDeclaredConstructorValue implements ContextualValue<Constructor<?>> {
     private final Value<Class<?>> target;
     private final List<? extends Value<Class<?>>> parameterTypes;
     private final AccessControlContext context;
     private final boolean makeAccessible;
+    private final ResolvedMember<Constructor<?>> resolved = new ResolvedMember<Constructor<?>>();
 
     /**
      * Construct a new instance.
@@ -68,12 +69,23 @@ public final class LookupDeclaredConstructorValue implements Value<Constructor<?
 
     /** {@inheritDoc} */
     public Constructor<?> getValue() throws IllegalStateException {
-        final Class<?>[] types = new Class[parameterTypes.size()];
-        int i = 0;
-        for (Value<Class<?>> type : parameterTypes) {
-            types[i++] = type.getValue();
+        return lookup(target.getValue(), Values.getTypes(parameterTypes, null));
+    }
+
+    /**
+     * Get the value, evaluating the target class and parameter types in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public Constructor<?> getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
         }
-        final Class<?> targetClass = target.getValue();
+        return lookup(Values.getValue(target, context), Values.getTypes(parameterTypes, context));
+    }
+
+    private Constructor<?> lookup(final Class<?> targetClass, final Class<?>[] types) {
         final SecurityManager sm = System.getSecurityManager();
         if (sm != null) {
             return AccessController.doPrivileged(new PrivilegedAction<Constructor<?>>() {
@@ -88,10 +100,15 @@ public final class LookupDeclaredConstructorValue implements Value<Constructor<?
                 }
             }, context);
         } else {
+            // without a security manager, the lookup does not depend on the access control context
+            final Constructor<?> cached = resolved.get(targetClass, types);
+            if (cached != null) {
+                return cached;
+            }
             try {
                 final Constructor<?> constructor = targetClass.getDeclaredConstructor(types);
                 if (makeAccessible) constructor.setAccessible(true);
-                return constructor;
+                return resolved.put(targetClass, types, constructor);
             } catch (NoSuchMethodException e) {
                 throw new IllegalStateException(noSuchConstructor(targetClass, parameterTypes));
             }
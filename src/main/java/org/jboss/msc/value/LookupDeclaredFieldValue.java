@@ -33,11 +33,12 @@ import java.security.PrivilegedAction;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class LookupDeclaredFieldValue implements Value<Field> {
+public final class LookupDeclaredFieldValue implements ContextualValue<Field> {
     private final Value<Class<?>> target;
     private final String fieldName;
     private final AccessControlContext context;
     private final boolean makeAccessible;
+    private final ResolvedMember<Field> resolved = new ResolvedMember<Field>();
 
     /**
      * Construct a new instance.
@@ -65,7 +66,23 @@ public final class LookupDeclaredFieldValue implements Value<Field> {
 
     /** {@inheritDoc} */
     public Field getValue() throws IllegalStateException {
-        final Class<?> targetClass = target.getValue();
+        return lookup(target.getValue());
+    }
+
+    /**
+     * Get the value, evaluating the target class in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public Field getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return lookup(Values.getValue(target, context));
+    }
+
+    private Field lookup(final Class<?> targetClass) {
         final SecurityManager sm = System.getSecurityManager();
         if (sm != null) {
             return AccessController.doPrivileged(new PrivilegedAction<Field>() {
@@ -80,10 +97,15 @@ public final class LookupDeclaredFieldValue implements Value<Field> {
                 }
             }, context);
         }
+        // without a security manager, the lookup does not depend on the access control context
+        final Field cached = resolved.get(targetClass, null);
+        if (cached != null) {
+            return cached;
+        }
         try {
             final Field field = targetClass.getDeclaredField(fieldName);
             if (makeAccessible) field.setAccessible(true);
-            return field;
+            return resolved.put(targetClass, null, field);
         } catch (NoSuchFieldException e) {
             throw new IllegalStateException("No such field '" + fieldName + "' found on " + targetClass);
         }
@@ -36,13 +36,15 @@ import java.util.List;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class LookupDeclaredMethodValue implements Value<Method> {
+public final class LookupDeclaredMethodValue implements ContextualValue<Method> {
     private final Value<Class<?>> target;
     private final String methodName;
     private final List<? extends Value<Class<?>>> parameterTypes;
     private final AccessControlContext context;
     private final boolean makeAccessible;
     private final int paramCount;
+    private final SignatureTable.Key key;
+    private final ResolvedMember<Method> resolved = new ResolvedMember<Method>();
 
     /**
      * Construct a new instance.
@@ -72,6 +74,7 @@ public final class LookupDeclaredMethodValue implements Value<Method> {
         this.paramCount = parameterTypes.size();
         this.context = context;
         this.makeAccessible = makeAccessible;
+        key = null;
     }
 
     public LookupDeclaredMethodValue(final Value<Class<?>> target, final String methodName, final int paramCount,  final AccessControlContext context, final boolean makeAccessible) {
@@ -90,18 +93,28 @@ public final class LookupDeclaredMethodValue implements Value<Method> {
         this.paramCount = paramCount;
         this.context = context;
         this.makeAccessible = makeAccessible;
+        key = new SignatureTable.Key(SignatureTable.Kind.DECLARED_METHOD, methodName, paramCount);
     }
 
     /** {@inheritDoc} */
     public Method getValue() throws IllegalStateException {
-        final Class<?>[] types = parameterTypes == null? null: new Class[parameterTypes.size()];
-        if (types != null) {
-            int i = 0;
-            for (Value<Class<?>> type : parameterTypes) {
-                types[i++] = type.getValue();
-            }
+        return lookup(target.getValue(), Values.getTypes(parameterTypes, null));
+    }
+
+    /**
+     * Get the value, evaluating the target class and parameter types in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public Method getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
         }
-        final Class<?> targetClass = target.getValue();
+        return lookup(Values.getValue(target, context), Values.getTypes(parameterTypes, context));
+    }
+
+    private Method lookup(final Class<?> targetClass, final Class<?>[] types) {
         final SecurityManager sm = System.getSecurityManager();
         if (sm != null) {
             return AccessController.doPrivileged(new PrivilegedAction<Method>() {
@@ -110,7 +123,12 @@ public final class LookupDeclaredMethodValue implements Value<Method> {
                 }
             }, context);
         }
-        return getMethod(targetClass, types);
+        // without a security manager, the lookup does not depend on the access control context
+        final Method cached = resolved.get(targetClass, types);
+        if (cached != null) {
+            return cached;
+        }
+        return resolved.put(targetClass, types, getMethod(targetClass, types));
     }
 
     private Method getMethod(Class<?> targetClass, Class<?>[] types) {
@@ -122,15 +140,24 @@ public final class LookupDeclaredMethodValue implements Value<Method> {
                 throw new IllegalStateException(noSuchMethod(targetClass, methodName, parameterTypes));
             }
         } else {
-            final int paramCount = this.paramCount;
-            for (Method declaredMethod : targetClass.getDeclaredMethods()) {
-                if (declaredMethod.getName().equals(methodName) && declaredMethod.getParameterTypes().length == paramCount) {
-                    method = declaredMethod;
-                    break;
-                }
+            final SignatureTable.Signature signature = SignatureTable.get(targetClass, key);
+            final Class<?>[] signatureTypes = signature == null ? null : signature.getParameterTypes();
+            if (signatureTypes != null) try {
+                method = targetClass.getDeclaredMethod(methodName, signatureTypes);
+            } catch (NoSuchMethodException ignored) {
+                // search again
             }
             if (method == null) {
-                throw new IllegalStateException("No such method '" + methodName + "' found on " + targetClass);
+                final int paramCount = this.paramCount;
+                for (Method declaredMethod : targetClass.getDeclaredMethods()) {
+                    if (declaredMethod.getName().equals(methodName) && declaredMethod.getParameterTypes().length == paramCount) {
+                        method = SignatureTable.put(targetClass, key, declaredMethod);
+                        break;
+                    }
+                }
+                if (method == null) {
+                    throw new IllegalStateException("No such method '" + methodName + "' found on " + targetClass);
+                }
             }
         }
         if (makeAccessible) method.setAccessible(true);
@@ -29,9 +29,10 @@ import java.lang.reflect.Field;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class LookupFieldValue implements Value<Field> {
+public final class LookupFieldValue implements ContextualValue<Field> {
     private final Value<Class<?>> target;
     private final String fieldName;
+    private final ResolvedMember<Field> resolved = new ResolvedMember<Field>();
 
     /**
      * Construct a new instance.
@@ -52,9 +53,29 @@ public final class LookupFieldValue implements Value<Field> {
 
     /** {@inheritDoc} */
     public Field getValue() throws IllegalStateException {
-        final Class<?> targetClass = target.getValue();
+        return lookup(target.getValue());
+    }
+
+    /**
+     * Get the value, evaluating the target class in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public Field getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return lookup(Values.getValue(target, context));
+    }
+
+    private Field lookup(final Class<?> targetClass) {
+        final Field cached = resolved.get(targetClass, null);
+        if (cached != null) {
+            return cached;
+        }
         try {
-            return targetClass.getField(fieldName);
+            return resolved.put(targetClass, null, targetClass.getField(fieldName));
         } catch (NoSuchFieldException e) {
             throw new IllegalStateException("No such field '" + fieldName + "' found on " + targetClass);
         }
@@ -29,9 +29,11 @@ import java.lang.reflect.Method;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class LookupGetMethodValue implements Value<Method> {
+public final class LookupGetMethodValue implements ContextualValue<Method> {
     private final Value<Class<?>> target;
     private final String propertyName;
+    private final SignatureTable.Key key;
+    private final ResolvedMember<Method> resolved = new ResolvedMember<Method>();
 
     /**
      * Construct a new instance.
@@ -48,19 +50,46 @@ public final class LookupGetMethodValue implements Value<Method> {
         }
         this.target = target;
         this.propertyName = propertyName;
+        key = new SignatureTable.Key(SignatureTable.Kind.GET_METHOD, propertyName, 0);
     }
 
     /** {@inheritDoc} */
     public Method getValue() throws IllegalStateException {
-        final Class<?> targetClass = target.getValue();
+        return lookup(target.getValue());
+    }
+
+    /**
+     * Get the value, evaluating the target class in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public Method getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return lookup(Values.getValue(target, context));
+    }
+
+    private Method lookup(final Class<?> targetClass) {
+        final Method cached = resolved.get(targetClass, null);
+        if (cached != null) {
+            return cached;
+        }
+        final SignatureTable.Signature signature = SignatureTable.get(targetClass, key);
+        if (signature != null) try {
+            return resolved.put(targetClass, null, targetClass.getMethod(signature.getName()));
+        } catch (NoSuchMethodException ignored) {
+            // search again
+        }
         final String propertyName = this.propertyName;
         final String getterName = "get" + Character.toUpperCase(propertyName.charAt(0)) + propertyName.substring(1);
         try {
-            return targetClass.getMethod(getterName);
+            return resolved.put(targetClass, null, SignatureTable.put(targetClass, key, targetClass.getMethod(getterName)));
         } catch (NoSuchMethodException e) {
             final String iserName = "is" + Character.toUpperCase(propertyName.charAt(0)) + propertyName.substring(1);
             try {
-                return targetClass.getMethod(iserName);
+                return resolved.put(targetClass, null, SignatureTable.put(targetClass, key, targetClass.getMethod(iserName)));
             } catch (NoSuchMethodException e1) {
                 throw new IllegalStateException("No such get method for property '" + propertyName + "' found on " + targetClass);
             }
@@ -32,11 +32,13 @@ import java.util.List;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class LookupMethodValue implements Value<Method> {
+public final class LookupMethodValue implements ContextualValue<Method> {
     private final Value<Class<?>> target;
     private final String methodName;
     private final List<? extends Value<Class<?>>> parameterTypes;
     private final int paramCount;
+    private final SignatureTable.Key key;
+    private final ResolvedMember<Method> resolved = new ResolvedMember<Method>();
 
     /**
      * Construct a new instance.
@@ -59,6 +61,7 @@ public final class LookupMethodValue implements Value<Method> {
         this.methodName = methodName;
         this.parameterTypes = parameterTypes;
         paramCount = parameterTypes.size();
+        key = null;
     }
 
     public LookupMethodValue(final Value<Class<?>> target, final String methodName, final int paramCount) {
@@ -72,29 +75,50 @@ public final class LookupMethodValue implements Value<Method> {
         this.methodName = methodName;
         parameterTypes = null;
         this.paramCount = paramCount;
+        key = new SignatureTable.Key(SignatureTable.Kind.METHOD, methodName, paramCount);
     }
 
     /** {@inheritDoc} */
     public Method getValue() throws IllegalStateException {
-        final Class<?> targetClass = target.getValue();
-        final List<? extends Value<Class<?>>> parameterTypes = this.parameterTypes;
-        final String methodName = this.methodName;
-        if (parameterTypes != null) {
-            Class<?>[] types = new Class[parameterTypes.size()];
-            int i = 0;
-            for (Value<Class<?>> type : parameterTypes) {
-                types[i++] = type.getValue();
-            }
+        return lookup(target.getValue(), Values.getTypes(parameterTypes, null));
+    }
+
+    /**
+     * Get the value, evaluating the target class and parameter types in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public Method getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return lookup(Values.getValue(target, context), Values.getTypes(parameterTypes, context));
+    }
+
+    private Method lookup(final Class<?> targetClass, final Class<?>[] types) {
+        final Method cached = resolved.get(targetClass, types);
+        if (cached != null) {
+            return cached;
+        }
+        if (types != null) {
             try {
-                return targetClass.getMethod(methodName, types);
+                return resolved.put(targetClass, types, targetClass.getMethod(methodName, types));
             } catch (NoSuchMethodException e) {
                 throw new IllegalStateException(noSuchMethod(targetClass, methodName, parameterTypes));
             }
         } else {
+            final SignatureTable.Signature signature = SignatureTable.get(targetClass, key);
+            final Class<?>[] signatureTypes = signature == null ? null : signature.getParameterTypes();
+            if (signatureTypes != null) try {
+                return resolved.put(targetClass, types, targetClass.getMethod(methodName, signatureTypes));
+            } catch (NoSuchMethodException ignored) {
+                // search again
+            }
             final int paramCount = this.paramCount;
             for (Method method : targetClass.getMethods()) {
                 if (method.getName().equals(methodName) && method.getParameterTypes().length == paramCount) {
-                    return method;
+                    return resolved.put(targetClass, types, SignatureTable.put(targetClass, key, method));
                 }
             }
             throw new IllegalStateException("No such method '" + methodName + "' found on " + targetClass);
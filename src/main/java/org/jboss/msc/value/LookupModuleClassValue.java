@@ -31,7 +31,7 @@ import org.jboss.modules.ModuleLoader;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class LookupModuleClassValue implements Value<Class<?>> {
+public final class LookupModuleClassValue implements ContextualValue<Class<?>> {
     private final String className;
     private final ModuleIdentifier moduleIdentifier;
     private final ModuleLoader moduleLoader;
@@ -84,4 +84,17 @@ public final class LookupModuleClassValue implements Value<Class<?>> {
             return result;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Get the value.  The class does not depend on the context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public Class<?> getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return getValue();
+    }
+}
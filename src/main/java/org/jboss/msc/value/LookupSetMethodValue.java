@@ -29,10 +29,12 @@ import java.lang.reflect.Method;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class LookupSetMethodValue implements Value<Method> {
+public final class LookupSetMethodValue implements ContextualValue<Method> {
     private final Value<Class<?>> target;
     private final String propertyName;
     private final Value<Class<?>> propertyType;
+    private final SignatureTable.Key key;
+    private final ResolvedMember<Method> resolved = new ResolvedMember<Method>();
 
     /**
      * Construct a new instance.
@@ -54,6 +56,7 @@ public final class LookupSetMethodValue implements Value<Method> {
         this.target = target;
         this.propertyName = propertyName;
         this.propertyType = propertyType;
+        key = null;
     }
 
     /**
@@ -72,22 +75,50 @@ public final class LookupSetMethodValue implements Value<Method> {
         this.target = target;
         this.propertyName = propertyName;
         propertyType = null;
+        key = new SignatureTable.Key(SignatureTable.Kind.SET_METHOD, propertyName, 1);
     }
 
     /** {@inheritDoc} */
     public Method getValue() throws IllegalStateException {
-        final Class<?> targetClass = target.getValue();
+        final Value<Class<?>> propertyType = this.propertyType;
+        return lookup(target.getValue(), propertyType == null ? null : new Class<?>[] { propertyType.getValue() });
+    }
+
+    /**
+     * Get the value, evaluating the target class and property type in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public Method getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        final Value<Class<?>> propertyType = this.propertyType;
+        return lookup(Values.getValue(target, context), propertyType == null ? null : new Class<?>[] { Values.getValue(propertyType, context) });
+    }
+
+    private Method lookup(final Class<?> targetClass, final Class<?>[] types) {
         final String propertyName = this.propertyName;
+        final Method cached = resolved.get(targetClass, types);
+        if (cached != null) {
+            return cached;
+        }
         final String setterName = "set" + Character.toUpperCase(propertyName.charAt(0)) + propertyName.substring(1);
         try {
-            final Value<Class<?>> propertyType = this.propertyType;
-            if (propertyType != null) {
-                Class<?>[] types = new Class[] { propertyType.getValue() };
-                return targetClass.getMethod(setterName, types);
+            if (types != null) {
+                return resolved.put(targetClass, types, targetClass.getMethod(setterName, types));
             } else {
+                final SignatureTable.Signature signature = SignatureTable.get(targetClass, key);
+                final Class<?>[] signatureTypes = signature == null ? null : signature.getParameterTypes();
+                if (signatureTypes != null) try {
+                    return resolved.put(targetClass, types, targetClass.getMethod(setterName, signatureTypes));
+                } catch (NoSuchMethodException ignored) {
+                    // search again
+                }
                 for (Method method : targetClass.getMethods()) {
                     if (method.getName().equals(setterName) && method.getParameterTypes().length == 1) {
-                        return method;
+                        return resolved.put(targetClass, types, SignatureTable.put(targetClass, key, method));
                     }
                 }
             }
@@ -96,4 +127,4 @@ public final class LookupSetMethodValue implements Value<Method> {
         }
         throw new IllegalStateException("No such set method for property '" + propertyName + "' found on " + targetClass);
     }
-}
\ No newline at end of file
+}
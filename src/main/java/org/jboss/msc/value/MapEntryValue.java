@@ -30,7 +30,7 @@ package org.jboss.msc.value;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class MapEntryValue<K, V> implements Value<MapEntry<K, V>> {
+public final class MapEntryValue<K, V> implements ContextualValue<MapEntry<K, V>> {
     private final MapEntry<Value<K>, Value<V>> entry;
 
     /**
@@ -48,6 +48,20 @@ public final class MapEntryValue<K, V> implements Value<MapEntry<K, V>> {
         return MapEntry.entry(entry.getKey().getValue(), entry.getValue().getValue());
     }
 
+    /**
+     * Get the value, evaluating the key and value in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public MapEntry<K, V> getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        final MapEntry<Value<K>, Value<V>> entry = this.entry;
+        return MapEntry.entry(Values.getValue(entry.getKey(), context), Values.getValue(entry.getValue(), context));
+    }
+
     /**
      * Construct a new instance.
      *
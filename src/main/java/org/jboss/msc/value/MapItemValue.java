@@ -31,7 +31,7 @@ import java.util.Map;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class MapItemValue<T> implements Value<T> {
+public final class MapItemValue<T> implements ContextualValue<T> {
     private final Value<?> keyValue;
     private final Value<? extends Map<?, ? extends T>> mapValue;
 
@@ -56,4 +56,17 @@ public final class MapItemValue<T> implements Value<T> {
     public T getValue() throws IllegalStateException {
         return mapValue.getValue().get(keyValue.getValue());
     }
+
+    /**
+     * Get the value, evaluating the map and key in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public T getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return Values.getValue(mapValue, context).get(Values.getValue(keyValue, context));
+    }
 }
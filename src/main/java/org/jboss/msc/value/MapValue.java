@@ -34,7 +34,7 @@ import java.util.Map;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class MapValue<K, V> implements Value<Map<K, V>> {
+public final class MapValue<K, V> implements ContextualValue<Map<K, V>> {
     private final List<MapEntry<? extends Value<? extends K>, ? extends Value<? extends V>>> values;
     private final Value<? extends Map<K, V>> mapValue;
 
@@ -68,4 +68,22 @@ public final class MapValue<K, V> implements Value<Map<K, V>> {
         }
         return map;
     }
+
+    /**
+     * Get the value, evaluating the map, key and value values in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public Map<K, V> getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        final List<MapEntry<? extends Value<? extends K>, ? extends Value<? extends V>>> values = this.values;
+        final Map<K, V> map = Values.getValue(mapValue, context);
+        for (MapEntry<? extends Value<? extends K>, ? extends Value<? extends V>> pair : values) {
+            map.put(Values.getValue(pair.getKey(), context), Values.getValue(pair.getValue(), context));
+        }
+        return map;
+    }
 }
@@ -33,7 +33,7 @@ import java.util.List;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class MethodValue<T> implements Value<T> {
+public final class MethodValue<T> implements ContextualValue<T> {
     private final Value<Method> methodValue;
     private final Value<?> targetValue;
     private final List<? extends Value<?>> parameters;
@@ -52,17 +52,67 @@ public final class MethodValue<T> implements Value<T> {
     }
 
     /** {@inheritDoc} */
-    @SuppressWarnings({ "unchecked" })
     public T getValue() throws IllegalStateException {
         final ThreadLocalValue<Object> thisValue = Values.thisValue();
-        final Value<?> targetValue = this.targetValue;
+        final Value<?> old = thisValue.getAndSetValue(targetValue);
+        try {
+            return invoke(methodValue.getValue(), targetValue.getValue(), Values.getValues(parameters));
+        } finally {
+            thisValue.setValue(old);
+        }
+    }
+
+    /**
+     * Get the value, evaluating the method, target and parameters in the given context with {@link Values#thisValue()}
+     * bound to the target.  If the method, the target or one of the parameters is not a {@link ContextualValue}, the
+     * bindings of the context are set on the thread-local values once for the whole evaluation, and the method runs
+     * with the this value set to the target, as it does in {@link #getValue()}.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public T getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        final EvaluationContext targetContext = context.withThisValue(targetValue);
+        if (isContextual()) {
+            return invoke(Values.getValue(methodValue, targetContext), Values.getValue(targetValue, targetContext), Values.getValues(parameters, targetContext));
+        }
+        final Value<?> injectedValue = context.getInjectedValue();
+        final ThreadLocalValue<Object> thisValue = Values.thisValue();
+        final Value<?> oldThis = thisValue.getAndSetValue(targetValue);
         try {
-            final Value<?> old = thisValue.getAndSetValue(targetValue);
+            final ThreadLocalValue<Object> injected = Values.injectedValue();
+            final Value<?> oldInjected = injectedValue == null ? null : injected.getAndSetValue(injectedValue);
             try {
-                return (T) methodValue.getValue().invoke(targetValue.getValue(), Values.getValues(parameters));
+                return invoke(Values.getBoundValue(methodValue, targetContext), Values.getBoundValue(targetValue, targetContext), Values.getBoundValues(parameters, targetContext));
             } finally {
-                thisValue.setValue(old);
+                if (injectedValue != null) {
+                    injected.setValue(oldInjected);
+                }
             }
+        } finally {
+            thisValue.setValue(oldThis);
+        }
+    }
+
+    private boolean isContextual() {
+        if (! (methodValue instanceof ContextualValue) || ! (targetValue instanceof ContextualValue)) {
+            return false;
+        }
+        for (Value<?> parameter : parameters) {
+            if (! (parameter instanceof ContextualValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings({ "unchecked" })
+    private T invoke(final Method method, final Object target, final Object[] parameters) {
+        try {
+            return (T) method.invoke(target, parameters);
         } catch (IllegalAccessException e) {
             throw new IllegalStateException("Method is not accessible", e);
         } catch (InvocationTargetException e) {
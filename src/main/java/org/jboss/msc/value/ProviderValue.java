@@ -31,7 +31,7 @@ import javax.inject.Provider;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class ProviderValue<T> implements Value<T> {
+public final class ProviderValue<T> implements ContextualValue<T> {
     private final Provider<T> provider;
 
     /**
@@ -47,4 +47,17 @@ public final class ProviderValue<T> implements Value<T> {
     public T getValue() throws IllegalStateException {
         return provider.get();
     }
+
+    /**
+     * Get the value.  The provider does not depend on the context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public T getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return provider.get();
+    }
 }
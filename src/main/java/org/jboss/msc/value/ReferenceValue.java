@@ -31,7 +31,7 @@ import org.jboss.modules.ref.Reference;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class ReferenceValue<T> implements Value<T> {
+public final class ReferenceValue<T> implements ContextualValue<T> {
 
     private final Reference<? extends T, ?> reference;
 
@@ -48,4 +48,17 @@ public final class ReferenceValue<T> implements Value<T> {
     public T getValue() {
         return reference.get();
     }
+
+    /**
+     * Get the value.  The referent does not depend on the context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public T getValue(final EvaluationContext context) {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        return reference.get();
+    }
 }
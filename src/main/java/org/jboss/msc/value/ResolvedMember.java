@@ -0,0 +1,74 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.msc.value;
+
+import java.util.Arrays;
+
+/**
+ * The member last resolved by a {@code Lookup*Value}.  Each lookup value has its own, so a member is never shared
+ * with another value, and no lock is taken to read it.  Since the target class and parameter types are themselves
+ * values, the member is only reused while they resolve to the same classes.  The signatures found by scanning a
+ * class are shared by way of the {@link SignatureTable} instead.
+ *
+ * @param <M> the member type
+ */
+final class ResolvedMember<M> {
+
+    private volatile Entry<M> entry;
+
+    /**
+     * Get the cached member.
+     *
+     * @param targetClass the class on which the member is looked up
+     * @param parameterTypes the parameter types, or {@code null} if the lookup does not use any
+     * @return the member, or {@code null} if a member for these classes is not cached
+     */
+    M get(final Class<?> targetClass, final Class<?>[] parameterTypes) {
+        final Entry<M> entry = this.entry;
+        return entry != null && entry.targetClass == targetClass && Arrays.equals(entry.parameterTypes, parameterTypes) ? entry.member : null;
+    }
+
+    /**
+     * Cache a member, replacing the one cached before.
+     *
+     * @param targetClass the class on which the member was looked up
+     * @param parameterTypes the parameter types, or {@code null} if the lookup did not use any
+     * @param member the member
+     * @return the member
+     */
+    M put(final Class<?> targetClass, final Class<?>[] parameterTypes, final M member) {
+        entry = new Entry<M>(targetClass, parameterTypes, member);
+        return member;
+    }
+
+    private static final class Entry<M> {
+        private final Class<?> targetClass;
+        private final Class<?>[] parameterTypes;
+        private final M member;
+
+        Entry(final Class<?> targetClass, final Class<?>[] parameterTypes, final M member) {
+            this.targetClass = targetClass;
+            this.parameterTypes = parameterTypes;
+            this.member = member;
+        }
+    }
+}
@@ -33,7 +33,7 @@ import java.util.Set;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class SetValue<T> implements Value<Set<T>> {
+public final class SetValue<T> implements ContextualValue<Set<T>> {
     private final List<? extends Value<? extends T>> values;
 
     /**
@@ -53,4 +53,21 @@ public final class SetValue<T> implements Value<Set<T>> {
         }
         return set;
     }
+
+    /**
+     * Get the value, evaluating the element values in the given context.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public Set<T> getValue(final EvaluationContext context) throws IllegalStateException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        final LinkedHashSet<T> set = new LinkedHashSet<T>();
+        for (Value<? extends T> value : values) {
+            set.add(Values.getValue(value, context));
+        }
+        return set;
+    }
 }
@@ -0,0 +1,196 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.value;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The method signatures found by the {@code Lookup*Value} classes which search a class for a method, rather than
+ * look it up by name and parameter types.  The table is shared by all lookup values, so a search is done once per
+ * class, and every other value looks its own method up directly by the signature found.  The table holds no
+ * members, and neither the classes nor the parameter types of a signature are strongly reachable from it, so it
+ * never keeps a class from being unloaded.
+ */
+final class SignatureTable {
+
+    private static final ConcurrentMap<ClassKey, ConcurrentMap<Key, Signature>> signatures = new ConcurrentHashMap<ClassKey, ConcurrentMap<Key, Signature>>();
+    private static final ReferenceQueue<Class<?>> queue = new ReferenceQueue<Class<?>>();
+
+    private SignatureTable() {
+    }
+
+    /**
+     * Get the signature of a method found on a class.
+     *
+     * @param targetClass the class which was searched
+     * @param key the search key
+     * @return the signature, or {@code null} if the class was not searched yet
+     */
+    static Signature get(final Class<?> targetClass, final Key key) {
+        final ConcurrentMap<Key, Signature> classSignatures = signatures.get(new ClassKey(targetClass, null));
+        return classSignatures == null ? null : classSignatures.get(key);
+    }
+
+    /**
+     * Record the signature of a method found on a class.
+     *
+     * @param targetClass the class which was searched
+     * @param key the search key
+     * @param method the method found
+     * @return the method
+     */
+    static Method put(final Class<?> targetClass, final Key key, final Method method) {
+        expunge();
+        final ClassKey classKey = new ClassKey(targetClass, queue);
+        ConcurrentMap<Key, Signature> classSignatures = signatures.get(classKey);
+        if (classSignatures == null) {
+            final ConcurrentMap<Key, Signature> newSignatures = new ConcurrentHashMap<Key, Signature>();
+            classSignatures = signatures.putIfAbsent(classKey, newSignatures);
+            if (classSignatures == null) {
+                classSignatures = newSignatures;
+            }
+        }
+        classSignatures.putIfAbsent(key, new Signature(method));
+        return method;
+    }
+
+    private static void expunge() {
+        Reference<? extends Class<?>> ref;
+        while ((ref = queue.poll()) != null) {
+            signatures.remove(ref);
+        }
+    }
+
+    /**
+     * The kind of a method search.
+     */
+    enum Kind {
+        METHOD,
+        DECLARED_METHOD,
+        GET_METHOD,
+        SET_METHOD,
+    }
+
+    /**
+     * The description of a method search: its kind, the method or property name and the number of parameters.
+     */
+    static final class Key {
+        private final Kind kind;
+        private final String name;
+        private final int paramCount;
+
+        Key(final Kind kind, final String name, final int paramCount) {
+            this.kind = kind;
+            this.name = name;
+            this.paramCount = paramCount;
+        }
+
+        public boolean equals(final Object obj) {
+            return obj instanceof Key && equals((Key) obj);
+        }
+
+        private boolean equals(final Key other) {
+            return this == other || other != null && kind == other.kind && paramCount == other.paramCount && name.equals(other.name);
+        }
+
+        public int hashCode() {
+            return (kind.hashCode() * 31 + name.hashCode()) * 31 + paramCount;
+        }
+    }
+
+    /**
+     * The name and parameter types of a method found by a search.  The parameter types are weakly held; they stay
+     * reachable for as long as the class which was searched does.
+     */
+    static final class Signature {
+        private final String name;
+        private final List<Reference<Class<?>>> parameterTypes;
+
+        Signature(final Method method) {
+            name = method.getName();
+            final Class<?>[] types = method.getParameterTypes();
+            parameterTypes = new ArrayList<Reference<Class<?>>>(types.length);
+            for (Class<?> type : types) {
+                parameterTypes.add(new WeakReference<Class<?>>(type));
+            }
+        }
+
+        /**
+         * Get the method name.
+         *
+         * @return the method name
+         */
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Get the parameter types.
+         *
+         * @return the parameter types, or {@code null} if one of them was unloaded
+         */
+        Class<?>[] getParameterTypes() {
+            final Class<?>[] types = new Class<?>[parameterTypes.size()];
+            for (int i = 0; i < types.length; i ++) {
+                if ((types[i] = parameterTypes.get(i).get()) == null) {
+                    return null;
+                }
+            }
+            return types;
+        }
+    }
+
+    /**
+     * A weak key for a class, compared by identity.
+     */
+    private static final class ClassKey extends WeakReference<Class<?>> {
+        private final int hashCode;
+
+        ClassKey(final Class<?> clazz, final ReferenceQueue<Class<?>> queue) {
+            super(clazz, queue);
+            hashCode = System.identityHashCode(clazz);
+        }
+
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (! (obj instanceof ClassKey)) {
+                return false;
+            }
+            final Class<?> clazz = get();
+            return clazz != null && clazz == ((ClassKey) obj).get();
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
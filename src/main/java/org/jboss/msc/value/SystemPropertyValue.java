@@ -32,7 +32,7 @@ import java.security.PrivilegedAction;
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  * @see System#getProperty(String)
  */
-public final class SystemPropertyValue implements Value<String>, PrivilegedAction<String> {
+public final class SystemPropertyValue implements ContextualValue<String>, PrivilegedAction<String> {
     private final String propertyName;
     private final AccessControlContext accessControlContext;
     private final Value<?> defaultValue;
@@ -90,16 +90,35 @@ public final class SystemPropertyValue implements Value<String>, PrivilegedActio
 
     /** {@inheritDoc} */
     public String getValue() throws IllegalStateException, IllegalArgumentException {
+        final String result = read();
+        if (result != null) return result;
+        final Object value = defaultValue.getValue();
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * Get the value, evaluating the default value in the given context if the system property is not set.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    public String getValue(final EvaluationContext context) throws IllegalStateException, IllegalArgumentException {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        final String result = read();
+        if (result != null) return result;
+        final Object value = Values.getValue(defaultValue, context);
+        return value != null ? value.toString() : null;
+    }
+
+    private String read() {
         final SecurityManager sm = System.getSecurityManager();
-        final String result;
         if (sm == null) {
-            result = run();
+            return run();
         } else {
-            result = AccessController.doPrivileged(this, accessControlContext);
+            return AccessController.doPrivileged(this, accessControlContext);
         }
-        if (result != null) return result;
-        final Object value = defaultValue.getValue();
-        return value != null ? value.toString() : null;
     }
 
     /**
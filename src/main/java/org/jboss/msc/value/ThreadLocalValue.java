@@ -29,31 +29,64 @@ package org.jboss.msc.value;
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
-public final class ThreadLocalValue<T> implements Value<T> {
-    private final ThreadLocal<Value<? extends T>> threadLocal = new ThreadLocal<Value<? extends T>>();
+public final class ThreadLocalValue<T> implements ContextualValue<T> {
+    static final int NONE = 0;
+    static final int THIS = 1;
+    static final int INJECTED = 2;
+
+    private final ThreadLocal<Holder<T>> threadLocal = new ThreadLocal<Holder<T>>();
+    private final int binding;
 
     /**
      * Construct a new instance.
      */
     public ThreadLocalValue() {
+        this(NONE);
+    }
+
+    ThreadLocalValue(final int binding) {
+        this.binding = binding;
     }
 
     /** {@inheritDoc} */
     public T getValue() {
-        final Value<? extends T> value = threadLocal.get();
+        final Holder<T> holder = threadLocal.get();
+        final Value<? extends T> value = holder == null ? null : holder.value;
         if (value == null) {
             throw new IllegalStateException("No value set");
         }
         return value.getValue();
     }
 
+    /**
+     * Get the value.  For the special {@link Values#thisValue() this} and {@link Values#injectedValue() injected}
+     * values, the value bound in the given context is used if there is one; otherwise, the value is read from the
+     * thread-local variable.
+     *
+     * @param context the evaluation context
+     * @return the value
+     */
+    @SuppressWarnings({ "unchecked" })
+    public T getValue(final EvaluationContext context) {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        final Value<? extends T> value;
+        switch (binding) {
+            case THIS: value = (Value<? extends T>) context.getThisValue(); break;
+            case INJECTED: value = (Value<? extends T>) context.getInjectedValue(); break;
+            default: value = null;
+        }
+        return value == null ? getValue() : Values.getValue(value, context);
+    }
+
     /**
      * Set this value, replacing any current value.
      *
      * @param newValue the new value to set
      */
     public void setValue(Value<? extends T> newValue) {
-        threadLocal.set(newValue);
+        getAndSetValue(newValue);
     }
 
     /**
@@ -63,10 +96,23 @@ public final class ThreadLocalValue<T> implements Value<T> {
      * @return the old value
      */
     public Value<? extends T> getAndSetValue(Value<? extends T> newValue) {
-        try {
-            return threadLocal.get();
-        } finally {
-            threadLocal.set(newValue);
+        Holder<T> holder = threadLocal.get();
+        if (holder == null) {
+            if (newValue == null) {
+                return null;
+            }
+            threadLocal.set(holder = new Holder<T>());
         }
+        final Value<? extends T> oldValue = holder.value;
+        holder.value = newValue;
+        return oldValue;
+    }
+
+    /**
+     * The value of a thread, kept in a mutable holder so that swapping it takes a single thread-local lookup.  A holder
+     * is only created once a value is set on the thread.
+     */
+    private static final class Holder<T> {
+        Value<? extends T> value;
     }
 }
@@ -23,13 +23,15 @@
 package org.jboss.msc.value;
 
 import java.lang.reflect.Array;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Value utility methods.
@@ -38,9 +40,9 @@ import java.util.List;
  */
 public final class Values {
 
-    private static final ThreadLocalValue<Object> THIS = new ThreadLocalValue<Object>();
+    private static final ThreadLocalValue<Object> THIS = new ThreadLocalValue<Object>(ThreadLocalValue.THIS);
 
-    private static final ThreadLocalValue<Object> INJECTED = new ThreadLocalValue<Object>();
+    private static final ThreadLocalValue<Object> INJECTED = new ThreadLocalValue<Object>(ThreadLocalValue.INJECTED);
 
     private static final Value NULL = new ImmediateValue<Object>(null);
 
@@ -48,31 +50,9 @@ public final class Values {
 
     private static final Object[] NONE = new Object[0];
 
-    private static <T> T[] getValues(Iterator<? extends Value<? extends T>> i, Class<T> clazz, int idx) {
-        if (i.hasNext()) {
-            final Value<? extends T> v = i.next();
-            final T[] params = getValues(i, clazz, idx + 1);
-            params[idx] = v.getValue();
-            return params;
-        } else {
-            return arrayOf(clazz, idx);
-        }
-    }
-
     @SuppressWarnings({ "unchecked" })
     private static <T> T[] arrayOf(Class<T> clazz, int len) {
-        return (T[]) Array.newInstance(clazz, len);
-    }
-
-    private static Object[] getValues(Iterator<? extends Value<?>> i, int idx) {
-        if (i.hasNext()) {
-            final Value<?> v = i.next();
-            final Object[] params = getValues(i, idx + 1);
-            params[idx] = v.getValue();
-            return params;
-        } else {
-            return idx == 0 ? NONE : new Object[idx];
-        }
+        return clazz == Object.class ? (T[]) new Object[len] : (T[]) Array.newInstance(clazz, len);
     }
 
     /**
@@ -82,7 +62,23 @@ public final class Values {
      * @return the values array
      */
     public static Object[] getValues(Iterable<? extends Value<?>> i) {
-        return getValues(i.iterator(), 0);
+        if (i instanceof List && i instanceof RandomAccess) {
+            final List<? extends Value<?>> list = (List<? extends Value<?>>) i;
+            switch (list.size()) {
+                case 0: return NONE;
+                case 1: return new Object[] { list.get(0).getValue() };
+                case 2: return new Object[] { list.get(0).getValue(), list.get(1).getValue() };
+                default: return getValues(list, new Object[list.size()]);
+            }
+        } else if (i instanceof Collection) {
+            final int size = ((Collection<? extends Value<?>>) i).size();
+            return size == 0 ? NONE : getValues(i, new Object[size]);
+        }
+        final ArrayList<Object> params = new ArrayList<Object>();
+        for (Value<?> value : i) {
+            params.add(value.getValue());
+        }
+        return params.isEmpty() ? NONE : params.toArray();
     }
 
     /**
@@ -93,7 +89,14 @@ public final class Values {
      * @return the values array
      */
     public static <T> T[] getValues(Iterable<? extends Value<? extends T>> i, Class<T> clazz) {
-        return getValues(i.iterator(), clazz, 0);
+        if (i instanceof Collection) {
+            return getValues(i, arrayOf(clazz, ((Collection<? extends Value<? extends T>>) i).size()));
+        }
+        final ArrayList<T> params = new ArrayList<T>();
+        for (Value<? extends T> value : i) {
+            params.add(value.getValue());
+        }
+        return params.toArray(arrayOf(clazz, params.size()));
     }
 
     /**
@@ -104,6 +107,14 @@ public final class Values {
      * @return the values array
      */
     public static <T> T[] getValues(Iterable<? extends Value<? extends T>> i, T[] array) {
+        if (i instanceof List && i instanceof RandomAccess) {
+            final List<? extends Value<? extends T>> list = (List<? extends Value<? extends T>>) i;
+            final int size = list.size();
+            for (int idx = 0; idx < size; idx ++) {
+                array[idx] = list.get(idx).getValue();
+            }
+            return array;
+        }
         int idx = 0;
         for (final Value<? extends T> value : i) {
             array[idx++] = value.getValue();
@@ -111,6 +122,134 @@ public final class Values {
         return array;
     }
 
+    /**
+     * Get the result of a value, evaluated in the given context.  A value which is not a {@link ContextualValue} is
+     * evaluated with the bindings of the context set on the {@linkplain #thisValue() this} and
+     * {@linkplain #injectedValue() injected} thread-local values.
+     *
+     * @param value the value
+     * @param context the evaluation context; {@link EvaluationContext#EMPTY} if there are no bindings
+     * @param <T> the value type
+     * @return the result
+     * @throws IllegalArgumentException if {@code context} is {@code null}
+     */
+    @SuppressWarnings({ "unchecked" })
+    public static <T> T getValue(Value<? extends T> value, EvaluationContext context) {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        if (value instanceof ContextualValue) {
+            return ((ContextualValue<? extends T>) value).getValue(context);
+        }
+        final Value<?> thisValue = context.getThisValue();
+        final Value<?> injectedValue = context.getInjectedValue();
+        if (thisValue == null && injectedValue == null) {
+            return value.getValue();
+        }
+        final Value<?> oldThis = thisValue == null ? null : THIS.getAndSetValue(thisValue);
+        try {
+            final Value<?> oldInjected = injectedValue == null ? null : INJECTED.getAndSetValue(injectedValue);
+            try {
+                return value.getValue();
+            } finally {
+                if (injectedValue != null) {
+                    INJECTED.setValue(oldInjected);
+                }
+            }
+        } finally {
+            if (thisValue != null) {
+                THIS.setValue(oldThis);
+            }
+        }
+    }
+
+    /**
+     * Get an object array from the result of an iterable series of values, evaluated in the given context.
+     *
+     * @param i the iterable series
+     * @param context the evaluation context; {@link EvaluationContext#EMPTY} if there are no bindings
+     * @return the values array
+     * @throws IllegalArgumentException if {@code context} is {@code null}
+     * @see #getValue(Value, EvaluationContext)
+     */
+    public static Object[] getValues(Iterable<? extends Value<?>> i, EvaluationContext context) {
+        if (context == null) {
+            throw new IllegalArgumentException("context is null");
+        }
+        if (i instanceof List && i instanceof RandomAccess) {
+            final List<? extends Value<?>> list = (List<? extends Value<?>>) i;
+            final int size = list.size();
+            if (size == 0) {
+                return NONE;
+            }
+            final Object[] params = new Object[size];
+            for (int idx = 0; idx < size; idx ++) {
+                params[idx] = getValue(list.get(idx), context);
+            }
+            return params;
+        }
+        final ArrayList<Object> params = new ArrayList<Object>();
+        for (Value<?> value : i) {
+            params.add(getValue(value, context));
+        }
+        return params.isEmpty() ? NONE : params.toArray();
+    }
+
+    /**
+     * Get the result of a value, evaluated in the given context whose bindings are already set on the
+     * {@linkplain #thisValue() this} and {@linkplain #injectedValue() injected} thread-local values.
+     *
+     * @param value the value
+     * @param context the evaluation context
+     * @param <T> the value type
+     * @return the result
+     */
+    @SuppressWarnings({ "unchecked" })
+    static <T> T getBoundValue(Value<? extends T> value, EvaluationContext context) {
+        return value instanceof ContextualValue ? ((ContextualValue<? extends T>) value).getValue(context) : value.getValue();
+    }
+
+    /**
+     * Get an object array from the result of a list of values, evaluated in the given context whose bindings are
+     * already set on the thread-local values.
+     *
+     * @param values the values
+     * @param context the evaluation context
+     * @return the values array
+     * @see #getBoundValue(Value, EvaluationContext)
+     */
+    static Object[] getBoundValues(List<? extends Value<?>> values, EvaluationContext context) {
+        final int size = values.size();
+        if (size == 0) {
+            return NONE;
+        }
+        final Object[] params = new Object[size];
+        int idx = 0;
+        for (Value<?> value : values) {
+            params[idx++] = getBoundValue(value, context);
+        }
+        return params;
+    }
+
+    /**
+     * Get the parameter types of a member lookup.
+     *
+     * @param parameterTypes the parameter type values, or {@code null} if the lookup does not use any
+     * @param context the evaluation context, or {@code null} to evaluate the types outside of any context
+     * @return the parameter types, or {@code null} if the lookup does not use any
+     */
+    static Class<?>[] getTypes(final List<? extends Value<Class<?>>> parameterTypes, final EvaluationContext context) {
+        if (parameterTypes == null) {
+            return null;
+        }
+        final Class<?>[] types = new Class<?>[parameterTypes.size()];
+        int i = 0;
+        for (Value<Class<?>> type : parameterTypes) {
+            types[i++] = context == null ? type.getValue() : getValue(type, context);
+        }
+        return types;
+    }
+
     /**
      * Get the null value.
      *
@@ -137,6 +276,25 @@ public final class Values {
         }
     }
 
+    /**
+     * Determine whether a field or method value yields the same member each time it is read, so that an injector or
+     * translator may keep the member it reads first.  This holds for immediate and cached values and for the
+     * {@code Lookup*} field and method values, whose class values are expected to yield the same class each time.
+     *
+     * @param value the field or method value
+     * @return {@code true} if the member may be kept
+     */
+    public static boolean isBindable(Value<? extends Member> value) {
+        return value instanceof ImmediateValue
+                || value instanceof CachedValue
+                || value instanceof LookupFieldValue
+                || value instanceof LookupDeclaredFieldValue
+                || value instanceof LookupMethodValue
+                || value instanceof LookupDeclaredMethodValue
+                || value instanceof LookupGetMethodValue
+                || value instanceof LookupSetMethodValue;
+    }
+
     /**
      * The empty value list.
      */
@@ -31,6 +31,7 @@ import static org.junit.Assert.fail;
 
 import java.lang.reflect.Field;
 
+import org.jboss.msc.value.LookupFieldValue;
 import org.jboss.msc.value.Value;
 import org.jboss.msc.value.Values;
 import org.jboss.msc.value.util.AnyService;
@@ -342,4 +343,74 @@ public class FieldInjectorTestCase {
             fail("InjectionException expected");
         } catch (InjectionException e) {}
     }
+    @Test
+    public void boundFieldInjection() throws Exception {
+        final Field field = AnyService.class.getField("shortCount");
+        final AnyService anyService = new AnyService();
+        final int[] lookups = new int[1];
+        final Injector<Short> injector = FieldInjector.createBound(Values.immediateValue(anyService), new Value<Field>() {
+            public Field getValue() {
+                lookups[0]++;
+                return field;
+            }
+        });
+        injector.inject((short) 7);
+        assertEquals(7, anyService.shortCount);
+        injector.uninject();
+        assertEquals(0, anyService.shortCount);
+        injector.inject((short) 12);
+        assertEquals(12, anyService.shortCount);
+        injector.uninject();
+        assertEquals(0, anyService.shortCount);
+        assertEquals(1, lookups[0]);
+    }
+
+    @Test
+    public void lookupFieldInjection() throws Exception {
+        final AnyService anyService = new AnyService();
+        final int[] lookups = new int[1];
+        final Injector<Short> injector = new FieldInjector<Short>(Values.immediateValue(anyService), new LookupFieldValue(new Value<Class<?>>() {
+            public Class<?> getValue() {
+                lookups[0]++;
+                return AnyService.class;
+            }
+        }, "shortCount"));
+        injector.inject((short) 7);
+        assertEquals(7, anyService.shortCount);
+        injector.uninject();
+        assertEquals(0, anyService.shortCount);
+        injector.inject((short) 12);
+        assertEquals(12, anyService.shortCount);
+        assertEquals(1, lookups[0]);
+    }
+
+    @Test
+    public void unboundFieldInjection() throws Exception {
+        final Field field = AnyService.class.getField("shortCount");
+        final AnyService anyService = new AnyService();
+        final int[] lookups = new int[1];
+        final Injector<Short> injector = new FieldInjector<Short>(Values.immediateValue(anyService), new Value<Field>() {
+            public Field getValue() {
+                lookups[0]++;
+                return field;
+            }
+        });
+        injector.inject((short) 7);
+        assertEquals(7, anyService.shortCount);
+        injector.uninject();
+        assertEquals(0, anyService.shortCount);
+        injector.inject((short) 12);
+        injector.uninject();
+        assertEquals(0, anyService.shortCount);
+        assertEquals(4, lookups[0]);
+    }
+
+    @Test
+    public void boundNullField() throws Exception {
+        final Injector<String> injector = FieldInjector.createBound(Values.immediateValue(new AnyService()), Values.<Field>nullValue());
+        try {
+            injector.inject("inject value into null field");
+            fail("InjectionException expected");
+        } catch (InjectionException e) {}
+    }
 }
@@ -31,6 +31,7 @@ import java.lang.reflect.Method;
 
 import org.jboss.msc.translate.util.TargetWrapper;
 import org.jboss.msc.value.ImmediateValue;
+import org.jboss.msc.value.LookupMethodValue;
 import org.jboss.msc.value.Value;
 import org.jboss.msc.value.Values;
 import org.jboss.msc.value.util.AnotherService;
@@ -68,6 +69,32 @@ public class SetMethodInjectorTestCase {
         assertSetRetryInjector(injector);
     }
 
+    @Test
+    public void boundPublicMethod() throws Exception {
+        final int[] lookups = new int[1];
+        final Injector<Integer> injector = SetMethodInjector.<Integer>createBound(target, new Value<Method>() {
+            public Method getValue() {
+                lookups[0]++;
+                return method;
+            }
+        });
+        assertSetRetryInjector(injector);
+        assertEquals(1, lookups[0]);
+    }
+
+    @Test
+    public void lookupMethodValue() throws Exception {
+        final int[] lookups = new int[1];
+        final Injector<Integer> injector = SetMethodInjector.<Integer>create(target, new LookupMethodValue(new Value<Class<?>>() {
+            public Class<?> getValue() {
+                lookups[0]++;
+                return AnotherService.class;
+            }
+        }, "setRetry", 1));
+        assertSetRetryInjector(injector);
+        assertEquals(1, lookups[0]);
+    }
+
     @Test
     public void lookupAndInject1() throws Exception {
         final Injector<Integer> injector = new SetMethodInjector<Integer>(service, AnotherService.class, "setRetry", int.class);
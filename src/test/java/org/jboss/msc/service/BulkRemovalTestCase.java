@@ -0,0 +1,127 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.msc.service.ServiceController.State;
+import org.jboss.msc.service.util.TestTask;
+import org.junit.Test;
+
+/**
+ * Test for the bulk removal methods of {@link ServiceContainer}.
+ */
+public class BulkRemovalTestCase extends AbstractServiceTest {
+
+    private final List<ServiceName> stopped = Collections.synchronizedList(new ArrayList<ServiceName>());
+
+    private Service<Void> recordingService(final ServiceName name, final CountDownLatch started) {
+        return new AbstractService<Void>() {
+            public void start(final StartContext context) {
+                started.countDown();
+            }
+
+            public void stop(final StopContext context) {
+                stopped.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void removeByName() throws Exception {
+        final ServiceName app = ServiceName.of("app");
+        final ServiceName a = app.append("a");
+        final ServiceName b = app.append("b");
+        final ServiceName c = app.append("c");
+        final ServiceName other = ServiceName.of("other");
+        final CountDownLatch started = new CountDownLatch(4);
+        final BatchBuilder batch = serviceContainer.batchBuilder();
+        batch.addService(a, recordingService(a, started)).addDependency(b).install();
+        batch.addService(b, recordingService(b, started)).addDependency(c).install();
+        batch.addService(c, recordingService(c, started)).install();
+        batch.addService(other, recordingService(other, started)).addAliases(app.append("alias")).install();
+        batch.install();
+        assertTrue(started.await(30L, TimeUnit.SECONDS));
+        final TestTask completeTask = new TestTask();
+        // other is only aliased under app, so it stays
+        assertEquals(3, serviceContainer.removeServices(app, completeTask));
+        assertTrue(completeTask.get());
+        // dependents stop before their dependencies, and all are gone by the time the task runs
+        assertEquals(Arrays.asList(a, b, c), stopped);
+        assertEquals(Collections.singletonList(app.append("alias")), serviceContainer.getServiceNames(app));
+        assertSame(State.UP, serviceContainer.getRequiredService(other).getState());
+        final TestTask nothingTask = new TestTask();
+        assertEquals(0, serviceContainer.removeServices(ServiceName.of("missing"), nothingTask));
+        assertTrue(nothingTask.isDone());
+    }
+
+    @Test
+    public void removeControllers() throws Exception {
+        final int count = 1000;
+        final CountDownLatch started = new CountDownLatch(count);
+        final BatchBuilder batch = serviceContainer.batchBuilder();
+        final ServiceName base = ServiceName.of("service");
+        for (int i = 0; i < count; i++) {
+            final ServiceName name = base.append(Integer.toString(i));
+            final ServiceBuilder<Void> builder = batch.addService(name, recordingService(name, started));
+            if (i > 0) builder.addDependency(base.append(Integer.toString(i / 2)));
+            builder.install();
+        }
+        batch.install();
+        assertTrue(started.await(30L, TimeUnit.SECONDS));
+        final List<ServiceController<?>> first = new ArrayList<ServiceController<?>>();
+        final List<ServiceController<?>> second = new ArrayList<ServiceController<?>>();
+        for (int i = 0; i < count; i++) {
+            final ServiceController<?> controller = serviceContainer.getRequiredService(base.append(Integer.toString(i)));
+            (i % 3 == 0 ? second : first).add(controller);
+        }
+        // a controller taking part in both removals holds up both of them
+        second.add(first.get(first.size() - 1));
+        first.add(null);
+        final TestTask firstTask = new TestTask();
+        final TestTask secondTask = new TestTask();
+        serviceContainer.removeServices(first, firstTask);
+        serviceContainer.removeServices(second, secondTask);
+        assertTrue(firstTask.get());
+        assertTrue(secondTask.get());
+        assertEquals(count, stopped.size());
+        for (int i = 1; i < count; i++) {
+            // every service stopped before the service it depends on
+            assertTrue(stopped.indexOf(base.append(Integer.toString(i))) < stopped.indexOf(base.append(Integer.toString(i / 2))));
+        }
+        assertEquals(0, serviceContainer.getServiceCount(base));
+        // removing services which are already removed completes at once
+        final TestTask againTask = new TestTask();
+        serviceContainer.removeServices(first.subList(0, 10), againTask);
+        assertTrue(againTask.isDone());
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Test for the built-in executor of {@link ServiceContainer}.
+ */
+public class ContainerExecutorTestCase {
+
+    @Test
+    public void parallelStart() throws Exception {
+        final int threads = 4;
+        final ServiceContainer container = ServiceContainer.Factory.create("parallel", threads, 30L, TimeUnit.SECONDS);
+        try {
+            final CyclicBarrier barrier = new CyclicBarrier(threads);
+            final CountDownLatch started = new CountDownLatch(threads);
+            final Set<String> threadNames = Collections.synchronizedSet(new HashSet<String>());
+            final BatchBuilder batch = container.batchBuilder();
+            for (int i = 0; i < threads; i++) {
+                batch.addService(ServiceName.of("barrier", Integer.toString(i)), new AbstractService<Void>() {
+                    public void start(final StartContext context) throws StartException {
+                        threadNames.add(Thread.currentThread().getName());
+                        try {
+                            // only completes if all services are starting at the same time
+                            barrier.await(10L, TimeUnit.SECONDS);
+                        } catch (Exception e) {
+                            throw new StartException(e);
+                        }
+                        started.countDown();
+                    }
+                }).install();
+            }
+            batch.install();
+            assertTrue("services were not started in parallel", started.await(20L, TimeUnit.SECONDS));
+            assertEquals(threads, threadNames.size());
+            for (String threadName : threadNames) {
+                assertTrue(threadName, threadName.startsWith("MSC service thread "));
+            }
+        } finally {
+            container.shutdown();
+        }
+    }
+
+    @Test
+    public void blockingStartOnLifecycleExecutor() throws Exception {
+        final ServiceContainer container = ServiceContainer.Factory.create("lifecycle", 1, 30L, TimeUnit.SECONDS);
+        final ExecutorService lifecycleExecutor = Executors.newCachedThreadPool();
+        try {
+            container.setLifecycleExecutor(lifecycleExecutor);
+            final CyclicBarrier barrier = new CyclicBarrier(3);
+            final CountDownLatch started = new CountDownLatch(3);
+            final Set<String> threadNames = Collections.synchronizedSet(new HashSet<String>());
+            final BatchBuilder batch = container.batchBuilder();
+            for (int i = 0; i < 3; i++) {
+                batch.addService(ServiceName.of("blocking", Integer.toString(i)), new AbstractService<Void>() {
+                    public void start(final StartContext context) throws StartException {
+                        threadNames.add(Thread.currentThread().getName());
+                        try {
+                            // would never complete on the single container thread
+                            barrier.await(10L, TimeUnit.SECONDS);
+                        } catch (Exception e) {
+                            throw new StartException(e);
+                        }
+                        started.countDown();
+                    }
+                }).install();
+            }
+            batch.install();
+            assertTrue("blocking services held up each other", started.await(20L, TimeUnit.SECONDS));
+            for (String threadName : threadNames) {
+                assertFalse(threadName, threadName.startsWith("MSC service thread "));
+            }
+        } finally {
+            container.shutdown();
+            container.awaitTermination(10L, TimeUnit.SECONDS);
+            lifecycleExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void bookkeepingOffLifecycleExecutor() throws Exception {
+        final ServiceContainer container = ServiceContainer.Factory.create("bookkeeping", 2, 30L, TimeUnit.SECONDS);
+        final ExecutorService lifecycleExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(final Runnable r) {
+                return new Thread(r, "lifecycle thread " + count.incrementAndGet());
+            }
+        });
+        final List<String> submitters = Collections.synchronizedList(new ArrayList<String>());
+        try {
+            container.setLifecycleExecutor(new Executor() {
+                public void execute(final Runnable command) {
+                    // the bookkeeping which moved a controller on is what submits its start or stop
+                    submitters.add(Thread.currentThread().getName());
+                    lifecycleExecutor.execute(command);
+                }
+            });
+            final int count = 8;
+            final BatchBuilder batch = container.batchBuilder();
+            for (int i = 0; i < count; i++) {
+                final ServiceBuilder<Void> builder = batch.addService(ServiceName.of("chain", Integer.toString(i)), Service.NULL);
+                if (i > 0) {
+                    builder.addDependency(ServiceName.of("chain", Integer.toString(i - 1)));
+                }
+                builder.install();
+            }
+            batch.install();
+            final ServiceController<?> last = container.getRequiredService(ServiceName.of("chain", Integer.toString(count - 1)));
+            for (int i = 0; i < 200 && last.getState() != ServiceController.State.UP; i++) {
+                Thread.sleep(50L);
+            }
+            assertEquals(ServiceController.State.UP, last.getState());
+            final ServiceController<?> first = container.getRequiredService(ServiceName.of("chain", "0"));
+            first.setMode(ServiceController.Mode.REMOVE);
+            // the first service is the last to stop, once all of its dependents are down
+            for (int i = 0; i < 200 && first.getState() != ServiceController.State.REMOVED; i++) {
+                Thread.sleep(50L);
+            }
+            assertEquals(ServiceController.State.REMOVED, first.getState());
+            assertEquals(ServiceController.State.DOWN, last.getState());
+            assertEquals(count * 2, submitters.size());
+            for (String submitter : submitters) {
+                assertFalse(submitter, submitter.startsWith("lifecycle thread "));
+            }
+        } finally {
+            container.shutdown();
+            container.awaitTermination(10L, TimeUnit.SECONDS);
+            lifecycleExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void virtualThreadExecutor() throws Exception {
+        final Executor executor = ServiceUtils.virtualThreadExecutor();
+        // only available on JVMs with virtual threads
+        if (executor != null) {
+            final String[] threadName = new String[1];
+            final CountDownLatch ran = new CountDownLatch(1);
+            executor.execute(new Runnable() {
+                public void run() {
+                    threadName[0] = Thread.currentThread().getName();
+                    ran.countDown();
+                }
+            });
+            assertTrue(ran.await(10L, TimeUnit.SECONDS));
+            assertTrue(threadName[0], threadName[0].startsWith("MSC lifecycle thread "));
+        }
+    }
+
+    @Test
+    public void illegalCoreSize() {
+        try {
+            ServiceContainer.Factory.create("illegal", 0, 30L, TimeUnit.SECONDS);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
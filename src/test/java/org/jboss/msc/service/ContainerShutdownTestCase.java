@@ -23,6 +23,7 @@
 package org.jboss.msc.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
@@ -34,6 +35,7 @@ import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.jboss.msc.service.ServiceContainer.TerminateListener;
 import org.jboss.msc.service.ServiceController.State;
@@ -382,9 +384,110 @@ public class ContainerShutdownTestCase extends AbstractServiceTest{
         } catch (IllegalStateException e) {}
     }
 
+    @Test
+    public void shutdownInWaves() throws Exception {
+        final ServiceName serviceNameA = ServiceName.of("a");
+        final ServiceName serviceNameB = ServiceName.of("b");
+        final ServiceName serviceNameC = ServiceName.of("c");
+        final ServiceName serviceNameD = ServiceName.of("d");
+        addService(serviceNameA);
+        addService(serviceNameB, Service.NULL, serviceNameA);
+        addService(serviceNameC, Service.NULL, serviceNameB);
+        addService(serviceNameD);
+        final TestTerminateListener terminateListener = new TestTerminateListener();
+        serviceContainer.addTerminateListener(terminateListener);
+        shutdownContainer();
+        final TerminateListener.Info terminateInfo = terminateListener.getTerminateInfo();
+        assertTerminateListenerInfo(terminateInfo);
+        assertEquals(0, terminateInfo.getAbandonedServices());
+        // c and d have no dependents, b is below c, and a is below b
+        assertEquals(3, terminateInfo.getWaveCount());
+        assertEquals(2, terminateInfo.getWaveSize(0));
+        assertEquals(1, terminateInfo.getWaveSize(1));
+        assertEquals(1, terminateInfo.getWaveSize(2));
+        for (int i = 0; i < 3; i ++) {
+            final long waveCompleted = terminateInfo.getWaveCompleted(i);
+            assertTrue(waveCompleted - terminateInfo.getShutdownInitiated() >= 0);
+            assertTrue(terminateInfo.getShutdownCompleted() - waveCompleted >= 0);
+        }
+    }
+
+    @Test
+    public void shutdownWithDeadline() throws Exception {
+        final ServiceName belowName = ServiceName.of("below");
+        final ServiceName stuckName = ServiceName.of("stuck");
+        final AtomicReference<StopContext> stopContext = new AtomicReference<StopContext>();
+        final ServiceController<?> belowController = addService(belowName);
+        final ServiceController<?> stuckController = addService(stuckName, new AbstractService<Void>() {
+            public void stop(final StopContext context) {
+                // never completes on its own
+                context.asynchronous();
+                stopContext.set(context);
+            }
+        }, belowName);
+        final TestTerminateListener terminateListener = new TestTerminateListener();
+        serviceContainer.addTerminateListener(terminateListener);
+        final Future<ServiceController<?>> belowRemoval = testListener.expectServiceRemoval(belowName);
+        final Future<ServiceController<?>> stuckRemoval = testListener.expectServiceRemoval(stuckName);
+        serviceContainer.shutdown(200L, TimeUnit.MILLISECONDS);
+        shutdownContainer();
+        final TerminateListener.Info terminateInfo = terminateListener.getTerminateInfo();
+        assertTerminateListenerInfo(terminateInfo);
+        assertTrue(terminateInfo.getShutdownCompleted() - terminateInfo.getShutdownInitiated() >= TimeUnit.MILLISECONDS.toNanos(200L));
+        assertEquals(2, terminateInfo.getAbandonedServices());
+        assertEquals(2, terminateInfo.getWaveCount());
+        assertEquals(-1L, terminateInfo.getWaveCompleted(0));
+        assertEquals(-1L, terminateInfo.getWaveCompleted(1));
+        // the stuck stop was completed on the service's behalf, so the removal still goes on
+        assertController(stuckController, stuckRemoval);
+        assertController(belowController, belowRemoval);
+        // and the late completion by the service is ignored
+        stopContext.get().complete();
+    }
+
+    @Test
+    public void forcedStopBeforeTermination() throws Exception {
+        final ServiceName belowName = ServiceName.of("below");
+        final ServiceName stuckName = ServiceName.of("stuck");
+        final AtomicReference<Thread> belowStopThread = new AtomicReference<Thread>();
+        final ServiceController<?> belowController = addService(belowName, new AbstractService<Void>() {
+            public void stop(final StopContext context) {
+                belowStopThread.set(Thread.currentThread());
+            }
+        });
+        final ServiceController<?> stuckController = addService(stuckName, new AbstractService<Void>() {
+            public void stop(final StopContext context) {
+                // never completes on its own
+                context.asynchronous();
+            }
+        }, belowName);
+        final AtomicReference<State> stuckStateOnTermination = new AtomicReference<State>();
+        serviceContainer.addTerminateListener(new TerminateListener() {
+            public void handleTermination(final Info info) {
+                stuckStateOnTermination.set(stuckController.getState());
+            }
+        });
+        final TestTerminateListener terminateListener = new TestTerminateListener();
+        serviceContainer.addTerminateListener(terminateListener);
+        final Future<ServiceController<?>> belowRemoval = testListener.expectServiceRemoval(belowName);
+        serviceContainer.shutdown(200L, TimeUnit.MILLISECONDS);
+        shutdownContainer();
+        assertEquals(2, terminateListener.getTerminateInfo().getAbandonedServices());
+        // the stuck stop was forced before the termination was reported
+        assertTrue(stuckStateOnTermination.get() != State.STOPPING);
+        // so the stop of the service below it went to the container executor, rather than being rejected by it and
+        // run by the thread which gave up on the shutdown
+        assertController(belowController, belowRemoval);
+        assertFalse(belowStopThread.get().getName().startsWith("MSC Shutdown Deadline"));
+    }
+
     private final ServiceController<?> addService(ServiceName serviceName) throws Exception {
+        return addService(serviceName, Service.NULL);
+    }
+
+    private final ServiceController<?> addService(ServiceName serviceName, Service<?> service, ServiceName... dependencies) throws Exception {
         Future<ServiceController<?>> serviceStart = testListener.expectServiceStart(serviceName);
-        serviceContainer.addService(serviceName, Service.NULL).addListener(testListener).install();
+        serviceContainer.addService(serviceName, service).addDependencies(dependencies).addListener(testListener).install();
         return assertController(serviceName, serviceStart);
     }
 
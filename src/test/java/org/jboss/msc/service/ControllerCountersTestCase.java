@@ -0,0 +1,401 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.msc.service.ServiceController.Mode;
+import org.jboss.msc.service.ServiceController.State;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for the dependency and dependent counters of a controller, which are updated without its lock.
+ */
+public class ControllerCountersTestCase extends AbstractServiceTest {
+
+    private static final int DEPENDENCIES = 32;
+    private static final int ROUNDS = 20;
+
+    @Before
+    public void setUp() throws Exception {
+        // several threads, so that the notifications for one controller race
+        serviceContainer = ServiceContainer.Factory.create("counters", 4, 30L, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        serviceContainer.shutdown();
+        super.tearDown();
+    }
+
+    @Test
+    public void concurrentDependencyTransitions() throws Exception {
+        final List<ServiceName> names = new ArrayList<ServiceName>(DEPENDENCIES);
+        final List<ServiceController<?>> dependencies = new ArrayList<ServiceController<?>>(DEPENDENCIES);
+        for (int i = 0; i < DEPENDENCIES; i++) {
+            final ServiceName name = ServiceName.of("dependency", Integer.toString(i));
+            serviceContainer.addService(name, Service.NULL).setInitialMode(Mode.NEVER).install();
+            names.add(name);
+            dependencies.add(serviceContainer.getRequiredService(name));
+        }
+        final CountingService dependent = new CountingService(dependencies);
+        serviceContainer.addService(ServiceName.of("dependent"), dependent).addDependencies(names).install();
+        for (int round = 0; round < ROUNDS; round++) {
+            setModes(dependencies, Mode.ACTIVE);
+            assertTrue(dependent.started.tryAcquire(10L, TimeUnit.SECONDS));
+            setModes(dependencies, Mode.NEVER);
+            assertTrue(dependent.stopped.tryAcquire(10L, TimeUnit.SECONDS));
+        }
+        // the dependent started exactly once per round, and never before all of its dependencies were up
+        assertFalse(dependent.startedEarly.get());
+        assertEquals(ROUNDS, dependent.starts.get());
+        assertEquals(ROUNDS, dependent.stops.get());
+    }
+
+    @Test
+    public void concurrentDependentTransitions() throws Exception {
+        final ServiceName dependencyName = ServiceName.of("dependency");
+        final CountingService dependency = new CountingService(new ArrayList<ServiceController<?>>());
+        serviceContainer.addService(dependencyName, dependency).install();
+        assertTrue(dependency.started.tryAcquire(10L, TimeUnit.SECONDS));
+        final List<ServiceController<?>> dependents = new ArrayList<ServiceController<?>>(DEPENDENCIES);
+        for (int i = 0; i < DEPENDENCIES; i++) {
+            final ServiceName name = dependencyName.append(Integer.toString(i));
+            serviceContainer.addService(name, Service.NULL).addDependency(dependencyName).setInitialMode(Mode.NEVER).install();
+            dependents.add(serviceContainer.getRequiredService(name));
+        }
+        final ServiceController<?> controller = serviceContainer.getRequiredService(dependencyName);
+        for (int round = 0; round < ROUNDS; round++) {
+            setModes(dependents, Mode.ACTIVE);
+            // the dependency can only stop once every dependent which started has stopped
+            controller.setMode(Mode.NEVER);
+            setModes(dependents, Mode.NEVER);
+            assertTrue(dependency.stopped.tryAcquire(10L, TimeUnit.SECONDS));
+            for (ServiceController<?> dependent : dependents) {
+                assertEquals(State.DOWN, dependent.getState());
+            }
+            controller.setMode(Mode.ACTIVE);
+            assertTrue(dependency.started.tryAcquire(10L, TimeUnit.SECONDS));
+        }
+        assertEquals(ROUNDS + 1, dependency.starts.get());
+        assertEquals(ROUNDS, dependency.stops.get());
+    }
+
+    @Test
+    public void upperCountCrossingZero() throws Exception {
+        final List<ServiceName> names = new ArrayList<ServiceName>(DEPENDENCIES);
+        final List<ServiceController<?>> dependencies = new ArrayList<ServiceController<?>>(DEPENDENCIES);
+        for (int i = 0; i < DEPENDENCIES; i++) {
+            final ServiceName name = ServiceName.of("dependency", Integer.toString(i));
+            serviceContainer.addService(name, Service.NULL).install();
+            names.add(name);
+            dependencies.add(serviceContainer.getRequiredService(name));
+        }
+        final CountingService dependent = new CountingService(dependencies);
+        serviceContainer.addService(ServiceName.of("dependent"), dependent).addDependencies(names).install();
+        final ServiceController<?> controller = serviceContainer.getRequiredService(ServiceName.of("dependent"));
+        assertTrue(dependent.started.tryAcquire(10L, TimeUnit.SECONDS));
+        // flip the dependencies without waiting, so that ups and downs for the dependent are summed while in flight
+        for (int round = 0; round < ROUNDS * 10; round++) {
+            setModes(dependencies, round % 2 == 0 ? Mode.NEVER : Mode.ACTIVE);
+        }
+        setModes(dependencies, Mode.ACTIVE);
+        final long deadline = System.currentTimeMillis() + 10000L;
+        while (controller.getState() != State.UP || dependent.starts.get() != dependent.stops.get() + 1) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10L);
+        }
+        assertFalse(dependent.startedEarly.get());
+        // the count is back at zero, so bringing one dependency down must stop the dependent again
+        dependencies.get(0).setMode(Mode.NEVER);
+        while (controller.getState() != State.DOWN) {
+            assertTrue(System.currentTimeMillis() < deadline + 10000L);
+            Thread.sleep(10L);
+        }
+        assertEquals(dependent.starts.get(), dependent.stops.get());
+    }
+
+    @Test
+    public void demandCrossingZero() throws Exception {
+        final ServiceName dependencyName = ServiceName.of("dependency");
+        final CountingService dependency = new CountingService(new ArrayList<ServiceController<?>>());
+        serviceContainer.addService(dependencyName, dependency).setInitialMode(Mode.ON_DEMAND).install();
+        final List<ServiceController<?>> dependents = new ArrayList<ServiceController<?>>(4);
+        for (int i = 0; i < 4; i++) {
+            final ServiceName name = dependencyName.append(Integer.toString(i));
+            serviceContainer.addService(name, Service.NULL).addDependency(dependencyName).setInitialMode(Mode.NEVER).install();
+            dependents.add(serviceContainer.getRequiredService(name));
+        }
+        final ServiceController<?> controller = serviceContainer.getRequiredService(dependencyName);
+        // each thread adds and removes the demand of one dependent without waiting, so that the few demands on the
+        // dependency keep crossing zero from several threads
+        final CountDownLatch go = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(dependents.size());
+        for (final ServiceController<?> dependent : dependents) {
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        go.await();
+                        for (int round = 0; round < ROUNDS * 50; round++) {
+                            dependent.setMode(round % 2 == 0 ? Mode.ACTIVE : Mode.NEVER);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        go.countDown();
+        assertTrue(done.await(10L, TimeUnit.SECONDS));
+        awaitStopped(controller, dependency);
+        // nothing demands the dependency any more, so one demand must start it again, and removing it stop it
+        dependency.started.drainPermits();
+        dependents.get(0).setMode(Mode.ACTIVE);
+        assertTrue(dependency.started.tryAcquire(10L, TimeUnit.SECONDS));
+        dependents.get(0).setMode(Mode.NEVER);
+        awaitStopped(controller, dependency);
+    }
+
+    @Test
+    public void failCountCrossingZero() throws Exception {
+        final List<ServiceName> names = new ArrayList<ServiceName>(DEPENDENCIES);
+        final List<ServiceController<?>> dependencies = new ArrayList<ServiceController<?>>(DEPENDENCIES);
+        for (int i = 0; i < DEPENDENCIES; i++) {
+            final ServiceName name = ServiceName.of("dependency", Integer.toString(i));
+            serviceContainer.addService(name, new FailingService()).setInitialMode(Mode.NEVER).install();
+            names.add(name);
+            dependencies.add(serviceContainer.getRequiredService(name));
+        }
+        final NotificationCounter counter = new NotificationCounter();
+        serviceContainer.addService(ServiceName.of("dependent"), Service.NULL).addDependencies(names).addListener(counter).install();
+        final ServiceInstanceImpl<?> dependent = (ServiceInstanceImpl<?>) serviceContainer.getRequiredService(ServiceName.of("dependent"));
+        // fail and clear the dependencies without waiting, so that the failure count crosses zero from several threads
+        for (int round = 0; round < ROUNDS; round++) {
+            setModes(dependencies, Mode.ACTIVE);
+            setModes(dependencies, Mode.NEVER);
+        }
+        for (ServiceController<?> dependency : dependencies) {
+            awaitState(dependency, State.DOWN);
+        }
+        awaitEqual(counter.failureCleared, counter.failed);
+        assertFalse(dependent.getStatus().isDependencyFailed());
+        // one failed dependency is reported exactly once more
+        final int failed = counter.failed.get();
+        dependencies.get(0).setMode(Mode.ACTIVE);
+        awaitState(dependencies.get(0), State.START_FAILED);
+        awaitEqual(counter.failed, failed + 1);
+        assertTrue(dependent.getStatus().isDependencyFailed());
+        assertEquals(failed, counter.failureCleared.get());
+    }
+
+    @Test
+    public void missingDependencyCountCrossingZero() throws Exception {
+        final List<ServiceName> names = new ArrayList<ServiceName>(DEPENDENCIES);
+        for (int i = 0; i < DEPENDENCIES; i++) {
+            names.add(ServiceName.of("dependency", Integer.toString(i)));
+        }
+        final NotificationCounter counter = new NotificationCounter();
+        serviceContainer.addService(ServiceName.of("dependent"), Service.NULL).addDependencies(names).addListener(counter).install();
+        final ServiceInstanceImpl<?> dependent = (ServiceInstanceImpl<?>) serviceContainer.getRequiredService(ServiceName.of("dependent"));
+        awaitEqual(counter.uninstalled, 1);
+        for (int round = 0; round < ROUNDS; round++) {
+            // install and remove the dependencies from several threads at once
+            installServices(names);
+            awaitState(dependent, State.UP);
+            awaitEqual(counter.installed, round + 1);
+            assertFalse(dependent.getStatus().isDependencyMissing());
+            final List<ServiceController<?>> dependencies = new ArrayList<ServiceController<?>>(DEPENDENCIES);
+            for (ServiceName name : names) {
+                dependencies.add(serviceContainer.getRequiredService(name));
+            }
+            setModes(dependencies, Mode.REMOVE);
+            for (ServiceController<?> dependency : dependencies) {
+                awaitState(dependency, State.REMOVED);
+            }
+            awaitEqual(counter.uninstalled, round + 2);
+            assertTrue(dependent.getStatus().isDependencyMissing());
+        }
+        assertEquals(ROUNDS, counter.installed.get());
+    }
+
+    /**
+     * Install a service for each of the given names from several threads at once.
+     */
+    private void installServices(final List<ServiceName> names) throws InterruptedException {
+        final int threads = 4;
+        final CountDownLatch go = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int first = t;
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        go.await();
+                        for (int i = first; i < names.size(); i += threads) {
+                            serviceContainer.addService(names.get(i), Service.NULL).install();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        go.countDown();
+        assertTrue(done.await(10L, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Wait until the given service is down and has been stopped as often as it was started.
+     */
+    private static void awaitStopped(final ServiceController<?> controller, final CountingService service) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000L;
+        while (controller.getState() != State.DOWN || service.starts.get() != service.stops.get()) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10L);
+        }
+    }
+
+    private static void awaitState(final ServiceController<?> controller, final State state) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000L;
+        while (controller.getState() != state) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10L);
+        }
+    }
+
+    private static void awaitEqual(final AtomicInteger count, final int expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000L;
+        while (count.get() != expected) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10L);
+        }
+        // give notifications in flight the chance to overshoot
+        Thread.sleep(50L);
+        assertEquals(expected, count.get());
+    }
+
+    private static void awaitEqual(final AtomicInteger count, final AtomicInteger expected) throws InterruptedException {
+        awaitEqual(count, expected.get());
+    }
+
+    /**
+     * Set the mode of the given controllers from several threads at once.
+     */
+    private static void setModes(final List<ServiceController<?>> controllers, final Mode mode) throws InterruptedException {
+        final int threads = 4;
+        final CountDownLatch go = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int first = t;
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        go.await();
+                        for (int i = first; i < controllers.size(); i += threads) {
+                            controllers.get(i).setMode(mode);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        go.countDown();
+        assertTrue(done.await(10L, TimeUnit.SECONDS));
+    }
+
+    private static final class CountingService extends AbstractService<Void> {
+        private final List<ServiceController<?>> dependencies;
+        private final Semaphore started = new Semaphore(0);
+        private final Semaphore stopped = new Semaphore(0);
+        private final AtomicInteger starts = new AtomicInteger();
+        private final AtomicInteger stops = new AtomicInteger();
+        private final AtomicBoolean startedEarly = new AtomicBoolean();
+
+        CountingService(final List<ServiceController<?>> dependencies) {
+            this.dependencies = dependencies;
+        }
+
+        public void start(final StartContext context) {
+            for (ServiceController<?> dependency : dependencies) {
+                if (dependency.getState() != State.UP) {
+                    startedEarly.set(true);
+                }
+            }
+            starts.incrementAndGet();
+            started.release();
+        }
+
+        public void stop(final StopContext context) {
+            stops.incrementAndGet();
+            stopped.release();
+        }
+    }
+
+    private static final class FailingService extends AbstractService<Void> {
+        public void start(final StartContext context) throws StartException {
+            throw new StartException("Dependency failed");
+        }
+    }
+
+    private static final class NotificationCounter extends AbstractServiceListener<Object> {
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger failureCleared = new AtomicInteger();
+        private final AtomicInteger uninstalled = new AtomicInteger();
+        private final AtomicInteger installed = new AtomicInteger();
+
+        public void dependencyFailed(final ServiceController<? extends Object> controller) {
+            failed.incrementAndGet();
+        }
+
+        public void dependencyFailureCleared(final ServiceController<? extends Object> controller) {
+            failureCleared.incrementAndGet();
+        }
+
+        public void dependencyUninstalled(final ServiceController<? extends Object> controller) {
+            uninstalled.incrementAndGet();
+        }
+
+        public void dependencyInstalled(final ServiceController<? extends Object> controller) {
+            installed.incrementAndGet();
+        }
+    }
+}
@@ -139,6 +139,54 @@ public class DelegatingServiceRegistryTestCase extends AbstractServiceTest {
         assertTrue(serviceNames.contains(oneTwoFive));
     }
 
+    @Test
+    public void getServiceNamesUnderName() throws Exception {
+        final ServiceName oneFour = ServiceName.of("one", "four");
+        serviceContainer.addService(oneFour, Service.NULL).addAliases(ServiceName.of("two", "one")).install();
+        serviceContainer.addService(ServiceName.of("two", "three"), Service.NULL).addDependency(ServiceName.of("one", "six")).install();
+        List<ServiceName> serviceNames = registry.getServiceNames(ServiceName.of("one", "two"));
+        assertEquals(2, serviceNames.size());
+        assertTrue(serviceNames.contains(oneTwoThree));
+        assertTrue(serviceNames.contains(oneTwoFive));
+        assertEquals(2, registry.getServiceCount(ServiceName.of("one", "two")));
+        // the missing dependency one.six is not an installed name
+        serviceNames = registry.getServiceNames(ServiceName.of("one"));
+        assertEquals(3, serviceNames.size());
+        assertTrue(serviceNames.contains(oneFour));
+        assertEquals(3, registry.getServiceCount(ServiceName.of("one")));
+        // aliases are included
+        serviceNames = registry.getServiceNames(ServiceName.of("two"));
+        assertEquals(2, serviceNames.size());
+        assertTrue(serviceNames.contains(ServiceName.of("two", "one")));
+        assertEquals(1, registry.getServiceNames(oneTwoThree).size());
+        assertEquals(0, registry.getServiceNames(ServiceName.of("one", "six")).size());
+        assertEquals(0, registry.getServiceCount(ServiceName.of("three")));
+        removeService(oneTwoFive);
+        assertEquals(1, registry.getServiceCount(ServiceName.of("one", "two")));
+    }
+
+    @Test
+    public void removeServicesUnderName() throws Exception {
+        final ServiceName oneFour = ServiceName.of("one", "four");
+        final ServiceName twoOne = ServiceName.of("two", "one");
+        serviceContainer.addService(oneFour, Service.NULL).install();
+        serviceContainer.addService(twoOne, Service.NULL).addAliases(ServiceName.of("one", "two", "alias")).install();
+        final TestServiceListener testListener = new TestServiceListener();
+        final Future<ServiceController<?>> oneTwoThreeRemoved = testListener.expectServiceRemoval(oneTwoThree);
+        final Future<ServiceController<?>> oneTwoFiveRemoved = testListener.expectServiceRemoval(oneTwoFive);
+        serviceContainer.getRequiredService(oneTwoThree).addListener(testListener);
+        serviceContainer.getRequiredService(oneTwoFive).addListener(testListener);
+        // two.one is only aliased under one.two, so it stays
+        assertEquals(2, registry.removeServices(ServiceName.of("one", "two")));
+        assertNotNull(oneTwoThreeRemoved.get());
+        assertNotNull(oneTwoFiveRemoved.get());
+        final List<ServiceName> serviceNames = registry.getServiceNames();
+        assertEquals(3, serviceNames.size());
+        assertTrue(serviceNames.contains(oneFour));
+        assertTrue(serviceNames.contains(twoOne));
+        assertEquals(0, registry.removeServices(ServiceName.of("three")));
+    }
+
     /**
      * Remove {@code serviceName} from {@code serviceContainer}.
      */
@@ -126,6 +126,34 @@ public class DependencyListenersTestCase extends AbstractServiceTest {
         assertController(firstController, firstServiceMissingDependency);
     }
 
+    @Test
+    public void testTransitiveMissingDependenciesInBatch() throws Exception {
+        final Future<ServiceController<?>> firstServiceMissingDependency = testListener.expectDependencyUninstall(firstServiceName);
+        final Future<ServiceController<?>> secondServiceMissingDependency = testListener.expectDependencyUninstall(secondServiceName);
+        final Future<ServiceController<?>> thirdServiceMissingDependency = testListener.expectDependencyUninstall(thirdServiceName);
+        // install a chain of services whose last service depends on missing fourthService, in a single batch
+        final BatchBuilder batch = serviceContainer.batchBuilder();
+        batch.addListener(testListener);
+        batch.addService(firstServiceName, Service.NULL).addDependency(secondServiceName).install();
+        batch.addService(secondServiceName, Service.NULL).addDependency(thirdServiceName).install();
+        batch.addService(thirdServiceName, Service.NULL).addDependency(fourthServiceName).install();
+        batch.install();
+        // uninstalled dependency notification expected from the whole chain
+        final ServiceController<?> thirdController = assertController(thirdServiceName, thirdServiceMissingDependency);
+        final ServiceController<?> secondController = assertController(secondServiceName, secondServiceMissingDependency);
+        final ServiceController<?> firstController = assertController(firstServiceName, firstServiceMissingDependency);
+
+        final Future<ServiceController<?>> firstServiceStart = testListener.expectServiceStart(firstServiceName);
+        final Future<ServiceController<?>> secondServiceStart = testListener.expectServiceStart(secondServiceName);
+        final Future<ServiceController<?>> thirdServiceStart = testListener.expectServiceStart(thirdServiceName);
+        // install missing fourthService
+        serviceContainer.addService(fourthServiceName, Service.NULL).install();
+        // the whole chain is expected to start
+        assertController(thirdController, thirdServiceStart);
+        assertController(secondController, secondServiceStart);
+        assertController(firstController, firstServiceStart);
+    }
+
     @Test
     public void testMissingDependenciesNotifiedToNewDependent() throws Exception {
         Future<ServiceController<?>> firstServiceMissingDependency = testListener.expectDependencyUninstall(firstServiceName);
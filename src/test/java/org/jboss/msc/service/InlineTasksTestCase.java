@@ -0,0 +1,161 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.msc.service.ServiceController.Mode;
+import org.jboss.msc.service.ServiceController.State;
+import org.jboss.msc.util.TestServiceListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for the internal controller tasks which a container thread runs inline, after the task which queued them.
+ */
+public class InlineTasksTestCase extends AbstractServiceTest {
+
+    @Before
+    public void setUp() throws Exception {
+        // enough threads for a start method to wait for the start of another service
+        serviceContainer = ServiceContainer.Factory.create("inline", 4, 30L, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        serviceContainer.shutdown();
+        super.tearDown();
+    }
+
+    @Test
+    public void fanOutBeyondLimit() throws Exception {
+        // more dependents than fit in the queue of the thread which notifies them
+        final int count = ServiceContainerImpl.INLINE_TASK_LIMIT * 2 + 1;
+        final CountDownLatch started = new CountDownLatch(count);
+        final CountDownLatch stopped = new CountDownLatch(count);
+        final ServiceName rootName = ServiceName.of("root");
+        serviceContainer.addService(rootName, Service.NULL).setInitialMode(Mode.NEVER).install();
+        final List<ServiceController<?>> dependents = new ArrayList<ServiceController<?>>(count);
+        for (int i = 0; i < count; i++) {
+            final ServiceName name = rootName.append(Integer.toString(i));
+            serviceContainer.addService(name, new LatchService(started, stopped)).addDependency(rootName).install();
+            dependents.add(serviceContainer.getRequiredService(name));
+        }
+        final ServiceController<?> root = serviceContainer.getRequiredService(rootName);
+        final TestServiceListener testListener = new TestServiceListener();
+        root.addListener(testListener);
+        root.setMode(Mode.ACTIVE);
+        assertTrue(started.await(10L, TimeUnit.SECONDS));
+        // the root only stops once all of its dependents are down
+        final Future<ServiceController<?>> rootStop = testListener.expectServiceStop(rootName);
+        root.setMode(Mode.NEVER);
+        assertTrue(stopped.await(10L, TimeUnit.SECONDS));
+        assertController(root, rootStop);
+        for (ServiceController<?> dependent : dependents) {
+            assertSame(State.DOWN, dependent.getState());
+        }
+    }
+
+    @Test
+    public void listenerWaitsForInstall() throws Exception {
+        final ServiceName parentName = ServiceName.of("parent");
+        final ServiceName childName = parentName.append("child");
+        final CountDownLatch childStarted = new CountDownLatch(1);
+        final CountDownLatch listenerDone = new CountDownLatch(1);
+        final boolean[] childStartedInTime = new boolean[1];
+        final TestServiceListener testListener = new TestServiceListener();
+        final Future<ServiceController<?>> childStart = testListener.expectServiceStart(childName);
+        serviceContainer.addService(parentName, Service.NULL).addListener(new AbstractServiceListener<Object>() {
+            public void serviceStarted(final ServiceController<?> controller) {
+                serviceContainer.addService(childName, new LatchService(childStarted, new CountDownLatch(1))).addDependency(parentName).addListener(testListener).install();
+                try {
+                    // the child is started by tasks which must not wait for this listener to return
+                    childStartedInTime[0] = childStarted.await(10L, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                listenerDone.countDown();
+            }
+        }).install();
+        assertTrue(listenerDone.await(20L, TimeUnit.SECONDS));
+        assertTrue(childStartedInTime[0]);
+        // the start method has run, but the child may not be up yet
+        assertController(childName, childStart);
+    }
+
+    @Test
+    public void startWaitsForChild() throws Exception {
+        final ServiceName parentName = ServiceName.of("parent");
+        final ServiceName childName = parentName.append("child");
+        final CountDownLatch childStarted = new CountDownLatch(1);
+        final boolean[] childStartedInTime = new boolean[1];
+        final TestServiceListener testListener = new TestServiceListener();
+        final Future<ServiceController<?>> childStart = testListener.expectServiceStart(childName);
+        serviceContainer.addService(parentName, new AbstractService<Void>() {
+            public void start(final StartContext context) throws StartException {
+                serviceContainer.addService(childName, new AbstractService<Void>() {
+                    public void start(final StartContext context) {
+                        childStarted.countDown();
+                    }
+                }).addListener(testListener).install();
+                try {
+                    // the child is installed and started by tasks which must not wait for this method to return
+                    childStartedInTime[0] = childStarted.await(10L, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new StartException(e);
+                }
+            }
+        }).addListener(testListener).install();
+        final ServiceController<?> parent = assertController(parentName, testListener.expectServiceStart(parentName));
+        assertTrue(childStartedInTime[0]);
+        assertSame(State.UP, parent.getState());
+        assertController(childName, childStart);
+    }
+
+    private static final class LatchService extends AbstractService<Void> {
+        private final CountDownLatch started;
+        private final CountDownLatch stopped;
+
+        LatchService(final CountDownLatch started, final CountDownLatch stopped) {
+            this.started = started;
+            this.stopped = stopped;
+        }
+
+        public void start(final StartContext context) {
+            started.countDown();
+        }
+
+        public void stop(final StopContext context) {
+            stopped.countDown();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Future;
+
+import org.jboss.msc.util.TestServiceListener;
+import org.junit.Test;
+
+/**
+ * Test for batches large enough to be prepared in parallel.
+ */
+public class LargeBatchInstallTestCase extends AbstractServiceTest {
+
+    private static final int SIZE = Math.max(ServiceContainerImpl.PARALLEL_INSTALL_THRESHOLD, 1000) + 500;
+
+    private static ServiceName nameOf(final int i) {
+        return ServiceName.of("large", Integer.toString(i));
+    }
+
+    @Test
+    public void installLargeBatch() throws Exception {
+        final TestServiceListener listener = new TestServiceListener();
+        final BatchBuilder batch = serviceContainer.batchBuilder();
+        for (int i = 0; i < SIZE; i++) {
+            final ServiceBuilder<Void> builder = batch.addService(nameOf(i), Service.NULL);
+            if (i > 0) {
+                builder.addDependency(nameOf(i - 1));
+            }
+            builder.install();
+        }
+        final ServiceName last = nameOf(SIZE - 1);
+        batch.addListener(listener);
+        final Future<ServiceController<?>> lastStart = listener.expectServiceStart(last);
+        batch.install();
+        assertSame(serviceContainer.getService(last), lastStart.get());
+        for (int i = 0; i < SIZE; i++) {
+            final ServiceController<?> controller = serviceContainer.getService(nameOf(i));
+            assertNotNull(controller);
+            assertEquals(ServiceController.State.UP, controller.getState());
+        }
+    }
+
+    @Test
+    public void duplicateRollsBackLargeBatch() throws Exception {
+        final ServiceName duplicate = nameOf(SIZE / 2);
+        serviceContainer.addService(duplicate, Service.NULL).setInitialMode(ServiceController.Mode.NEVER).install();
+        final BatchBuilder batch = serviceContainer.batchBuilder();
+        for (int i = 0; i < SIZE; i++) {
+            batch.addService(nameOf(i), Service.NULL).setInitialMode(ServiceController.Mode.NEVER).install();
+        }
+        try {
+            batch.install();
+            fail("DuplicateServiceException expected");
+        } catch (DuplicateServiceException expected) {
+        }
+        for (int i = 0; i < SIZE; i++) {
+            if (i == SIZE / 2) {
+                assertNotNull(serviceContainer.getService(nameOf(i)));
+            } else {
+                assertNull(serviceContainer.getService(nameOf(i)));
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link ProfileWriter} and {@link ProfileConverter}.
+ */
+public class ProfileWriterTestCase {
+
+    private static final ServiceName FOO = ServiceName.of("foo");
+    private static final ServiceName BAR = ServiceName.of("bar", "baz");
+
+    @Test
+    public void convertToText() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ProfileWriter writer = new ProfileWriter(bytes, 1000L);
+        writer.record('S', FOO, 1500L, 4000L);
+        writer.record('L', FOO, 4000L, 4100L);
+        writer.record('X', BAR, 9000L, 9000L);
+        writer.close();
+        assertEquals("foo\tS\t500\t2500\nfoo\tL\t3000\t100\nbar.baz\tX\t8000\t0\n", convert(new ByteArrayInputStream(bytes.toByteArray()), false));
+    }
+
+    @Test
+    public void convertToChromeTrace() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ProfileWriter writer = new ProfileWriter(bytes, 0L);
+        writer.record('F', ServiceName.of("say \"hi\""), 1234567L, 2234567L);
+        writer.close();
+        final String json = convert(new ByteArrayInputStream(bytes.toByteArray()), true);
+        assertTrue(json, json.startsWith("{\"traceEvents\":["));
+        assertTrue(json, json.contains("\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":0,\"args\":{\"name\":" ));
+        assertTrue(json, json.contains("{\"name\":\"\\\"say \\\\\\\"hi\\\\\\\"\\\"\",\"cat\":\"start-failed\",\"ph\":\"X\",\"pid\":1,\"tid\":0,\"ts\":1234.567,\"dur\":1000}"));
+        assertTrue(json, json.endsWith("]}\n"));
+    }
+
+    @Test
+    public void manyThreadsMappedFile() throws Exception {
+        final File file = File.createTempFile("msc-profile", ".bin");
+        try {
+            final ProfileWriter writer = ProfileWriter.open(file.getPath(), true, 0L);
+            final int threadCount = 4;
+            final int eventCount = 1000;
+            final CountDownLatch done = new CountDownLatch(threadCount);
+            for (int t = 0; t < threadCount; t++) {
+                final ServiceName name = ServiceName.of("service" + t);
+                new Thread(new Runnable() {
+                    public void run() {
+                        for (int i = 0; i < eventCount; i++) {
+                            writer.record('S', name, i, i + 1);
+                            if ((i & 63) == 0) {
+                                // let the writer keep up, so that nothing is dropped
+                                try {
+                                    Thread.sleep(1L);
+                                } catch (InterruptedException ignored) {
+                                }
+                            }
+                        }
+                        done.countDown();
+                    }
+                }).start();
+            }
+            done.await();
+            writer.close();
+            final InputStream input = new FileInputStream(file);
+            final String text;
+            try {
+                text = convert(input, false);
+            } finally {
+                input.close();
+            }
+            int lines = 0;
+            for (String line : text.split("\n")) {
+                assertTrue(line, line.matches("service[0-3]\tS\t\\d+\t1"));
+                lines++;
+            }
+            assertEquals(threadCount * eventCount, lines);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void shortLivedThreads() throws Exception {
+        final File file = File.createTempFile("msc-profile", ".bin");
+        try {
+            final ProfileWriter writer = ProfileWriter.open(file.getPath(), false, 0L);
+            // like starts which each run on a new thread
+            final int threadCount = 500;
+            for (int t = 0; t < threadCount; t++) {
+                final ServiceName name = ServiceName.of("service" + t);
+                final Thread thread = new Thread(new Runnable() {
+                    public void run() {
+                        writer.record('S', name, 0L, 1L);
+                    }
+                }, "starter" + t);
+                thread.start();
+                thread.join();
+            }
+            writer.close();
+            final InputStream input = new FileInputStream(file);
+            final String text;
+            try {
+                text = convert(input, true);
+            } finally {
+                input.close();
+            }
+            for (int t = 0; t < threadCount; t++) {
+                assertTrue(text.contains("\"service" + t + "\""));
+                assertTrue(text.contains("\"starter" + t + "\""));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static String convert(final InputStream input, final boolean chrome) throws IOException {
+        final StringWriter writer = new StringWriter();
+        ProfileConverter.convert(input, writer, chrome);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.msc.service.ServiceController.Mode;
+import org.jboss.msc.service.ServiceController.State;
+import org.jboss.msc.util.TestServiceListener;
+import org.junit.Test;
+
+/**
+ * Test for the dependents of a registration, which are kept in an array while there are few of them and in a set
+ * otherwise.
+ */
+public class RegistrationDependentsTestCase extends AbstractServiceTest {
+
+    private static final ServiceName ROOT = ServiceName.of("root");
+
+    @Test
+    public void arrayLimit() throws Exception {
+        final int count = 16;
+        final Semaphore started = new Semaphore(0);
+        final Semaphore stopped = new Semaphore(0);
+        serviceContainer.addService(ROOT, Service.NULL).setInitialMode(Mode.NEVER).install();
+        final ServiceController<?> root = serviceContainer.getRequiredService(ROOT);
+        final List<ServiceController<?>> dependents = new ArrayList<ServiceController<?>>();
+        for (int i = 0; i < count; i++) {
+            dependents.add(installDependent(i, started, stopped));
+        }
+        root.setMode(Mode.ACTIVE);
+        assertTrue(started.tryAcquire(count, 10L, TimeUnit.SECONDS));
+        // one more than the array holds
+        dependents.add(installDependent(count, started, stopped));
+        assertTrue(started.tryAcquire(10L, TimeUnit.SECONDS));
+        root.setMode(Mode.NEVER);
+        assertTrue(stopped.tryAcquire(count + 1, 10L, TimeUnit.SECONDS));
+        root.setMode(Mode.ACTIVE);
+        assertTrue(started.tryAcquire(count + 1, 10L, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void removeDependents() throws Exception {
+        final int count = 40;
+        final Semaphore started = new Semaphore(0);
+        final Semaphore stopped = new Semaphore(0);
+        serviceContainer.addService(ROOT, Service.NULL).install();
+        final List<ServiceController<?>> dependents = new ArrayList<ServiceController<?>>();
+        for (int i = 0; i < count; i++) {
+            dependents.add(installDependent(i, started, stopped));
+        }
+        assertTrue(started.tryAcquire(count, 10L, TimeUnit.SECONDS));
+        // remove all but a few, going back below the array limit
+        final TestServiceListener testListener = new TestServiceListener();
+        final List<Future<ServiceController<?>>> removals = new ArrayList<Future<ServiceController<?>>>();
+        for (ServiceController<?> dependent : dependents.subList(5, count)) {
+            removals.add(testListener.expectServiceRemoval(dependent.getName()));
+            dependent.addListener(testListener);
+            dependent.setMode(Mode.REMOVE);
+        }
+        for (int i = 5; i < count; i++) {
+            assertController(dependents.get(i), removals.get(i - 5));
+        }
+        assertTrue(stopped.tryAcquire(count - 5, 10L, TimeUnit.SECONDS));
+        // only the remaining dependents hold the root up
+        final ServiceController<?> root = serviceContainer.getRequiredService(ROOT);
+        final TestServiceListener rootListener = new TestServiceListener();
+        root.addListener(rootListener);
+        final Future<ServiceController<?>> rootStop = rootListener.expectServiceStop(ROOT);
+        root.setMode(Mode.NEVER);
+        assertController(root, rootStop);
+        assertTrue(stopped.tryAcquire(5, 10L, TimeUnit.SECONDS));
+        for (ServiceController<?> dependent : dependents.subList(0, 5)) {
+            assertEquals(State.DOWN, dependent.getState());
+        }
+    }
+
+    private ServiceController<?> installDependent(final int i, final Semaphore started, final Semaphore stopped) throws Exception {
+        final ServiceName name = ROOT.append(Integer.toString(i));
+        serviceContainer.addService(name, new AbstractService<Void>() {
+            public void start(final StartContext context) {
+                started.release();
+            }
+
+            public void stop(final StopContext context) {
+                stopped.release();
+            }
+        }).addDependency(ROOT).install();
+        return serviceContainer.getRequiredService(name);
+    }
+}
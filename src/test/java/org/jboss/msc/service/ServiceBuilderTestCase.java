@@ -621,6 +621,89 @@ public class ServiceBuilderTestCase extends AbstractServiceTest {
         serviceBuilder.install(); // this installation request is ignored
     }
 
+    @Test
+    public void addBatchServiceWithDependencyInjections() throws Exception {
+        Future<ServiceController<?>> serviceDescriptionStart = testListener.expectServiceStart(descriptionServiceName);
+        // install service description outside of the batch
+        serviceContainer.addService(descriptionServiceName, new ValueService<String>(Values.immediateValue("description"))).addListener(testListener).install();
+        assertController(descriptionServiceName, serviceDescriptionStart);
+
+        final DummyHelper dummyHelper = new DummyHelper();
+        final DummyManager dummyManager = new DummyManager();
+        final BatchBuilder batch = serviceContainer.batchBuilder();
+        batch.addService(helperServiceName, new ValueService<DummyHelper>(Values.immediateValue(dummyHelper))).install();
+        // the dependency on the helper, from the same batch, is moved in front of the one on the description
+        batch.addService(serviceName, new ValueService<DummyManager>(Values.immediateValue(dummyManager)))
+                .addDependency(descriptionServiceName, String.class,
+                        new SetMethodInjector<String>(dummyManager, DummyManager.class, "setDescription", String.class))
+                .addDependency(helperServiceName, DummyHelper.class,
+                        new SetMethodInjector<DummyHelper>(dummyManager, DummyManager.class, "setHelper", DummyHelper.class))
+                .addListener(testListener).install();
+        Future<ServiceController<?>> dummyServiceStart = testListener.expectServiceStart(serviceName);
+        batch.install();
+        assertController(serviceName, dummyServiceStart);
+        // each injector got the value of its own dependency
+        assertEquals("description", dummyManager.getDescription());
+        assertSame(dummyHelper, dummyManager.getHelper());
+    }
+
+    @Test
+    public void addManyDependencies() throws Exception {
+        final ServiceBuilderImpl<?> serviceBuilder = (ServiceBuilderImpl<?>) serviceContainer.addService(serviceName, Service.NULL);
+        // enough dependencies to switch from linear search to the hash index
+        for (int i = 0; i < 40; i++) {
+            serviceBuilder.addDependency(ServiceBuilder.DependencyType.OPTIONAL, ServiceName.of("dependency", Integer.toString(i)));
+        }
+        // duplicates are merged, and a required dependency overrides an optional one
+        for (int i = 0; i < 40; i += 2) {
+            serviceBuilder.addDependency(ServiceName.of("dependency", Integer.toString(i)));
+            serviceBuilder.addDependency(ServiceBuilder.DependencyType.OPTIONAL, ServiceName.of("dependency", Integer.toString(i)));
+        }
+        serviceBuilder.addDependency(serviceName);
+        assertEquals(40, serviceBuilder.getDependencyCount());
+        for (int i = 0; i < 40; i++) {
+            assertEquals(ServiceName.of("dependency", Integer.toString(i)), serviceBuilder.getDependencyName(i));
+            assertEquals(i % 2 == 1, serviceBuilder.isOptionalDependency(i));
+        }
+    }
+
+    @Test
+    public void addManyDependents() throws Exception {
+        final List<Future<ServiceController<?>>> dependentStarts = new ArrayList<Future<ServiceController<?>>>();
+        final List<Future<ServiceController<?>>> dependentStops = new ArrayList<Future<ServiceController<?>>>();
+        // enough dependents on a single service to outgrow the registration's dependents array
+        final BatchBuilder batch = serviceContainer.batchBuilder();
+        for (int i = 0; i < 40; i++) {
+            final ServiceName dependentName = ServiceName.of("dependent", Integer.toString(i));
+            dependentStarts.add(testListener.expectServiceStart(dependentName));
+            batch.addService(dependentName, Service.NULL).addDependency(anotherServiceName).addListener(testListener).install();
+        }
+        batch.install();
+        final Future<ServiceController<?>> anotherServiceStart = testListener.expectServiceStart(anotherServiceName);
+        serviceContainer.addService(anotherServiceName, Service.NULL).addListener(testListener).install();
+        final ServiceController<?> anotherController = assertController(anotherServiceName, anotherServiceStart);
+        for (int i = 0; i < 40; i++) {
+            assertController(ServiceName.of("dependent", Integer.toString(i)), dependentStarts.get(i));
+        }
+        // remove every other dependent; the others must still see the dependency stop
+        for (int i = 0; i < 40; i += 2) {
+            final ServiceName dependentName = ServiceName.of("dependent", Integer.toString(i));
+            final Future<ServiceController<?>> dependentRemoval = testListener.expectServiceRemoval(dependentName);
+            final ServiceController<?> dependentController = serviceContainer.getRequiredService(dependentName);
+            dependentController.setMode(Mode.REMOVE);
+            assertController(dependentController, dependentRemoval);
+        }
+        for (int i = 1; i < 40; i += 2) {
+            dependentStops.add(testListener.expectServiceStop(ServiceName.of("dependent", Integer.toString(i))));
+        }
+        final Future<ServiceController<?>> anotherServiceStop = testListener.expectServiceStop(anotherServiceName);
+        anotherController.setMode(Mode.NEVER);
+        assertController(anotherController, anotherServiceStop);
+        for (int i = 1; i < 40; i += 2) {
+            assertController(ServiceName.of("dependent", Integer.toString(i)), dependentStops.get(i / 2));
+        }
+    }
+
     /**
      * Create and assert location as specified.
      * 
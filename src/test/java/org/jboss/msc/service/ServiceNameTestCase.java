@@ -24,8 +24,20 @@ package org.jboss.msc.service;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import static java.lang.Integer.signum;
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
 import static junit.framework.Assert.fail;
 
 /**
@@ -133,4 +145,79 @@ public final class ServiceNameTestCase {
         } catch (IllegalArgumentException expected) {
         }
     }
+
+    @Test
+    public void testIntern() throws Exception {
+        final ServiceName name1 = ServiceName.of("jboss", "deployment", "unit", "\"a.war\"");
+        final ServiceName name2 = ServiceName.JBOSS.append("deployment").append("unit", "\"a.war\"");
+        final ServiceName canonical = name1.intern();
+        assertSame(canonical, name2.intern());
+        assertSame(canonical, canonical.intern());
+        assertSame(canonical.getParent(), ServiceName.parse("jboss.deployment.unit").intern());
+        assertSame(canonical.getParent(), ServiceName.of("jboss", "deployment", "unit", "b.war").intern().getParent());
+        assertEquals(name1, canonical);
+        assertEquals(canonical, name2);
+        assertEquals(name1.hashCode(), canonical.hashCode());
+        assertEquals(name1.getCanonicalName(), canonical.getCanonicalName());
+        assertFalse(canonical.equals(ServiceName.of("jboss", "deployment", "unit", "b.war").intern()));
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream oos = new ObjectOutputStream(bytes);
+        oos.writeObject(canonical);
+        oos.close();
+        final Object read = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals(canonical, read);
+        assertSame(canonical, ((ServiceName) read).intern());
+    }
+
+    @Test
+    public void testInternTableCollects() throws Exception {
+        final ServiceNameTable table = new ServiceNameTable();
+        List<ServiceName> names = new ArrayList<ServiceName>();
+        final ServiceName parent = table.intern(null, "parent");
+        for (int i = 0; i < 1000; i++) {
+            names.add(table.intern(parent, Integer.toString(i)));
+        }
+        assertEquals(1001, table.size());
+        for (int i = 0; i < 1000; i++) {
+            assertSame(names.get(i), table.intern(parent, Integer.toString(i)));
+        }
+        assertNotSame(names.get(0), ServiceName.of(parent, "0"));
+        names = null;
+        for (int i = 0; i < 100 && table.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(20L);
+        }
+        assertEquals(1, table.size());
+        assertTrue(parent == table.intern(null, "parent"));
+    }
+
+    @Test
+    public void testCanonicalNameRoundTrip() {
+        assertEquals("\"ab.c\"", ServiceName.of("ab.c").getCanonicalName());
+        assertEquals("jboss.\"a b\".\"x\\\"y\"", ServiceName.of("jboss", "a b", "x\"y").getCanonicalName());
+        final String plain = "jboss.deployment.unit.app";
+        final ServiceName parsed = ServiceName.parse(plain);
+        assertSame(plain, parsed.getCanonicalName());
+        assertSame(parsed.getCanonicalName(), parsed.getCanonicalName());
+        assertEquals(ServiceName.of("jboss", "a.b", "c"), ServiceName.parse("jboss.\"a\\u002eb\".c"));
+        assertEquals(ServiceName.of("a\tb"), ServiceName.parse("\"a\\tb\""));
+        final Random random = new Random(1234L);
+        final char[] alphabet = { 'a', 'Z', '0', '.', '"', '\\', ' ', '\t', '\0', '\u00e9', '\u2028', '\uD83D', '\uDE00', '_' };
+        for (int i = 0; i < 2000; i++) {
+            final String[] parts = new String[1 + random.nextInt(4)];
+            for (int j = 0; j < parts.length; j++) {
+                final StringBuilder b = new StringBuilder();
+                final int len = 1 + random.nextInt(6);
+                for (int k = 0; k < len; k++) {
+                    b.append(alphabet[random.nextInt(alphabet.length)]);
+                }
+                parts[j] = b.toString();
+            }
+            final ServiceName name = ServiceName.of(parts);
+            final String canonical = name.getCanonicalName();
+            assertEquals(canonical, name, ServiceName.parse(canonical));
+            assertEquals(canonical, name, ServiceName.parseUncached(canonical));
+            assertEquals(canonical, ServiceName.parse(canonical).getCanonicalName());
+        }
+    }
 }
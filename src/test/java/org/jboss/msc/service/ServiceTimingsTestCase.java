@@ -0,0 +1,215 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+
+import org.jboss.msc.service.management.ServiceContainerMXBean;
+import org.jboss.msc.service.management.ServiceTimings;
+import org.jboss.msc.service.management.TimingSummary;
+import org.jboss.msc.util.TestServiceListener;
+import org.junit.Test;
+
+/**
+ * Test for the service timings recorded by the container and exposed through {@link ServiceContainerMXBean}.
+ */
+public class ServiceTimingsTestCase {
+
+    @Test
+    public void histogramPercentiles() {
+        final TimingHistogram histogram = new TimingHistogram();
+        assertEquals(0L, histogram.getPercentile(50.0));
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000L, histogram.getCount());
+        assertEquals(500500000L, histogram.getTotal());
+        assertEquals(1000000L, histogram.getMax());
+        assertWithin(500000L, histogram.getPercentile(50.0));
+        assertWithin(990000L, histogram.getPercentile(99.0));
+        assertEquals(1000000L, histogram.getPercentile(100.0));
+        histogram.record(-5L);
+        assertEquals(0L, histogram.getPercentile(0.0));
+    }
+
+    @Test
+    public void histogramThreads() throws Exception {
+        final TimingHistogram histogram = new TimingHistogram();
+        final Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            final long offset = i * 1000L;
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    for (long j = 1; j <= 1000; j++) {
+                        histogram.record(offset + j);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8000L, histogram.getCount());
+        assertEquals(32004000L, histogram.getTotal());
+        assertEquals(8000L, histogram.getMax());
+        assertWithin(4000L, histogram.getPercentile(50.0));
+    }
+
+    @Test
+    public void histogramBuckets() {
+        for (long value = 0L; value < 100000L; value++) {
+            final int index = TimingHistogram.indexOf(value);
+            assertTrue(value <= TimingHistogram.upperBoundOf(index));
+            assertTrue(index == 0 || value > TimingHistogram.upperBoundOf(index - 1));
+        }
+        assertEquals(Long.MAX_VALUE, TimingHistogram.upperBoundOf(TimingHistogram.indexOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void containerTimings() throws Exception {
+        final String containerName = "service-timings-test";
+        final ServiceContainer container = ServiceContainer.Factory.create(containerName);
+        try {
+            final ServiceContainerMXBean mxBean = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(), new ObjectName("jboss.msc:type=container,name=" + containerName), ServiceContainerMXBean.class);
+            mxBean.setTimingMetricsEnabled(true);
+            final ServiceName fast = ServiceName.of("fast");
+            final ServiceName slow = ServiceName.of("slow");
+            final TestServiceListener listener = new TestServiceListener();
+            final BatchBuilder batch = container.batchBuilder();
+            batch.addListener(listener);
+            batch.addService(fast, Service.NULL).install();
+            batch.addService(slow, new SleepingService(50L)).addDependency(fast).install();
+            final Future<ServiceController<?>> slowStart = listener.expectServiceStart(slow);
+            batch.install();
+            final ServiceController<?> slowController = slowStart.get();
+            assertNotNull(slowController);
+
+            final ServiceTimings slowTimings = mxBean.getServiceTimings(slow.getCanonicalName());
+            assertEquals(slow.getCanonicalName(), slowTimings.getServiceName());
+            assertTrue(slowTimings.getStartNanos() >= 50000000L);
+            assertTrue(slowTimings.getDependencyWaitNanos() >= 0L);
+            assertEquals(-1L, slowTimings.getStopNanos());
+            assertTrue(slowTimings.getListenerNanos() > 0L);
+            assertNull(mxBean.getServiceTimings("missing"));
+
+            final List<ServiceTimings> slowest = mxBean.querySlowestServices(1);
+            assertEquals(1, slowest.size());
+            assertEquals(slow.getCanonicalName(), slowest.get(0).getServiceName());
+            assertEquals(2, mxBean.querySlowestServices(10).size());
+
+            final Future<ServiceController<?>> slowStop = listener.expectServiceStop(slow);
+            slowController.setMode(ServiceController.Mode.NEVER);
+            slowStop.get();
+            assertTrue(mxBean.getServiceTimings(slow.getCanonicalName()).getStopNanos() >= 0L);
+
+            final List<TimingSummary> summaries = mxBean.queryTimingSummaries();
+            assertEquals(4, summaries.size());
+            final TimingSummary start = summaries.get(0);
+            assertEquals("start", start.getName());
+            assertEquals(2L, start.getCount());
+            assertTrue(start.getMaxNanos() >= 50000000L);
+            assertTrue(start.getPercentile99Nanos() <= start.getMaxNanos());
+            assertEquals("stop", summaries.get(1).getName());
+            assertEquals(1L, summaries.get(1).getCount());
+            assertEquals("dependency-wait", summaries.get(2).getName());
+            assertEquals(2L, summaries.get(2).getCount());
+            assertEquals("listener", summaries.get(3).getName());
+            assertTrue(summaries.get(3).getCount() > 0L);
+        } finally {
+            container.shutdown();
+        }
+    }
+
+    @Test
+    public void switchTimingMetrics() throws Exception {
+        final String containerName = "service-timings-switch-test";
+        final ServiceContainer container = ServiceContainer.Factory.create(containerName);
+        try {
+            final ServiceContainerMXBean mxBean = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(), new ObjectName("jboss.msc:type=container,name=" + containerName), ServiceContainerMXBean.class);
+            mxBean.setTimingMetricsEnabled(false);
+            assertFalse(mxBean.isTimingMetricsEnabled());
+            final ServiceName name = ServiceName.of("service");
+            final TestServiceListener listener = new TestServiceListener();
+            Future<ServiceController<?>> start = listener.expectServiceStart(name);
+            container.addService(name, Service.NULL).addListener(listener).install();
+            final ServiceController<?> controller = start.get();
+            assertEquals(-1L, mxBean.getServiceTimings(name.getCanonicalName()).getStartNanos());
+            assertEquals(0L, mxBean.queryTimingSummaries().get(0).getCount());
+
+            // switched on without a restart, the next start is recorded
+            mxBean.setTimingMetricsEnabled(true);
+            assertTrue(mxBean.isTimingMetricsEnabled());
+            final Future<ServiceController<?>> stop = listener.expectServiceStop(name);
+            controller.setMode(ServiceController.Mode.NEVER);
+            stop.get();
+            start = listener.expectServiceStart(name);
+            controller.setMode(ServiceController.Mode.ACTIVE);
+            start.get();
+            assertTrue(mxBean.getServiceTimings(name.getCanonicalName()).getStartNanos() >= 0L);
+            assertEquals(1L, mxBean.queryTimingSummaries().get(0).getCount());
+            assertEquals(1L, mxBean.queryTimingSummaries().get(1).getCount());
+        } finally {
+            container.shutdown();
+        }
+    }
+
+    private static void assertWithin(final long expected, final long actual) {
+        assertTrue("expected about " + expected + " but got " + actual, actual >= expected && actual <= expected + expected / 8);
+    }
+
+    private static final class SleepingService implements Service<Void> {
+        private final long millis;
+
+        SleepingService(final long millis) {
+            this.millis = millis;
+        }
+
+        public void start(final StartContext context) throws StartException {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StartException(e);
+            }
+        }
+
+        public void stop(final StopContext context) {
+        }
+
+        public Void getValue() throws IllegalStateException {
+            return null;
+        }
+    }
+}
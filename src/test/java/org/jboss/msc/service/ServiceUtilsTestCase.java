@@ -22,6 +22,7 @@
 
 package org.jboss.msc.service;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -29,10 +30,14 @@ import static org.junit.Assert.fail;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.jboss.msc.service.ServiceController.Mode;
 import org.jboss.msc.service.ServiceController.State;
 import org.jboss.msc.service.util.TestTask;
 import org.jboss.msc.util.TestServiceListener;
+import org.jboss.msc.value.CachedValue;
+import org.jboss.msc.value.Value;
 import org.junit.Test;
 
 /**
@@ -150,4 +155,33 @@ public class ServiceUtilsTestCase extends AbstractServiceTest {
         // remove null list of services with a null complete task... NPE is expected
         ServiceUtils.undeployAll(null, (List<ServiceController<?>>) null);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void invalidateOnStop() throws Exception {
+        final ServiceName serviceName = ServiceName.of("service");
+        final TestServiceListener testListener = new TestServiceListener();
+        final AtomicInteger calculations = new AtomicInteger();
+        final CachedValue<Integer> value = new CachedValue<Integer>(new Value<Integer>() {
+            public Integer getValue() {
+                return calculations.incrementAndGet();
+            }
+        });
+
+        Future<ServiceController<?>> serviceStart = testListener.expectServiceStart(serviceName);
+        serviceContainer.addService(serviceName, new ValueService<Integer>(value)).addListener(testListener)
+                .addListener(ServiceUtils.invalidateOnStop(value)).install();
+        final ServiceController<?> serviceController = assertController(serviceName, serviceStart);
+        assertEquals(1, serviceController.getValue());
+        assertEquals(1, serviceController.getValue());
+
+        // stop and restart the service; the value is calculated again
+        final Future<ServiceController<?>> serviceStop = testListener.expectServiceStop(serviceName);
+        serviceController.setMode(Mode.NEVER);
+        assertController(serviceController, serviceStop);
+        serviceStart = testListener.expectServiceStart(serviceName);
+        serviceController.setMode(Mode.ACTIVE);
+        assertController(serviceController, serviceStart);
+        assertEquals(2, serviceController.getValue());
+        assertEquals(2, serviceController.getValue());
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link StartScheduler}.
+ */
+public class StartSchedulerTestCase {
+
+    @Test
+    public void highestPriorityRunsFirst() {
+        final List<Runnable> submitted = new ArrayList<Runnable>();
+        final Executor executor = new Executor() {
+            public void execute(final Runnable command) {
+                submitted.add(command);
+            }
+        };
+        final List<String> ran = new ArrayList<String>();
+        final StartScheduler scheduler = new StartScheduler();
+        scheduler.execute(executor, new Recorder(ran, "leaf1"), 0);
+        scheduler.execute(executor, new Recorder(ran, "middle"), 5);
+        scheduler.execute(executor, new Recorder(ran, "leaf2"), 0);
+        scheduler.execute(executor, new Recorder(ran, "critical"), 9);
+        scheduler.execute(executor, new Recorder(ran, "middle2"), 5);
+        assertEquals(5, submitted.size());
+        for (Runnable runnable : submitted) {
+            runnable.run();
+        }
+        assertEquals(Arrays.asList("critical", "middle", "middle2", "leaf1", "leaf2"), ran);
+    }
+
+    @Test
+    public void rejectedRunsOnCaller() {
+        final Executor executor = new Executor() {
+            public void execute(final Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        };
+        final List<String> ran = new ArrayList<String>();
+        final StartScheduler scheduler = new StartScheduler();
+        scheduler.execute(executor, new Recorder(ran, "first"), 0);
+        scheduler.execute(executor, new Recorder(ran, "second"), 3);
+        assertEquals(Arrays.asList("first", "second"), ran);
+    }
+
+    @Test
+    public void everyStartRunsOnceFromManyThreads() throws Exception {
+        final List<Runnable> submitted = new ArrayList<Runnable>();
+        final Executor executor = new Executor() {
+            public void execute(final Runnable command) {
+                synchronized (submitted) {
+                    submitted.add(command);
+                }
+            }
+        };
+        final StartScheduler scheduler = new StartScheduler();
+        final AtomicInteger ran = new AtomicInteger();
+        final Runnable task = new Runnable() {
+            public void run() {
+                ran.incrementAndGet();
+            }
+        };
+        // submitting threads may use different queues; each submission still runs exactly one start of its queue
+        final Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < 100; i++) {
+                        scheduler.execute(executor, task, i % 7);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(800, submitted.size());
+        for (Runnable runnable : submitted) {
+            runnable.run();
+        }
+        assertEquals(800, ran.get());
+    }
+
+    private static final class Recorder implements Runnable {
+        private final List<String> ran;
+        private final String name;
+
+        Recorder(final List<String> ran, final String name) {
+            this.ran = ran;
+            this.name = name;
+        }
+
+        public void run() {
+            ran.add(name);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.msc.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link UnlockedReadHashMap}.
+ */
+public class UnlockedReadHashMapTestCase {
+
+    @Test
+    public void basicOperations() {
+        final UnlockedReadHashMap<String, String> map = new UnlockedReadHashMap<String, String>(0);
+        assertTrue(map.isEmpty());
+        assertNull(map.put("a", "1"));
+        assertEquals("1", map.put("a", "2"));
+        assertEquals("2", map.putIfAbsent("a", "3"));
+        assertNull(map.putIfAbsent("b", "4"));
+        assertEquals(2, map.size());
+        assertFalse(map.replace("a", "1", "5"));
+        assertTrue(map.replace("a", "2", "5"));
+        assertEquals("5", map.replace("a", "6"));
+        assertNull(map.replace("c", "7"));
+        assertFalse(map.remove("a", "5"));
+        assertTrue(map.remove("a", "6"));
+        assertEquals("4", map.remove("b"));
+        assertNull(map.remove("b"));
+        assertNull(map.get("a"));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void growAndIterate() {
+        final UnlockedReadHashMap<Integer, Integer> map = new UnlockedReadHashMap<Integer, Integer>(0);
+        final int count = 10000;
+        for (int i = 0; i < count; i++) {
+            assertNull(map.put(Integer.valueOf(i), Integer.valueOf(-i)));
+        }
+        assertEquals(count, map.size());
+        final Set<Integer> seen = new HashSet<Integer>();
+        for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+            assertEquals(-entry.getKey().intValue(), entry.getValue().intValue());
+            assertTrue(seen.add(entry.getKey()));
+        }
+        assertEquals(count, seen.size());
+        for (int i = 0; i < count; i += 2) {
+            assertEquals(Integer.valueOf(-i), map.remove(Integer.valueOf(i)));
+        }
+        assertEquals(count / 2, map.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 2 == 0 ? null : Integer.valueOf(-i), map.get(Integer.valueOf(i)));
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.entrySet().iterator().hasNext());
+    }
+
+    @Test
+    public void concurrentPutIfAbsent() throws InterruptedException {
+        final UnlockedReadHashMap<Integer, Object> map = new UnlockedReadHashMap<Integer, Object>();
+        final int threadCount = 8;
+        final int keyCount = 5000;
+        final AtomicInteger winners = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < keyCount; i++) {
+                            final Object value = new Object();
+                            final Integer key = Integer.valueOf(i);
+                            final Object existing = map.putIfAbsent(key, value);
+                            if (existing == null) {
+                                winners.incrementAndGet();
+                                assertSame(value, map.get(key));
+                            } else {
+                                assertSame(existing, map.get(key));
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        assertEquals(keyCount, winners.get());
+        assertEquals(keyCount, map.size());
+    }
+
+    @Test
+    public void concurrentGetOrCreate() throws InterruptedException {
+        final UnlockedReadHashMap<Integer, Object> map = new UnlockedReadHashMap<Integer, Object>(0);
+        final int threadCount = 8;
+        final int keyCount = 5000;
+        final AtomicInteger created = new AtomicInteger();
+        final UnlockedReadHashMap.Factory<Integer, Object> factory = new UnlockedReadHashMap.Factory<Integer, Object>() {
+            public Object create(final Integer key) {
+                created.incrementAndGet();
+                return new Object();
+            }
+        };
+        final Object[][] seen = new Object[threadCount][keyCount];
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            final Object[] mine = seen[t];
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < keyCount; i++) {
+                            mine[i] = map.getOrCreate(Integer.valueOf(i), factory);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        assertEquals(keyCount, created.get());
+        assertEquals(keyCount, map.size());
+        for (int i = 0; i < keyCount; i++) {
+            final Object value = map.get(Integer.valueOf(i));
+            for (int t = 0; t < threadCount; t++) {
+                assertSame(value, seen[t][i]);
+            }
+        }
+        assertSame(map.get(Integer.valueOf(0)), map.getOrCreate(Integer.valueOf(0), factory));
+        assertEquals(keyCount, created.get());
+    }
+}
@@ -27,6 +27,7 @@ import static org.junit.Assert.fail;
 
 import java.lang.reflect.Field;
 
+import org.jboss.msc.value.Value;
 import org.jboss.msc.value.Values;
 import org.jboss.msc.value.util.AnyService;
 import org.junit.Test;
@@ -52,6 +53,23 @@ public class FieldTraversingTranslatorTestCase {
         assertEquals(10, (int) translator.translate(anyService));
     }
 
+    @Test
+    public void boundFieldTraversing() throws Exception {
+        final Field field = AnyService.class.getField("count");
+        final int[] lookups = new int[1];
+        final Translator<AnyService, Integer> translator = FieldTraversingTranslator.createBound(new Value<Field>() {
+            public Field getValue() {
+                lookups[0]++;
+                return field;
+            }
+        });
+        final AnyService anyService = new AnyService();
+        assertEquals(0, (int) translator.translate(anyService));
+        anyService.count = 10;
+        assertEquals(10, (int) translator.translate(anyService));
+        assertEquals(1, lookups[0]);
+    }
+
     @Test
     public void unaccessibleFieldTraversing() throws Exception {
         // translator that reads the value of sum field
@@ -23,8 +23,21 @@
 package org.jboss.msc.value;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 
 /**
@@ -78,6 +91,171 @@ public class CachedValueTestCase {
         } catch (NullPointerException e) {}
     }
 
+    @Test
+    public void failureNotCached() {
+        final FailingValue failing = new FailingValue(2);
+        final Value<Integer> value = new CachedValue<Integer>(failing);
+        for (int i = 0; i < 2; i ++) {
+            try {
+                value.getValue();
+                fail("IllegalStateException expected");
+            } catch (IllegalStateException e) {}
+        }
+        assertEquals(3, (int) value.getValue());
+        assertEquals(3, (int) value.getValue());
+        assertEquals(3, failing.calls.get());
+    }
+
+    @Test
+    public void failureCached() throws Exception {
+        final FailingValue failing = new FailingValue(2);
+        final Value<Integer> value = new CachedValue<Integer>(failing, 500L, 1000L, TimeUnit.MILLISECONDS);
+        IllegalStateException first = null;
+        try {
+            value.getValue();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            first = e;
+        }
+        for (int i = 0; i < 2; i ++) {
+            try {
+                value.getValue();
+                fail("IllegalStateException expected");
+            } catch (IllegalStateException e) {
+                // a new exception each time, caused by the cached one
+                assertNotSame(first, e);
+                assertSame(first, e.getCause());
+            }
+        }
+        assertEquals(1, failing.calls.get());
+        // the first failure is cached for 500ms, and the second for 1000ms
+        Thread.sleep(1000L);
+        IllegalStateException second = null;
+        try {
+            value.getValue();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            second = e;
+        }
+        assertNotSame(first, second);
+        assertEquals(2, failing.calls.get());
+        try {
+            value.getValue();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            assertSame(second, e.getCause());
+        }
+        assertEquals(2, failing.calls.get());
+        Thread.sleep(1500L);
+        assertEquals(3, (int) value.getValue());
+        assertEquals(3, failing.calls.get());
+    }
+
+    @Test
+    public void undeclaredFailure() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final Value<Integer> value = new CachedValue<Integer>(new Value<Integer>() {
+            public Integer getValue() {
+                if (calls.incrementAndGet() == 1) {
+                    CachedValueTestCase.<RuntimeException>sneakyThrow(new Exception("undeclared"));
+                }
+                return calls.get();
+            }
+        });
+        try {
+            value.getValue();
+            fail("Exception expected");
+        } catch (Exception e) {
+            assertEquals("undeclared", e.getMessage());
+        }
+        // another thread must not wait for the failed calculation
+        final AtomicInteger result = new AtomicInteger();
+        final Thread thread = new Thread(new Runnable() {
+            public void run() {
+                result.set(value.getValue());
+            }
+        });
+        thread.start();
+        thread.join(5000L);
+        assertFalse(thread.isAlive());
+        assertEquals(2, result.get());
+    }
+
+    @Test
+    public void invalidate() {
+        final CachedValue<Number> value = new CachedValue<Number>(new IncrementValue(1));
+        assertEquals(1, value.getValue());
+        assertEquals(1, value.getValue());
+        value.invalidate();
+        assertEquals(2, value.getValue());
+        assertEquals(2, value.getValue());
+    }
+
+    @Test
+    public void singleCalculation() throws Exception {
+        final CountDownLatch calculating = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        final Value<Integer> value = new CachedValue<Integer>(new Value<Integer>() {
+            public Integer getValue() {
+                calls.incrementAndGet();
+                calculating.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return 42;
+            }
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 4; i ++) {
+                results.add(executor.submit(new Callable<Integer>() {
+                    public Integer call() {
+                        return value.getValue();
+                    }
+                }));
+            }
+            calculating.await();
+            Thread.sleep(50L);
+            release.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(42, (int) result.get());
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Value which fails a number of times before yielding the number of calls made to it.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> void sneakyThrow(final Throwable t) throws E {
+        throw (E) t;
+    }
+
+    private static final class FailingValue implements Value<Integer> {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private final int failures;
+
+        FailingValue(int failures) {
+            this.failures = failures;
+        }
+
+        public Integer getValue() throws IllegalStateException {
+            final int call = calls.incrementAndGet();
+            if (call <= failures) {
+                throw new IllegalStateException("Failure " + call);
+            }
+            return call;
+        }
+    }
+
     /**
      * Value whose integer value is incremented at every call to {@link #getValue()}.
      * 
@@ -515,4 +515,48 @@ public class CollectionRelatedValueTestCase {
         assertFalse(mapEntry6.equals((MapEntry<?, ?>)null));
         assertFalse(mapEntry7.equals((MapEntry<?, ?>)null));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void contextualCollectionValues() {
+        // the injected value is bound in the context only, not on the thread-local value
+        Values.injectedValue().setValue(null);
+        final EvaluationContext context = EvaluationContext.EMPTY.withInjectedValue(new ImmediateValue<String>("injected"));
+        final List<Value<? extends Object>> values = new ArrayList<Value<? extends Object>>();
+        values.add(Values.injectedValue());
+        values.add(new ImmediateValue<String>("immediate"));
+
+        final ListValue<Object> listValue = new ListValue<Object>(values);
+        final List<Object> list = Values.getValue(listValue, context);
+        assertEquals(2, list.size());
+        assertEquals("injected", list.get(0));
+        assertEquals("immediate", list.get(1));
+
+        final Set<Object> set = Values.getValue(new SetValue<Object>(values), context);
+        assertEquals(2, set.size());
+        assertTrue(set.contains("injected"));
+        assertTrue(set.contains("immediate"));
+
+        final Value<List<? extends Object>> listItemList = new ImmediateValue<List<? extends Object>>(list);
+        assertEquals("injected", Values.getValue(new ListItemValue<Object>(listItemList, new ImmediateValue<Integer>(0)), context));
+
+        final Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put("injected", "found");
+        assertEquals("found", Values.getValue(new MapItemValue<Object>(Values.injectedValue(), new ImmediateValue<Map<Object, Object>>(map)), context));
+
+        final MapEntry<Value<Object>, Value<Object>> entry = MapEntry.<Value<Object>, Value<Object>>entry(Values.injectedValue(), Values.<Object>nullValue());
+        final MapEntry<Object, Object> entryResult = Values.getValue(new MapEntryValue<Object, Object>(entry), context);
+        assertEquals("injected", entryResult.getKey());
+        assertNull(entryResult.getValue());
+
+        final List<MapEntry<? extends Value<? extends Object>, ? extends Value<? extends Object>>> entries = new ArrayList<MapEntry<? extends Value<? extends Object>, ? extends Value<? extends Object>>>();
+        entries.add(entry);
+        final Map<Object, Object> mapResult = Values.getValue(new MapValue<Object, Object>(new ImmediateValue<Map<Object, Object>>(new HashMap<Object, Object>()), entries), context);
+        assertEquals(1, mapResult.size());
+        assertTrue(mapResult.containsKey("injected"));
+
+        try {
+            listValue.getValue();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {}
+    }
+}
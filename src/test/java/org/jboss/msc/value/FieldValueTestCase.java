@@ -75,6 +75,21 @@ public class FieldValueTestCase {
         assertEquals(7, (int) sumValue.getValue());
     }
 
+    @Test
+    public void contextualField() throws Exception {
+        final AnyService anyObject = new AnyService();
+        anyObject.count = 7;
+        final Value<Field> fieldValue = new LookupFieldValue(new ImmediateValue<Class<?>>(AnyService.class), "count");
+        final FieldValue<Integer> countValue = new FieldValue<Integer>(fieldValue, Values.thisValue());
+        // the field and its target are evaluated with the binding of the context, the thread-local value is not set
+        Values.thisValue().setValue(null);
+        assertEquals(7, (int) Values.getValue(countValue, EvaluationContext.EMPTY.withThisValue(new ImmediateValue<AnyService>(anyObject))));
+        try {
+            countValue.getValue();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {}
+    }
+
     @Test
     public void nullField() throws Exception {
         final AnyService anyObject = new AnyService();
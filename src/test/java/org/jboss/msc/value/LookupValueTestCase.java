@@ -22,9 +22,11 @@
 
 package org.jboss.msc.value;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -299,6 +301,42 @@ public class LookupValueTestCase {
         assertEquals(resultingMethod, value.getValue());
     }
 
+    @Test
+    public void cachedLookups() throws Exception {
+        paramTypes.add(Values.<Class<?>>immediateValue(String.class));
+        final Value<Method> methodValue = new LookupMethodValue(anyServiceClass, "executeNonImportantTask", paramTypes);
+        final Method method = methodValue.getValue();
+        assertSame(method, methodValue.getValue());
+        final Value<Method> byCountValue = new LookupMethodValue(anyServiceClass, "executeNonImportantTask", 1);
+        final Method byCount = byCountValue.getValue();
+        assertEquals(method, byCount);
+        assertSame(byCount, byCountValue.getValue());
+        // the signature found by the search is shared, the member is not
+        final SignatureTable.Key key = new SignatureTable.Key(SignatureTable.Kind.METHOD, "executeNonImportantTask", 1);
+        assertArrayEquals(method.getParameterTypes(), SignatureTable.get(AnyService.class, key).getParameterTypes());
+        final Method otherByCount = new LookupMethodValue(anyServiceClass, "executeNonImportantTask", 1).getValue();
+        assertEquals(byCount, otherByCount);
+        assertNotSame(byCount, otherByCount);
+
+        final Value<Field> fieldValue = new LookupFieldValue(anyServiceClass, "count");
+        assertSame(fieldValue.getValue(), fieldValue.getValue());
+
+        final Value<Method> getterValue = new LookupGetMethodValue(anotherServiceClass, "retry");
+        assertSame(getterValue.getValue(), getterValue.getValue());
+        final Value<Method> iserValue = new LookupGetMethodValue(anotherServiceClass, "enabled");
+        assertEquals("isEnabled", iserValue.getValue().getName());
+        assertEquals("isEnabled", SignatureTable.get(AnotherService.class, new SignatureTable.Key(SignatureTable.Kind.GET_METHOD, "enabled", 0)).getName());
+        assertEquals(iserValue.getValue(), new LookupGetMethodValue(anotherServiceClass, "enabled").getValue());
+
+        // a member is never shared with another lookup value, so making it accessible affects no one else
+        final Field declaredField = new LookupDeclaredFieldValue(anyServiceClass, "sum", context, false).getValue();
+        declaredField.setAccessible(true);
+        final Value<Field> declaredFieldValue = new LookupDeclaredFieldValue(anyServiceClass, "sum", context, false);
+        assertNotSame(declaredField, declaredFieldValue.getValue());
+        assertFalse(declaredFieldValue.getValue().isAccessible());
+        assertSame(declaredFieldValue.getValue(), declaredFieldValue.getValue());
+    }
+
     @Test
     public void methodWithParamsValue() throws Exception {
         paramTypes.add(Values.<Class<?>>immediateValue(String.class));
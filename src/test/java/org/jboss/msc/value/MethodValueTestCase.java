@@ -23,7 +23,9 @@
 package org.jboss.msc.value;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.lang.reflect.Method;
@@ -66,6 +68,90 @@ public class MethodValueTestCase {
         assertSame(this, Values.thisValue().getValue());
     }
 
+    @Test
+    public void contextualMethodValue() throws Exception {
+        final Value<Method> equals = new ImmediateValue<Method>(Object.class.getMethod("equals", Object.class));
+        final List<Value<?>> thisArgument = new ArrayList<Value<?>>();
+        thisArgument.add(Values.thisValue());
+        final MethodValue<Boolean> isThis = new MethodValue<Boolean>(equals, target, thisArgument);
+        final List<Value<?>> injectedArgument = new ArrayList<Value<?>>();
+        injectedArgument.add(Values.injectedValue());
+        final MethodValue<Boolean> isInjected = new MethodValue<Boolean>(equals, target, injectedArgument);
+
+        Values.thisValue().setValue(Values.immediateValue(this));
+        // the context binds this to the target for the evaluation of the arguments
+        assertTrue(Values.getValue(isThis, EvaluationContext.EMPTY));
+        assertTrue(isThis.getValue());
+        assertSame(this, Values.thisValue().getValue());
+
+        assertTrue(Values.getValue(isInjected, EvaluationContext.EMPTY.withInjectedValue(target)));
+        assertFalse(Values.getValue(isInjected, EvaluationContext.EMPTY.withInjectedValue(Values.immediateValue(this))));
+
+        // nested method values are evaluated in the same context
+        final List<Value<?>> nestedArgument = new ArrayList<Value<?>>();
+        nestedArgument.add(isInjected);
+        final MethodValue<Boolean> isNested = new MethodValue<Boolean>(equals, new ImmediateValue<Boolean>(true), nestedArgument);
+        assertTrue(Values.getValue(isNested, EvaluationContext.EMPTY.withInjectedValue(target)));
+        assertFalse(Values.getValue(isNested, EvaluationContext.EMPTY.withInjectedValue(Values.immediateValue(this))));
+    }
+
+    @Test
+    public void mixedMethodValue() throws Exception {
+        final Value<AnotherService> disabledTarget = new ImmediateValue<AnotherService>(new AnotherService(1, false, "JBoss"));
+        // a value which does not take a context reads this from the thread-local value
+        final List<Value<?>> thisArgument = new ArrayList<Value<?>>();
+        thisArgument.add(new Value<Boolean>() {
+            public Boolean getValue() {
+                return Boolean.valueOf(((AnotherService) Values.thisValue().getValue()).isEnabled());
+            }
+        });
+        final MethodValue<String> thisValue = new MethodValue<String>(method, disabledTarget, thisArgument);
+        assertEquals("JBoss", thisValue.getValue());
+        assertEquals("JBoss", Values.getValue(thisValue, EvaluationContext.EMPTY));
+
+        final List<Value<?>> injectedArgument = new ArrayList<Value<?>>();
+        injectedArgument.add(new Value<Boolean>() {
+            public Boolean getValue() {
+                return Boolean.valueOf(((AnotherService) Values.injectedValue().getValue()).isEnabled());
+            }
+        });
+        final MethodValue<String> injectedValue = new MethodValue<String>(method, target, injectedArgument);
+        assertEquals("JBoss", Values.getValue(injectedValue, EvaluationContext.EMPTY.withInjectedValue(disabledTarget)));
+        try {
+            Values.getValue(injectedValue, EvaluationContext.EMPTY.withInjectedValue(target));
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {}
+
+        // with contextual values only, the thread-local value is not set while the method runs
+        final List<Value<?>> contextualArgument = new ArrayList<Value<?>>();
+        contextualArgument.add(new ImmediateValue<Boolean>(false));
+        final MethodValue<String> contextualValue = new MethodValue<String>(method, disabledTarget, contextualArgument);
+        Values.thisValue().setValue(null);
+        assertEquals("JBoss", contextualValue.getValue());
+        try {
+            Values.getValue(contextualValue, EvaluationContext.EMPTY);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {}
+    }
+
+    @Test
+    public void nullContext() throws Exception {
+        arguments.add(new ImmediateValue<Boolean>(false));
+        final MethodValue<String> value = new MethodValue<String>(method, target, arguments);
+        try {
+            value.getValue(null);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {}
+        try {
+            Values.getValue(value, null);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {}
+        try {
+            new CachedValue<String>(value).getValue(null);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {}
+    }
+
     @Test
     public void unaccessibleMethodValue() throws Exception {
         final Value<Method> unaccessibleMethod = new ImmediateValue<Method>(AnotherService.class.getDeclaredMethod("getDefinedBy"));
@@ -24,6 +24,7 @@ package org.jboss.msc.value;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 import org.junit.Test;
@@ -98,6 +99,21 @@ public class ThreadLocalValueTestCase {
         assertEquals("notNull", value.getValue());
     }
 
+    @Test
+    public void unsetThreadLocalValue() {
+        final ThreadLocalValue<String> value = new ThreadLocalValue<String>();
+        assertNull(value.getAndSetValue(null));
+        try {
+            value.getValue();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {}
+
+        final Value<String> notNull = new ImmediateValue<String>("notNull");
+        assertNull(value.getAndSetValue(notNull));
+        assertSame(notNull, value.getAndSetValue(null));
+        assertNull(value.getAndSetValue(null));
+    }
+
     private static class ThreadLocalRunnable<T> implements Runnable {
         private T value;
         private ThreadLocalValue<T> threadLocalValue;
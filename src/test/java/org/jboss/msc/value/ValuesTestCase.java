@@ -22,6 +22,7 @@
 
 package org.jboss.msc.value;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
@@ -35,7 +36,9 @@ import java.lang.reflect.Method;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -84,6 +87,27 @@ public class ValuesTestCase {
         assertSame(Boolean.FALSE, valueArray[2]);
     }
 
+    @Test
+    public void getValuesFromOtherIterables() {
+        final List<Value<Object>> list = new ArrayList<Value<Object>>();
+        for (int i = 0; i < 4; i ++) {
+            list.add(new ImmediateValue<Object>(Integer.valueOf(i)));
+        }
+        final Object[] expected = { 0, 1, 2, 3 };
+        assertArrayEquals(expected, Values.getValues(new LinkedList<Value<Object>>(list)));
+        assertArrayEquals(expected, Values.getValues(new Iterable<Value<Object>>() {
+            public Iterator<Value<Object>> iterator() {
+                return list.iterator();
+            }
+        }));
+        assertArrayEquals(expected, Values.getValues(new LinkedList<Value<Object>>(list), Object.class));
+        assertEquals(0, Values.getValues(new Iterable<Value<String>>() {
+            public Iterator<Value<String>> iterator() {
+                return Collections.<Value<String>>emptyList().iterator();
+            }
+        }, String.class).length);
+    }
+
     @Test
     public void getValuesFromNullIterable() {
         try {